@@ -0,0 +1,47 @@
+package org.cbateman.opengl;
+
+/**
+ * A rectangular region of a texture (or a whole texture), drawn with SpriteBatcher or
+ * Image.setTextureRegion(). Texture coordinates follow the images in this project: (u1, v1)
+ * is the top left of the region and (u2, v2) the bottom right.
+ */
+@SuppressWarnings("WeakerAccess")
+public class AtlasRegion {
+
+    public final int textureId;
+    public final float u1, v1;
+    public final float u2, v2;
+    public final int width, height;
+
+    /**
+     * AtlasRegion constructor for a region of a texture.
+     *
+     * @param textureId the texture id
+     * @param texWidth the width of the texture in pixels
+     * @param texHeight the height of the texture in pixels
+     * @param x the left of the region in pixels
+     * @param y the top of the region in pixels
+     * @param width the width of the region in pixels
+     * @param height the height of the region in pixels
+     */
+    public AtlasRegion(int textureId, int texWidth, int texHeight, int x, int y, int width, int height) {
+        this.textureId = textureId;
+        this.width = width;
+        this.height = height;
+        this.u1 = (float) x / texWidth;
+        this.v1 = (float) y / texHeight;
+        this.u2 = (float) (x + width) / texWidth;
+        this.v2 = (float) (y + height) / texHeight;
+    }
+
+    /**
+     * AtlasRegion constructor for a whole texture.
+     *
+     * @param textureId the texture id
+     * @param texWidth the width of the texture in pixels
+     * @param texHeight the height of the texture in pixels
+     */
+    public AtlasRegion(int textureId, int texWidth, int texHeight) {
+        this(textureId, texWidth, texHeight, 0, 0, texWidth, texHeight);
+    }
+}
@@ -0,0 +1,152 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * Draws the orbital bodies of a SimulationState (asteroids) as small tumbling rocks through a
+ * SpriteBatcher. Every body has its own size, spin and brightness, chosen once from a seed; a
+ * range of bodies is drawn with one batch, so the bodies behind and in front of the earth can
+ * be drawn separately.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class BodyRenderer {
+
+    private static final String TAG = Constants.TAG;
+
+    // The rock texture: a soft ellipse, so that the spin is visible
+    private static final int TEXTURE_SIZE = 16;
+    private static final float TEXTURE_ASPECT = 0.7f;
+
+    private static final float MIN_SCALE = 0.6f;
+    private static final float MAX_SCALE = 1.4f;
+    // Turns per orbit
+    private static final float MAX_SPIN = 3.0f;
+    private static final float MIN_BRIGHTNESS = 0.7f;
+
+    private final SpriteBatcher mBatcher;
+    private final float mSize;
+    private final float[] mScale;
+    private final float[] mSpin;
+    private final int[] mTint;
+
+    private final int[] texture = new int[1];
+    private AtlasRegion mRegion;
+
+    /**
+     * BodyRenderer constructor. Must be called on the GL thread.
+     *
+     * @param batcher the batcher the bodies are drawn with
+     * @param capacity the number of bodies with their own size, spin and brightness
+     * @param size diameter of a body of average size in world units
+     * @param color ARGB color
+     * @param seed seed of the size, spin and brightness of the bodies
+     */
+    public BodyRenderer(SpriteBatcher batcher, int capacity, float size, int color, long seed) {
+        mBatcher = batcher;
+        mSize = size;
+        mScale = new float[capacity];
+        mSpin = new float[capacity];
+        mTint = new int[capacity];
+
+        final Random random = new Random(seed);
+        for (int i = 0; i < capacity; i++) {
+            mScale[i] = MIN_SCALE + random.nextFloat() * (MAX_SCALE - MIN_SCALE);
+            mSpin[i] = (random.nextFloat() * 2 - 1) * MAX_SPIN;
+            final float brightness = MIN_BRIGHTNESS + random.nextFloat() * (1.0f - MIN_BRIGHTNESS);
+            mTint[i] = (color & 0xFF000000)
+                    | scaleChannel(color >> 16, brightness) << 16
+                    | scaleChannel(color >> 8, brightness) << 8
+                    | scaleChannel(color, brightness);
+        }
+
+        setupData();
+
+        Log.i(TAG, "BodyRenderer constructed (" + capacity + " bodies)");
+    }
+
+    /**
+     * Draws a range of the bodies of a snapshot. A body turns with its orbit, so no time is
+     * needed to spin it.
+     *
+     * @param vpMatrix - The View Project matrix in which to draw the bodies
+     * @param state the snapshot
+     * @param start first body to draw
+     * @param end one past the last body to draw
+     */
+    public void draw(float[] vpMatrix, SimulationState state, int start, int end) {
+        if (end <= start || mRegion == null) {
+            return;
+        }
+
+        final float[] bodyX = state.bodyX;
+        final float[] bodyY = state.bodyY;
+        final int[] bodyId = state.bodyId;
+        final float width = mSize;
+        final float height = mSize * TEXTURE_ASPECT;
+        final SpriteBatcher batcher = mBatcher;
+        batcher.begin(vpMatrix);
+        for (int i = start; i < end; i++) {
+            final float x = bodyX[i];
+            final float y = bodyY[i];
+            final int id = bodyId[i] % mScale.length;
+            final float angle = (float) Math.toDegrees(Math.atan2(y, x)) * mSpin[id];
+            final float scale = mScale[id];
+            batcher.draw(mRegion, x, y, width, height, width / 2, height / 2,
+                    scale, scale, angle, mTint[id]);
+        }
+        batcher.end();
+    }
+
+    public void cleanup() {
+        if (texture[0] > 0) {
+            GLES20.glDeleteTextures(texture.length, texture, 0);
+            texture[0] = 0;
+        }
+        mRegion = null;
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Creates the rock texture: white, with an alpha that falls off towards the edge of an
+     * ellipse (the same falloff the bodies had as point sprites). The tint colors it.
+     */
+    private void setupData() {
+        final int size = TEXTURE_SIZE;
+        final ByteBuffer pixels = ByteBuffer.allocateDirect(size * size * 4)
+                .order(ByteOrder.nativeOrder());
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final float dx = (x + 0.5f) / size * 2 - 1;
+                final float dy = ((y + 0.5f) / size * 2 - 1) / TEXTURE_ASPECT;
+                final float d = (float) Math.sqrt(dx * dx + dy * dy);
+                final float t = Math.max(0.0f, Math.min((d - 0.5f) / 0.5f, 1.0f));
+                final float alpha = 1.0f - t * t * (3 - 2 * t);
+                pixels.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF)
+                        .put((byte) Math.round(alpha * 255));
+            }
+        }
+        pixels.position(0);
+
+        GLES20.glGenTextures(1, texture, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, size, size, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+
+        mRegion = new AtlasRegion(texture[0], size, size);
+    }
+
+    private static int scaleChannel(int channel, float brightness) {
+        return Math.round((channel & 0xFF) * brightness);
+    }
+}
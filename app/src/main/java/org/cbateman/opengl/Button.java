@@ -16,6 +16,15 @@ public abstract class Button extends Image {
         super();
     }
 
+    /**
+     * Returns the bounds of the button in world coordinates.
+     *
+     * @return the bounds
+     */
+    public RectF getBounds() {
+        return mBounds;
+    }
+
     /**
      * Returns true if touch event handled.
      *
@@ -0,0 +1,350 @@
+package org.cbateman.opengl;
+
+import android.opengl.Matrix;
+import android.view.MotionEvent;
+
+/**
+ * A 2D camera with position, zoom and rotation. Touch input (one finger pans, two fingers
+ * pan and pinch zoom) moves a target that the camera follows smoothly in update(). The
+ * camera keeps the world rectangle it currently shows so objects can be culled before they
+ * are submitted; isVisible() counts the objects it accepts and rejects each frame.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class Camera2D {
+
+    public static final float MIN_ZOOM = 0.5f;
+    public static final float MAX_ZOOM = 8.0f;
+
+    // Exponential rate (1/s) at which the camera closes on its target: each update covers
+    // 1 - exp(-SMOOTHING * deltaTime) of the remaining distance
+    private static final float SMOOTHING = 12.0f;
+    private static final int MAX_POINTERS = 2;
+
+    private float mX, mY;
+    private float mZoom = 1.0f;
+    private float mRotation;
+    private float mTargetX, mTargetY;
+    private float mTargetZoom = 1.0f;
+
+    // Half size of the view at zoom 1, in world units, and the viewport in pixels
+    private float mHalfWidth = 1.0f, mHalfHeight = 1.0f;
+    private float mPixelsWidth = 1.0f, mPixelsHeight = 1.0f;
+
+    private final float[] mProjectionMatrix = new float[16];
+    private final float[] mViewMatrix = new float[16];
+    private final float[] mVPMatrix = new float[16];
+
+    // World rectangle around the visible area (rotation included)
+    private float mMinX, mMinY, mMaxX, mMaxY;
+
+    private int mDrawn;
+    private int mCulled;
+
+    // Touch tracking: pointer ids and last positions (pixels)
+    private final int[] mPointerId = { -1, -1 };
+    private final float[] mPointerX = new float[MAX_POINTERS];
+    private final float[] mPointerY = new float[MAX_POINTERS];
+
+    /**
+     * Sets the viewport. Call from onSurfaceChanged.
+     *
+     * @param width viewport width in pixels
+     * @param height viewport height in pixels
+     * @param halfWidth half the visible width in world units at zoom 1
+     * @param halfHeight half the visible height in world units at zoom 1
+     */
+    public void setViewport(int width, int height, float halfWidth, float halfHeight) {
+        mPixelsWidth = width;
+        mPixelsHeight = height;
+        mHalfWidth = halfWidth;
+        mHalfHeight = halfHeight;
+        updateMatrices();
+    }
+
+    /**
+     * Moves the camera (and its target) immediately.
+     */
+    public void setPosition(float x, float y) {
+        mX = mTargetX = x;
+        mY = mTargetY = y;
+        updateMatrices();
+    }
+
+    /**
+     * Zooms the camera (and its target) immediately.
+     *
+     * @param zoom the zoom, clamped to [MIN_ZOOM, MAX_ZOOM]
+     */
+    public void setZoom(float zoom) {
+        mZoom = mTargetZoom = clampZoom(zoom);
+        updateMatrices();
+    }
+
+    /**
+     * Rotates the camera.
+     *
+     * @param degrees counter clockwise rotation of the view in degrees
+     */
+    public void setRotation(float degrees) {
+        mRotation = degrees;
+        updateMatrices();
+    }
+
+    /**
+     * Pans the target by a distance in pixels.
+     *
+     * @param dx pixels to the right
+     * @param dy pixels down
+     */
+    public void panBy(float dx, float dy) {
+        // dragging right moves the world right, so the camera left
+        final float wx = -dx * 2 * mHalfWidth / (mPixelsWidth * mTargetZoom);
+        final float wy = dy * 2 * mHalfHeight / (mPixelsHeight * mTargetZoom);
+        final double rad = Math.toRadians(mRotation);
+        final float cos = (float) Math.cos(rad);
+        final float sin = (float) Math.sin(rad);
+        mTargetX += wx * cos - wy * sin;
+        mTargetY += wx * sin + wy * cos;
+    }
+
+    /**
+     * Multiplies the target zoom.
+     *
+     * @param factor zoom factor (above 1 zooms in)
+     */
+    public void zoomBy(float factor) {
+        mTargetZoom = clampZoom(mTargetZoom * factor);
+    }
+
+    /**
+     * Handles a touch for panning and pinch zooming. Touches of more than two fingers are
+     * ignored.
+     *
+     * @param action the masked action
+     * @param pointerId the pointer id
+     * @param x x in pixels from the left of the view
+     * @param y y in pixels from the top of the view
+     */
+    public void onTouch(int action, int pointerId, float x, float y) {
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                for (int i = 0; i < MAX_POINTERS; i++) {
+                    if (mPointerId[i] == -1) {
+                        mPointerId[i] = pointerId;
+                        mPointerX[i] = x;
+                        mPointerY[i] = y;
+                        break;
+                    }
+                }
+                break;
+
+            case MotionEvent.ACTION_MOVE: {
+                final int i = indexOf(pointerId);
+                if (i < 0) {
+                    break;
+                }
+                final int other = mPointerId[1 - i] != -1 ? 1 - i : -1;
+                if (other < 0) {
+                    panBy(x - mPointerX[i], y - mPointerY[i]);
+                } else {
+                    // move the midpoint and scale by the change in finger distance
+                    final float ox = mPointerX[other], oy = mPointerY[other];
+                    final float before = distance(mPointerX[i], mPointerY[i], ox, oy);
+                    final float after = distance(x, y, ox, oy);
+                    panBy((x - mPointerX[i]) / 2, (y - mPointerY[i]) / 2);
+                    if (before > 0 && after > 0) {
+                        zoomBy(after / before);
+                    }
+                }
+                mPointerX[i] = x;
+                mPointerY[i] = y;
+                break;
+            }
+
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP: {
+                final int i = indexOf(pointerId);
+                if (i >= 0) {
+                    mPointerId[i] = -1;
+                }
+                break;
+            }
+
+            case MotionEvent.ACTION_CANCEL:
+                mPointerId[0] = mPointerId[1] = -1;
+                break;
+        }
+    }
+
+    /**
+     * Moves the camera towards its target and resets the culling counters. Call once per
+     * frame before drawing.
+     *
+     * @param deltaTime seconds since the last update
+     */
+    public void update(float deltaTime) {
+        final float f = 1.0f - (float) Math.exp(-SMOOTHING * deltaTime);
+        mX += (mTargetX - mX) * f;
+        mY += (mTargetY - mY) * f;
+        mZoom += (mTargetZoom - mZoom) * f;
+        mDrawn = 0;
+        mCulled = 0;
+        updateMatrices();
+    }
+
+    /**
+     * Returns true if a world rectangle overlaps the view, counting it as drawn or culled.
+     *
+     * @param minX left
+     * @param minY bottom
+     * @param maxX right
+     * @param maxY top
+     * @return true if the rectangle may be visible
+     */
+    public boolean isVisible(float minX, float minY, float maxX, float maxY) {
+        if (maxX < mMinX || minX > mMaxX || maxY < mMinY || minY > mMaxY) {
+            mCulled++;
+            return false;
+        }
+        mDrawn++;
+        return true;
+    }
+
+    /**
+     * Returns true if a world circle overlaps the view, counting it as drawn or culled.
+     *
+     * @param x centre x
+     * @param y centre y
+     * @param radius the radius
+     * @return true if the circle may be visible
+     */
+    public boolean isVisible(float x, float y, float radius) {
+        return isVisible(x - radius, y - radius, x + radius, y + radius);
+    }
+
+    /**
+     * @return the view projection matrix of the camera
+     */
+    public float[] getVPMatrix() {
+        return mVPMatrix;
+    }
+
+    public float getMinX() {
+        return mMinX;
+    }
+
+    public float getMinY() {
+        return mMinY;
+    }
+
+    public float getMaxX() {
+        return mMaxX;
+    }
+
+    public float getMaxY() {
+        return mMaxY;
+    }
+
+    /**
+     * @return half the visible width in world units at zoom 1
+     */
+    public float getHalfWidth() {
+        return mHalfWidth;
+    }
+
+    /**
+     * @return half the visible height in world units at zoom 1
+     */
+    public float getHalfHeight() {
+        return mHalfHeight;
+    }
+
+    /**
+     * @return the viewport width in pixels
+     */
+    public float getViewportWidth() {
+        return mPixelsWidth;
+    }
+
+    /**
+     * @return the viewport height in pixels
+     */
+    public float getViewportHeight() {
+        return mPixelsHeight;
+    }
+
+    public float getX() {
+        return mX;
+    }
+
+    public float getY() {
+        return mY;
+    }
+
+    public float getZoom() {
+        return mZoom;
+    }
+
+    /**
+     * @return objects accepted by isVisible() since the last update()
+     */
+    public int getDrawnCount() {
+        return mDrawn;
+    }
+
+    /**
+     * @return objects rejected by isVisible() since the last update()
+     */
+    public int getCulledCount() {
+        return mCulled;
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private void updateMatrices() {
+        final float hw = mHalfWidth / mZoom;
+        final float hh = mHalfHeight / mZoom;
+
+        // Same projection and eye distance as the fixed view this camera replaces
+        Matrix.orthoM(mProjectionMatrix, 0, -hw, hw, -hh, hh, 3, 7);
+        Matrix.setLookAtM(mViewMatrix, 0, mX, mY, 3, mX, mY, 0, 0f, 1.0f, 0.0f);
+        if (mRotation != 0) {
+            // rotate the world around the camera position
+            Matrix.translateM(mViewMatrix, 0, mX, mY, 0);
+            Matrix.rotateM(mViewMatrix, 0, -mRotation, 0, 0, 1);
+            Matrix.translateM(mViewMatrix, 0, -mX, -mY, 0);
+        }
+        Matrix.multiplyMM(mVPMatrix, 0, mProjectionMatrix, 0, mViewMatrix, 0);
+
+        // Bounding rectangle of the (possibly rotated) visible rectangle
+        final double rad = Math.toRadians(mRotation);
+        final float cos = Math.abs((float) Math.cos(rad));
+        final float sin = Math.abs((float) Math.sin(rad));
+        final float ex = hw * cos + hh * sin;
+        final float ey = hw * sin + hh * cos;
+        mMinX = mX - ex;
+        mMaxX = mX + ex;
+        mMinY = mY - ey;
+        mMaxY = mY + ey;
+    }
+
+    private int indexOf(int pointerId) {
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (mPointerId[i] == pointerId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static float clampZoom(float zoom) {
+        return Math.max(MIN_ZOOM, Math.min(zoom, MAX_ZOOM));
+    }
+
+    private static float distance(float x0, float y0, float x1, float y1) {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+}
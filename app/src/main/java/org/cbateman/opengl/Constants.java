@@ -6,4 +6,18 @@ package org.cbateman.opengl;
 public class Constants {
 
     public static final String TAG = "OpenGLES2DDemoTag";
+
+    // Debug: draw the overdraw heatmap instead of the scene (see OverdrawMeter)
+    public static final boolean SHOW_OVERDRAW = false;
+
+    // Render the world below native resolution when frames run late (see ResolutionScaler);
+    // off while the overdraw heatmap is shown
+    public static final boolean DYNAMIC_RESOLUTION = false;
+
+    // Stream res/raw/stars.png in tiles as the background instead of generating the
+    // starfield (see TiledBackground)
+    public static final boolean TILED_BACKGROUND = false;
+
+    // Benchmark: emit moon dust fast enough to keep about 100000 particles alive (see ParticleSystem)
+    public static final boolean PARTICLE_STRESS = false;
 }
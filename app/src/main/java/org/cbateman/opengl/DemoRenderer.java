@@ -8,8 +8,10 @@ import android.util.Log;
 import android.view.MotionEvent;
 
 import org.cbateman.opengl.text.gltext.GLText;
+import org.cbateman.opengl.text.gltext.ProgramCache;
+import org.cbateman.opengl.text.gltext.TextLabel;
 
-import java.text.DecimalFormat;
+import java.util.Random;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -19,7 +21,7 @@ import javax.microedition.khronos.opengles.GL10;
  * calls to render a frame.
  */
 @SuppressWarnings("WeakerAccess")
-public class DemoRenderer implements GLSurfaceView.Renderer {
+public class DemoRenderer implements GLSurfaceView.Renderer, TouchEventRing.Listener {
 
     private static final String TAG = Constants.TAG;
 
@@ -28,10 +30,13 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
 
     private EarthImage mEarthImage;
     private MoonImage mMoonImage;
-    private StarsImage mStarsImage;
+    private Starfield mStarfield;
+    private TiledBackground mBackground;
     private DirectionButton mDirectionButton;
     private PlayButton mPlayButton;
     private SpeedButton mSpeedButton;
+    private volatile SimulationThread mSimulation;
+    private volatile boolean mPaused;
 
     // mPVMatrix is an abbreviation for "Projection View Matrix"
     private final float[] mPVMatrix = new float[16];
@@ -40,11 +45,73 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
     private final float[] mModelMatrix = new float[16];
     private final float[] mScratch = new float[16];
 
+    // Hit test ids of the buttons
+    private static final int HIT_DIRECTION = 0;
+    private static final int HIT_PLAY = 1;
+    private static final int HIT_SPEED = 2;
+    private final HitTester mHitTester = new HitTester();
+
+    // World objects are drawn through the camera; stars and buttons stay fixed on screen
+    private static final float EARTH_HALF_SIZE = 0.3f;
+    private static final float MOON_HALF_SIZE = 0.1f;
+
+    // Seconds the moon has spun for; it spins while it moves, faster at higher speeds
+    private float mMoonSpinTime;
+    private final Camera2D mCamera = new Camera2D();
+
+    private static final long STARFIELD_SEED = 0x5EED5EEDL;
+
+    // The moon orbits the earth (period about 8 seconds) inside a belt of asteroids
+    private static final float EARTH_MASS = 0.0771f;
+    private static final float MOON_MASS = 0.001f;
+    private static final float MOON_ORBIT_RADIUS = 0.5f;
+    private static final float MOON_ORBIT_ANGLE = (float) (-0.25 * Math.PI);
+    private static final int ASTEROID_COUNT = 2000;
+    private static final float ASTEROID_MASS = 1e-8f;
+    private static final float ASTEROID_MIN_RADIUS = 0.75f;
+    private static final float ASTEROID_MAX_RADIUS = 1.1f;
+    private static final long ASTEROID_SEED = 0xA57E201DL;
+    private static final float ASTEROID_SIZE = 0.005f;
+    private static final int ASTEROID_COLOR = 0xFFA09080;
+    private BodyRenderer mBodies;
+
+    // Textured sprites of the world (the asteroids), batched into as few draw calls as possible
+    private SpriteBatcher mSprites;
+
+    // Dust trail left by the moon while it moves, in particles per second. The stress rate
+    // keeps about 100000 particles alive to exercise the parallel update
+    private static final float DUST_RATE = 400.0f;
+    private static final float DUST_STRESS_RATE = 66000.0f;
+    private static final float DUST_LIFE = 1.5f;
+    private static final float DUST_SPEED = 0.03f;
+    private static final float DUST_STRESS_SPEED = 0.3f;
+    private static final float DUST_SIZE = 4.0f;
+    private static final int DUST_COLOR = 0xA0C8C0B0;
+    private ParticleSystem mDust;
+    private final Random mDustRandom = new Random();
+    private float mDustCarry;
+
+    // Debug heatmap of how many times each pixel is shaded
+    private OverdrawMeter mOverdrawMeter;
+    private volatile boolean mShowOverdraw = Constants.SHOW_OVERDRAW;
+
+    // The world (not the buttons or text) is drawn at a scale that holds the frame time.
+    // Not while the overdraw heatmap is shown: the scaled target has no stencil buffer to
+    // count into, and the heatmap is of the frame at native resolution
+    private ResolutionScaler mWorldScaler;
+    private volatile boolean mDynamicResolution = Constants.DYNAMIC_RESOLUTION;
+
+    private final TouchEventRing mTouchEvents = new TouchEventRing(256);
+
     private final TimeHelper mTimeHelper = new TimeHelper();
 
+    private final TweenEngine mTweens = new TweenEngine(16, 16);
+    private final int mButtonTarget;
+
     private GLText mGLText;
+    private TextLabel mSPFLabel;
     private final StringBuilder mSPFBuffer = new StringBuilder();
-    private final DecimalFormat mSPFFormat = new DecimalFormat("0.####");
+    private final NumberFormatter mSPFFormat = new NumberFormatter();
     private final float[] mTextPVMatrix = new float[16];
 
     /**
@@ -58,46 +125,113 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
         }
         mContext = context;
 
+        // Buttons pulse with one sine period every 0.5 seconds (0.96 + 0.08 * sin)
+        mButtonTarget = mTweens.createTarget();
+        int pulse = mTweens.beginTrack(mButtonTarget, TweenEngine.SCALE, TweenEngine.LOOP, 0);
+        mTweens.addKey(pulse, 0.0f, 0.96f, Easing.LINEAR);
+        mTweens.addKey(pulse, 0.125f, 1.04f, Easing.SINE_OUT);
+        mTweens.addKey(pulse, 0.375f, 0.88f, Easing.SINE_IN_OUT);
+        mTweens.addKey(pulse, 0.5f, 0.96f, Easing.SINE_IN);
+        mTweens.start(pulse);
+
         Log.i(TAG, "DemoRenderer constructed");
     }
 
     /**
-     * Touch event callback.
+     * Returns the ring touch events are recorded in by the UI thread.
      *
-     * @param e the MotionEvent object
+     * @return the touch event ring
      */
-    public void onTouchEvent(MotionEvent e) {
-        switch (e.getAction()) {
-            case MotionEvent.ACTION_DOWN:
-                int viewport[] = { 0, 0, mWidth, mHeight };
-                if (mDirectionButton.handleTouch(e.getX(), e.getY(), mProjectionMatrix, viewport)) {
-                    changeDirection();
+    public TouchEventRing getTouchEvents() {
+        return mTouchEvents;
+    }
 
-                } else if (mPlayButton.handleTouch(e.getX(), e.getY(), mProjectionMatrix, viewport)) {
+    /**
+     * Touch event callback, called on the GL thread while the touch ring is drained.
+     *
+     * @param action the masked action
+     * @param pointerId the pointer id
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param eventTime the event time in milliseconds
+     */
+    @Override
+    public void onTouch(int action, int pointerId, float x, float y, long eventTime) {
+        if (action == MotionEvent.ACTION_DOWN) {
+            switch (mHitTester.hitTest(x, y)) {
+                case HIT_DIRECTION:
+                    changeDirection();
+                    return;
+                case HIT_PLAY:
                     togglePlay();
-
-                } else if (mSpeedButton.handleTouch(e.getX(), e.getY(), mProjectionMatrix, viewport)) {
+                    return;
+                case HIT_SPEED:
                     changeSpeed();
-                }
-                break;
+                    return;
+            }
         }
+
+        // Touches that miss the buttons pan and zoom the camera
+        mCamera.onTouch(action, pointerId, x, y);
     }
 
     /**
      * Clean up any resources used by renderer.
      */
     public void cleanUp() {
+        mSimulation.stop();
+
         mEarthImage.cleanup();
         mMoonImage.cleanup();
-        mStarsImage.cleanup();
+        mStarfield.cleanup();
+        if (mBackground != null) {
+            mBackground.cleanup();
+        }
+        mBodies.cleanup();
+        mSprites.cleanup();
+        mDust.cleanup();
+        mOverdrawMeter.cleanup();
+        mWorldScaler.cleanup();
 
         mDirectionButton.cleanup();
         mPlayButton.cleanup();
         mSpeedButton.cleanup();
 
+        mSPFLabel.cleanUp();
         mGLText.cleanUp();
     }
 
+    /**
+     * Pauses or resumes the simulation with the activity. May be called from any thread.
+     *
+     * @param paused true to pause
+     */
+    public void setPaused(boolean paused) {
+        mPaused = paused;
+        SimulationThread simulation = mSimulation;
+        if (simulation != null) {
+            simulation.setPaused(paused);
+        }
+    }
+
+    /**
+     * Shows or hides the overdraw heatmap. May be called from any thread.
+     *
+     * @param show true to draw the heatmap instead of the scene
+     */
+    public void setShowOverdraw(boolean show) {
+        mShowOverdraw = show;
+    }
+
+    /**
+     * Enables or disables dynamic resolution of the world. May be called from any thread.
+     *
+     * @param enabled true to render the world at a scale that holds the frame time
+     */
+    public void setDynamicResolution(boolean enabled) {
+        mDynamicResolution = enabled;
+    }
+
     // GLSurfaceView.Renderer ----------------------------------------------------------------------
 
     /**
@@ -107,6 +241,10 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
      * @param config the EGLConfig of the created surface
      */
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        // Choose between the ES 3.0 and ES 2.0 paths before anything is created
+        GLCapabilities.detect();
+        ProgramCache.setDirectory(mContext.getCacheDir());
+
         // Set the background frame color
         GLES20.glClearColor(0.0f, 0.0f, 0.0f, 1.0f);
 
@@ -142,17 +280,82 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
 
         mEarthImage = new EarthImage(mContext);
         mMoonImage = new MoonImage(mContext);
-        mStarsImage = new StarsImage(mContext);
+        // Stars are generated, not decoded; three layers from far (slow) to near
+        if (mStarfield != null) {
+            mStarfield.cleanup();
+        }
+        mStarfield = new Starfield(STARFIELD_SEED, 600, 0.2f, 0.5f, 0.8f);
+        // Or streamed in tiles, covering the view at zoom 1
+        if (mBackground != null) {
+            mBackground.cleanup();
+            mBackground = null;
+        }
+        if (Constants.TILED_BACKGROUND) {
+            mBackground = new TiledBackground(mContext, R.raw.stars, -ratio, 1.0f, ratio, -1.0f,
+                    width, height);
+        }
+
+        if (mSprites != null) {
+            mSprites.cleanup();
+        }
+        mSprites = new SpriteBatcher(ASTEROID_COUNT);
+
+        if (mBodies != null) {
+            mBodies.cleanup();
+        }
+        mBodies = new BodyRenderer(mSprites, ASTEROID_COUNT, ASTEROID_SIZE, ASTEROID_COLOR,
+                ASTEROID_SEED);
+
+        if (mDust != null) {
+            mDust.cleanup();
+        }
+        mDust = new ParticleSystem(Constants.PARTICLE_STRESS ? 110000 : 1024);
+        mDust.setDrag(0.5f);
+        mDustCarry = 0.0f;
+
+        if (mOverdrawMeter != null) {
+            mOverdrawMeter.cleanup();
+        }
+        mOverdrawMeter = new OverdrawMeter();
+        mOverdrawMeter.setSize(width, height);
+
+        if (mWorldScaler != null) {
+            mWorldScaler.cleanup();
+        }
+        mWorldScaler = new ResolutionScaler();
+        mWorldScaler.setSize(width, height);
 
         mDirectionButton = new DirectionButton(mContext, width, height);
         mPlayButton = new PlayButton(mContext, width, height);
         mSpeedButton = new SpeedButton(mContext, width, height);
 
+        // Buttons are registered in the order they are drawn
+        mHitTester.setViewport(width, height, mPVMatrix);
+        mCamera.setViewport(width, height, ratio, 1.0f);
+        mHitTester.clear();
+        mHitTester.add(mDirectionButton.getBounds(), 0, HIT_DIRECTION);
+        mHitTester.add(mPlayButton.getBounds(), 1, HIT_PLAY);
+        mHitTester.add(mSpeedButton.getBounds(), 2, HIT_SPEED);
+
+        // The moon state and the orbits are only used by the simulation thread from now on
+        if (mSimulation != null) {
+            mSimulation.stop();
+        }
+        mSimulation = new SimulationThread(mMoonImage, createOrbits());
+        mSimulation.setPaused(mPaused);
+        mSimulation.start();
+
         mTimeHelper.init();
 
+        // The label holds buffers (and on ES 3.0 a program) of its own; free them with the font
+        if (mSPFLabel != null) {
+            mSPFLabel.cleanUp();
+            mGLText.cleanUp();
+        }
         mGLText = new GLText(mContext.getAssets());
-        boolean result = mGLText.load("Roboto-Regular.ttf", 28, 2, 2);
+        boolean result = mGLText.load("Roboto-Regular.ttf", 28, 2, 2, mContext.getCacheDir());
         mSPFBuffer.setLength(0);
+        mSPFLabel = new TextLabel(mGLText, 32);
 
         // Set up a separate projection view for the text
         float[] projectionMatrix = new float[16];
@@ -176,38 +379,99 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
      * @param gl the GL interface
      */
     public void onDrawFrame(GL10 gl) {
+        // Count the fragments of the frame (not the text) into the overdraw heatmap
+        boolean showOverdraw = mShowOverdraw && mOverdrawMeter.begin();
+
         // Draw background color
         GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         // Update TimeHelper before calling any other methods from TimeHelper
         mTimeHelper.update();
 
-        // Draw stars image
-        mStarsImage.draw(mPVMatrix);
+        // Handle the touches recorded since the last frame
+        mTouchEvents.drain(this);
 
         float deltaTime = mTimeHelper.getDeltaTime();
 
-        // Update moon position
-        mMoonImage.update(deltaTime);
+        // Move the camera; this also resets its culling counters
+        mCamera.update(deltaTime);
+        float[] worldMatrix = mCamera.getVPMatrix();
+
+        // Read the latest moon position published by the simulation thread
+        SimulationState state = mSimulation.getState();
         Matrix.setIdentityM(mModelMatrix, 0);
-        Matrix.translateM(mModelMatrix, 0, mMoonImage.getX(), mMoonImage.getY(), 0.0f);
-        Matrix.multiplyMM(mScratch, 0, mPVMatrix, 0, mModelMatrix, 0);
+        Matrix.translateM(mModelMatrix, 0, state.moonX, state.moonY, 0.0f);
+        Matrix.multiplyMM(mScratch, 0, worldMatrix, 0, mModelMatrix, 0);
+
+        // Draw the world into the scaled target; buttons and text stay at native resolution.
+        // Point sprites (stars, dust) are sized in pixels, so they are scaled with the target
+        boolean scaledWorld = false;
+        if (mDynamicResolution && !showOverdraw) {
+            mWorldScaler.update(deltaTime);
+            scaledWorld = mWorldScaler.begin();
+        }
+        float pointScale = scaledWorld ? mWorldScaler.getScale() : 1.0f;
+        mStarfield.setPointScale(pointScale);
+        mDust.setPointScale(pointScale);
+
+        // The moon sheds dust while it moves
+        if (state.moonAnimating) {
+            emitDust(state.moonX, state.moonY, deltaTime);
+            mMoonSpinTime += deltaTime * state.moonSpeed / MoonImage.MIN_SPEED;
+        }
+        mDust.update(deltaTime);
+        mMoonImage.setSpinTime(mMoonSpinTime);
 
-        // Draw earth/moon images
-        if (mMoonImage.getZOrder() > 0) {
-            mEarthImage.draw(mPVMatrix);
-            mMoonImage.draw(mScratch);
+        boolean earthVisible = mCamera.isVisible(0.0f, 0.0f, EARTH_HALF_SIZE);
+        boolean moonVisible = mCamera.isVisible(state.moonX, state.moonY, MOON_HALF_SIZE);
+
+        // Draw the stars behind everything
+        if (mBackground != null) {
+            mSprites.begin(worldMatrix);
+            mBackground.draw(mSprites, mCamera);
+            mSprites.end();
         } else {
-            mMoonImage.draw(mScratch);
-            mEarthImage.draw(mPVMatrix);
+            mStarfield.draw(mCamera, mTimeHelper.getAccumulatedTime());
+        }
+
+        // Draw the bodies behind the earth, the earth and the bodies in front of it; the
+        // moon goes with its side, the dust trail just behind the moon
+        boolean moonInFront = state.moonZOrder > 0;
+        mBodies.draw(worldMatrix, state, 0, state.bodyFarCount);
+        if (!moonInFront) {
+            mDust.draw(worldMatrix);
+            if (moonVisible) {
+                mMoonImage.draw(mScratch);
+            }
+        }
+        if (earthVisible) {
+            mEarthImage.draw(worldMatrix);
+        }
+        mBodies.draw(worldMatrix, state, state.bodyFarCount, state.bodyCount);
+        if (moonInFront) {
+            mDust.draw(worldMatrix);
+            if (moonVisible) {
+                mMoonImage.draw(mScratch);
+            }
         }
 
-        // Setup the button animation
-        float elapsedTime = mTimeHelper.getAccumulatedTime();
-        float scaleValue = getButtonAnimationScaleValue(elapsedTime);
+        if (scaledWorld) {
+            mWorldScaler.end();
+            mWorldScaler.draw();
+        }
+
+        // Setup the button animation. The buttons are drawn directly rather than from a cached
+        // layer: the pulse changes them every frame, and a composited layer would shade more
+        // pixels, all of them blended, than the trimmed button meshes do
+        mTweens.update(deltaTime);
+        float scaleValue = mTweens.getValue(mButtonTarget, TweenEngine.SCALE);
         Matrix.setIdentityM(mModelMatrix, 0);
         Matrix.scaleM(mModelMatrix, 0, scaleValue, scaleValue, 1.0f);
 
+        // Button images follow the simulation state
+        mPlayButton.setCurrentImage(state.moonAnimating ? 1 : 0);
+        mSpeedButton.setCurrentImage(getSpeedImageIndex(state.moonSpeed));
+
         // Draw direction button
         mDirectionButton.draw(mPVMatrix, mModelMatrix);
 
@@ -217,13 +481,32 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
         // Draw speed button
         mSpeedButton.draw(mPVMatrix, mModelMatrix);
 
+        if (showOverdraw) {
+            mOverdrawMeter.end();
+        }
+
         mSPFBuffer.setLength(0);
-        mSPFBuffer.append(mSPFFormat.format(deltaTime));
+        mSPFFormat.append(mSPFBuffer, deltaTime, 0, 4);   // Same output as DecimalFormat("0.####")
         mSPFBuffer.append(" s/f");
+        if (showOverdraw) {
+            mSPFBuffer.append(' ');
+            mSPFFormat.append(mSPFBuffer, mOverdrawMeter.getAverageOverdraw(), 2, 2);
+            mSPFBuffer.append('x');
+        }
+        if (mDynamicResolution && !showOverdraw) {
+            mSPFBuffer.append(' ');
+            mSPFFormat.append(mSPFBuffer, Math.round(mWorldScaler.getScale() * 100), 0);
+            mSPFBuffer.append('%');
+        }
+        if (Constants.PARTICLE_STRESS) {
+            mSPFBuffer.append(' ');
+            mSPFFormat.append(mSPFBuffer, mDust.getAliveCount(), 0);
+            mSPFBuffer.append('p');
+        }
 
-        mGLText.begin(1.0f, 1.0f, 1.0f, 1.0f, mTextPVMatrix);
-        mGLText.draw(mSPFBuffer.toString(), -mWidth / 2 + 2, mHeight / 2 - mGLText.getCharHeight());
-        mGLText.end();
+        // Only the changed digits are uploaded, the " s/f" suffix stays on the GPU
+        mSPFLabel.setText(mSPFBuffer);
+        mSPFLabel.draw(mTextPVMatrix, -mWidth / 2 + 2, mHeight / 2 - mGLText.getCharHeight());
     }
 
     // Private methods -----------------------------------------------------------------------------
@@ -232,8 +515,8 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
      * Change moon direction.
      */
     private void changeDirection() {
-        if (mMoonImage != null) {
-            mMoonImage.changeDirection();
+        if (mSimulation != null) {
+            mSimulation.post(SimulationThread.CMD_CHANGE_DIRECTION);
         }
     }
 
@@ -241,13 +524,8 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
      * Play/pause moon animation.
      */
     private void togglePlay() {
-        if (mMoonImage != null) {
-            mMoonImage.setAnimationOn(!mMoonImage.isAnimating());
-            if (mMoonImage.isAnimating()) {
-                mPlayButton.setCurrentImage(1);
-            } else {
-                mPlayButton.setCurrentImage(0);
-            }
+        if (mSimulation != null) {
+            mSimulation.post(SimulationThread.CMD_TOGGLE_PLAY);
         }
     }
 
@@ -255,33 +533,68 @@ public class DemoRenderer implements GLSurfaceView.Renderer {
      * Change moon speed.
      */
     private void changeSpeed() {
-        if (mMoonImage != null) {
-            mMoonImage.changeSpeed();
-
-            if (mMoonImage.getSpeed() == MoonImage.MIN_SPEED) {
-                mSpeedButton.setCurrentImage(0);
-            } else if (mMoonImage.getSpeed() == 2 * MoonImage.MIN_SPEED) {
-                mSpeedButton.setCurrentImage(1);
-            } else {
-                mSpeedButton.setCurrentImage(2);
+        if (mSimulation != null) {
+            mSimulation.post(SimulationThread.CMD_CHANGE_SPEED);
+        }
+    }
+
+    /**
+     * Creates the orbits stepped by the simulation thread: the moon (body 0) and the
+     * asteroid belt.
+     *
+     * @return the orbital simulation
+     */
+    private static OrbitalSimulation createOrbits() {
+        OrbitalSimulation orbits = new OrbitalSimulation(ASTEROID_COUNT + 1, EARTH_MASS);
+        orbits.addOrbitingBody(MOON_ORBIT_RADIUS, MOON_ORBIT_ANGLE, MOON_MASS);
+
+        Random random = new Random(ASTEROID_SEED);
+        for (int i = 0; i < ASTEROID_COUNT; i++) {
+            float radius = ASTEROID_MIN_RADIUS
+                    + random.nextFloat() * (ASTEROID_MAX_RADIUS - ASTEROID_MIN_RADIUS);
+            float angle = (float) (random.nextFloat() * 2 * Math.PI);
+            orbits.addOrbitingBody(radius, angle, ASTEROID_MASS);
+        }
+        return orbits;
+    }
+
+    /**
+     * Emits the dust particles due for this frame at the moon position.
+     *
+     * @param x the moon x position
+     * @param y the moon y position
+     * @param deltaTime seconds since the last frame
+     */
+    private void emitDust(float x, float y, float deltaTime) {
+        final float rate = Constants.PARTICLE_STRESS ? DUST_STRESS_RATE : DUST_RATE;
+        final float speed = Constants.PARTICLE_STRESS ? DUST_STRESS_SPEED : DUST_SPEED;
+        mDustCarry += rate * deltaTime;
+        int count = (int) mDustCarry;
+        mDustCarry -= count;
+
+        final Random random = mDustRandom;
+        for (int i = 0; i < count; i++) {
+            float vx = (random.nextFloat() * 2 - 1) * speed;
+            float vy = (random.nextFloat() * 2 - 1) * speed;
+            float life = DUST_LIFE * (0.75f + random.nextFloat() * 0.5f);
+            if (!mDust.emit(x, y, vx, vy, life, DUST_SIZE, DUST_COLOR)) {
+                break;
             }
         }
     }
 
     /**
-     * Returns the current scale value.
+     * Returns the speed button image for a moon speed.
      *
-     * @param timeDeltaSeconds the time interval
-     * @return the scale value
+     * @param speed the moon speed
+     * @return the image index
      */
-    private float getButtonAnimationScaleValue(float timeDeltaSeconds) {
-        float min = 1.0f - 0.04f;
-        float max = 1.0f + 0.04f;
-        float period = 0.5f;
-        float phase = 0.0f;
-
-        float amplitude = max - min;
-        return (float)(min + amplitude *
-                Math.sin(((timeDeltaSeconds / period) + phase) * 2 * Math.PI));
+    private int getSpeedImageIndex(float speed) {
+        if (speed == MoonImage.MIN_SPEED) {
+            return 0;
+        } else if (speed == 2 * MoonImage.MIN_SPEED) {
+            return 1;
+        }
+        return 2;
     }
 }
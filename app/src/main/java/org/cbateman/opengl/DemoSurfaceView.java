@@ -41,18 +41,24 @@ public class DemoSurfaceView extends GLSurfaceView {
     @SuppressLint("ClickableViewAccessibility")
     @Override
     public boolean onTouchEvent(MotionEvent e) {
-        final MotionEvent event = MotionEvent.obtain(e);
-
-        queueEvent(new Runnable() {
-            @Override
-            public void run() {
-                mRenderer.onTouchEvent(event);
-            }
-        });
+        // Copied into the renderer's ring; the renderer drains it once per frame
+        mRenderer.getTouchEvents().add(e);
 
         return true;
     }
 
+    @Override
+    public void onPause() {
+        super.onPause();
+        mRenderer.setPaused(true);
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        mRenderer.setPaused(false);
+    }
+
     public void cleanUp() {
         queueEvent(new Runnable() {
             @Override
@@ -66,8 +72,8 @@ public class DemoSurfaceView extends GLSurfaceView {
      * Initialize surface view.
      */
     private void init() {
-        // Create an OpenGL ES 2.0 context
-        setEGLContextClientVersion(2);
+        // Create an OpenGL ES 3.0 context where supported, otherwise 2.0
+        setEGLContextClientVersion(GLCapabilities.getClientVersion(getContext()));
 
         Log.i(TAG, "DemoSurfaceView initialized");
     }
@@ -21,7 +21,10 @@ public class DirectionButton extends Button {
         super();
 
         // Load direction texture.
-        mTexId = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.direction));
+        // Load the texture and trim the transparent corners of the quad
+        final SpriteMesh[] mesh = new SpriteMesh[1];
+        mTexId = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.direction), mesh);
+        mMesh = mesh[0];
 
         // Setup vertices data for direction image.
         final float[] verticesData = {
@@ -20,7 +20,10 @@ public class EarthImage extends Image {
     public EarthImage(Context context) {
         super();
 
-        mTexId = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.earth));
+        // Load the texture and trim the transparent corners of the quad
+        final SpriteMesh[] mesh = new SpriteMesh[1];
+        mTexId = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.earth), mesh);
+        mMesh = mesh[0];
 
         // Setup vertices data for earth.
         final float[] verticesData = {
@@ -0,0 +1,109 @@
+package org.cbateman.opengl;
+
+/**
+ * Easing curves sampled into lookup tables. Each curve maps t in [0, 1] to an eased value
+ * (0 at t = 0 and 1 at t = 1, overshooting for BACK and ELASTIC); ease() interpolates between
+ * the two nearest samples, so no trigonometry or powers are evaluated per call.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class Easing {
+
+    public static final int LINEAR = 0;
+    public static final int QUAD_IN = 1;
+    public static final int QUAD_OUT = 2;
+    public static final int QUAD_IN_OUT = 3;
+    public static final int CUBIC_IN = 4;
+    public static final int CUBIC_OUT = 5;
+    public static final int CUBIC_IN_OUT = 6;
+    public static final int SINE_IN = 7;
+    public static final int SINE_OUT = 8;
+    public static final int SINE_IN_OUT = 9;
+    public static final int BACK_OUT = 10;
+    public static final int ELASTIC_OUT = 11;
+    public static final int BOUNCE_OUT = 12;
+    public static final int CURVE_COUNT = 13;
+
+    // Samples per curve (plus one so t = 1 has its own sample)
+    private static final int SAMPLES = 256;
+    private static final float[] TABLE = new float[CURVE_COUNT * (SAMPLES + 1)];
+
+    static {
+        for (int curve = 0; curve < CURVE_COUNT; curve++) {
+            for (int i = 0; i <= SAMPLES; i++) {
+                TABLE[curve * (SAMPLES + 1) + i] = (float) evaluate(curve, (double) i / SAMPLES);
+            }
+        }
+    }
+
+    private Easing() {
+    }
+
+    /**
+     * Returns the eased value of t.
+     *
+     * @param curve one of the curve constants
+     * @param t the time fraction, clamped to [0, 1]
+     * @return the eased value
+     */
+    public static float ease(int curve, float t) {
+        if (t <= 0) {
+            return TABLE[curve * (SAMPLES + 1)];
+        }
+        if (t >= 1) {
+            return TABLE[curve * (SAMPLES + 1) + SAMPLES];
+        }
+        final float f = t * SAMPLES;
+        final int i = (int) f;
+        final int base = curve * (SAMPLES + 1) + i;
+        final float a = TABLE[base];
+        return a + (TABLE[base + 1] - a) * (f - i);
+    }
+
+    private static double evaluate(int curve, double t) {
+        switch (curve) {
+            case QUAD_IN:
+                return t * t;
+            case QUAD_OUT:
+                return t * (2 - t);
+            case QUAD_IN_OUT:
+                return t < 0.5 ? 2 * t * t : 1 - 2 * (1 - t) * (1 - t);
+            case CUBIC_IN:
+                return t * t * t;
+            case CUBIC_OUT:
+                return 1 - (1 - t) * (1 - t) * (1 - t);
+            case CUBIC_IN_OUT:
+                return t < 0.5 ? 4 * t * t * t : 1 - 4 * (1 - t) * (1 - t) * (1 - t);
+            case SINE_IN:
+                return 1 - Math.cos(t * Math.PI / 2);
+            case SINE_OUT:
+                return Math.sin(t * Math.PI / 2);
+            case SINE_IN_OUT:
+                return (1 - Math.cos(t * Math.PI)) / 2;
+            case BACK_OUT: {
+                final double s = 1.70158;
+                final double u = t - 1;
+                return 1 + u * u * ((s + 1) * u + s);
+            }
+            case ELASTIC_OUT:
+                if (t == 0 || t == 1) {
+                    return t;
+                }
+                return Math.pow(2, -10 * t) * Math.sin((t - 0.075) * (2 * Math.PI) / 0.3) + 1;
+            case BOUNCE_OUT:
+                if (t < 1 / 2.75) {
+                    return 7.5625 * t * t;
+                } else if (t < 2 / 2.75) {
+                    t -= 1.5 / 2.75;
+                    return 7.5625 * t * t + 0.75;
+                } else if (t < 2.5 / 2.75) {
+                    t -= 2.25 / 2.75;
+                    return 7.5625 * t * t + 0.9375;
+                }
+                t -= 2.625 / 2.75;
+                return 7.5625 * t * t + 0.984375;
+            case LINEAR:
+            default:
+                return t;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.cbateman.opengl;
+
+/**
+ * Plays the frames of a SpriteSheet at a fixed frame rate. The current frame is computed from
+ * the time since start() (ie. TimeHelper.getAccumulatedTime()) rather than accumulated frame
+ * deltas, so playback stays frame accurate however irregular the render loop is.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class FlipbookAnimation {
+
+    // Play modes
+    public static final int ONCE = 0;
+    public static final int LOOP = 1;
+    public static final int PING_PONG = 2;
+
+    private final SpriteSheet mSheet;
+    private final int[] mSequence;
+    private float mFramesPerSecond;
+    private int mMode;
+    private float mStartTime;
+
+    /**
+     * FlipbookAnimation constructor playing every frame of the sheet in order.
+     *
+     * @param sheet the sprite sheet
+     * @param framesPerSecond playback rate
+     * @param mode ONCE, LOOP or PING_PONG
+     */
+    public FlipbookAnimation(SpriteSheet sheet, float framesPerSecond, int mode) {
+        this(sheet, null, framesPerSecond, mode);
+    }
+
+    /**
+     * FlipbookAnimation constructor playing a list of frames.
+     *
+     * @param sheet the sprite sheet
+     * @param sequence frame indices to play, or null for every frame in order
+     * @param framesPerSecond playback rate
+     * @param mode ONCE, LOOP or PING_PONG
+     */
+    public FlipbookAnimation(SpriteSheet sheet, int[] sequence, float framesPerSecond, int mode) {
+        mSheet = sheet;
+        if (sequence == null) {
+            sequence = new int[sheet.getFrameCount()];
+            for (int i = 0; i < sequence.length; i++) {
+                sequence[i] = i;
+            }
+        }
+        mSequence = sequence;
+        mFramesPerSecond = framesPerSecond;
+        mMode = mode;
+    }
+
+    /**
+     * (Re)starts the animation.
+     *
+     * @param time the current time in seconds
+     */
+    public void start(float time) {
+        mStartTime = time;
+    }
+
+    public void setFramesPerSecond(float framesPerSecond) {
+        mFramesPerSecond = framesPerSecond;
+    }
+
+    public void setMode(int mode) {
+        mMode = mode;
+    }
+
+    /**
+     * Returns the position in the sequence at a time.
+     *
+     * @param time the current time in seconds
+     * @return index into the sequence
+     */
+    public int getSequenceIndex(float time) {
+        final int count = mSequence.length;
+        final int frame = Math.max(0, (int) Math.floor((time - mStartTime) * mFramesPerSecond));
+        switch (mMode) {
+            case LOOP:
+                return frame % count;
+            case PING_PONG: {
+                if (count == 1) {
+                    return 0;
+                }
+                // 0 1 2 3 2 1 0 1 ...
+                final int period = 2 * count - 2;
+                final int f = frame % period;
+                return f < count ? f : period - f;
+            }
+            case ONCE:
+            default:
+                return Math.min(frame, count - 1);
+        }
+    }
+
+    /**
+     * Returns the frame to draw at a time.
+     *
+     * @param time the current time in seconds
+     * @return the frame
+     */
+    public AtlasRegion getFrame(float time) {
+        return mSheet.getFrame(mSequence[getSequenceIndex(time)]);
+    }
+
+    /**
+     * Returns true once an animation played ONCE has shown its last frame for a full frame.
+     *
+     * @param time the current time in seconds
+     * @return true if finished
+     */
+    public boolean isFinished(float time) {
+        return mMode == ONCE && (time - mStartTime) * mFramesPerSecond >= mSequence.length;
+    }
+}
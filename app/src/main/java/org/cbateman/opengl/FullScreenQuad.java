@@ -0,0 +1,103 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * A triangle strip covering the viewport, for drawing render targets and full-screen
+ * effects. Each vertex is a position in normalized device coordinates and a texture
+ * coordinate (the texture origin is bottom left, as in a render target).
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class FullScreenQuad {
+
+    private static final int BYTES_PER_FLOAT = 4;
+    // x, y, u, v
+    private static final int STRIDE = 4 * BYTES_PER_FLOAT;
+
+    private final int[] vbo = new int[1];
+
+    /**
+     * FullScreenQuad constructor. Must be called on the GL thread.
+     */
+    public FullScreenQuad() {
+        final float[] verticesData = {
+            -1.0f, -1.0f, 0.0f, 0.0f,
+            1.0f, -1.0f, 1.0f, 0.0f,
+            -1.0f, 1.0f, 0.0f, 1.0f,
+            1.0f, 1.0f, 1.0f, 1.0f
+        };
+        FloatBuffer vertices = ByteBuffer.allocateDirect(verticesData.length * BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        vertices.put(verticesData).position(0);
+
+        GLES20.glGenBuffers(1, vbo, 0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, verticesData.length * BYTES_PER_FLOAT,
+                vertices, GLES20.GL_STATIC_DRAW);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Draws the quad once with the current program.
+     *
+     * @param positionLocation location of the position attribute
+     * @param texCoordLocation location of the texture coordinate attribute, or -1 if the
+     *                         program has none
+     */
+    public void draw(int positionLocation, int texCoordLocation) {
+        begin(positionLocation, texCoordLocation);
+        draw();
+        end(positionLocation, texCoordLocation);
+    }
+
+    /**
+     * Sets up the attributes of the current program, for drawing the quad several times
+     * (ie. with different uniforms) with draw().
+     *
+     * @param positionLocation location of the position attribute
+     * @param texCoordLocation location of the texture coordinate attribute, or -1 if the
+     *                         program has none
+     */
+    public void begin(int positionLocation, int texCoordLocation) {
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, STRIDE, 0);
+        GLES20.glEnableVertexAttribArray(positionLocation);
+        if (texCoordLocation >= 0) {
+            GLES20.glVertexAttribPointer(texCoordLocation, 2, GLES20.GL_FLOAT, false, STRIDE,
+                    2 * BYTES_PER_FLOAT);
+            GLES20.glEnableVertexAttribArray(texCoordLocation);
+        }
+    }
+
+    /**
+     * Draws the quad. Call between begin() and end().
+     */
+    public void draw() {
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+    }
+
+    /**
+     * Disables the attributes set up by begin().
+     *
+     * @param positionLocation as passed to begin()
+     * @param texCoordLocation as passed to begin()
+     */
+    public void end(int positionLocation, int texCoordLocation) {
+        GLES20.glDisableVertexAttribArray(positionLocation);
+        if (texCoordLocation >= 0) {
+            GLES20.glDisableVertexAttribArray(texCoordLocation);
+        }
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void cleanup() {
+        if (vbo[0] > 0) {
+            GLES20.glDeleteBuffers(vbo.length, vbo, 0);
+            vbo[0] = 0;
+        }
+    }
+}
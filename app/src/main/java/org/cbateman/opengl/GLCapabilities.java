@@ -0,0 +1,115 @@
+package org.cbateman.opengl;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.content.pm.ConfigurationInfo;
+import android.opengl.GLES20;
+import android.os.Build;
+import android.util.Log;
+
+import org.cbateman.opengl.text.gltext.Utilities;
+
+/**
+ * What the current OpenGL ES context supports. The client version is chosen before the
+ * context is created (see getClientVersion()); detect() then reads the version, renderer and
+ * extension strings of the context that was actually created. Classes with an ES 3.0 path
+ * check isES3() on the GL thread and fall back to ES 2.0 otherwise.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class GLCapabilities {
+
+    private static final String TAG = Constants.TAG;
+
+    private static final int GLES_VERSION_3 = 0x30000;
+
+    private static boolean sES3;
+    private static String sVersion = "";
+    private static String sRenderer = "";
+    private static String sExtensions = "";
+
+    private GLCapabilities() {}
+
+    /**
+     * Returns the client version to request for the EGL context: 3 if the device supports
+     * OpenGL ES 3.0 and the platform has the GLES30 bindings (API 18), otherwise 2.
+     *
+     * @param context the context
+     * @return 2 or 3
+     */
+    public static int getClientVersion(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return 2;
+        }
+        final ActivityManager am = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (am == null) {
+            return 2;
+        }
+        final ConfigurationInfo info = am.getDeviceConfigurationInfo();
+        return info != null && info.reqGlEsVersion >= GLES_VERSION_3 ? 3 : 2;
+    }
+
+    /**
+     * Reads the capabilities of the current context. Call on the GL thread from
+     * onSurfaceCreated, before creating any object that has an ES 3.0 path.
+     */
+    public static void detect() {
+        sVersion = nonNull(GLES20.glGetString(GLES20.GL_VERSION));
+        sRenderer = nonNull(GLES20.glGetString(GLES20.GL_RENDERER));
+        sExtensions = " " + nonNull(GLES20.glGetString(GLES20.GL_EXTENSIONS)) + " ";
+
+        // The text library reads the version itself; one check keeps the two paths in step
+        sES3 = Utilities.detectContext();
+
+        Log.i(TAG, "GL version: " + sVersion + ", renderer: " + sRenderer
+                + (sES3 ? " (ES 3.0 path)" : " (ES 2.0 path)"));
+        if (!sES3 && hasExtension("GL_OES_vertex_array_object")) {
+            Log.i(TAG, "GL_OES_vertex_array_object present but not bound, attributes set per draw");
+        }
+    }
+
+    /**
+     * @return true if the current context is OpenGL ES 3.0 or later
+     */
+    public static boolean isES3() {
+        return sES3;
+    }
+
+    /**
+     * Vertex array objects are core in ES 3.0. On ES 2.0 contexts GL_OES_vertex_array_object
+     * may be present, but android.opengl has no bindings for its entry points, so it is only
+     * reported (see hasExtension()) and not used.
+     *
+     * @return true if vertex array objects can be used through GLES30
+     */
+    public static boolean hasVertexArrays() {
+        return sES3;
+    }
+
+    /**
+     * @param name the extension name (ie. "GL_OES_vertex_array_object")
+     * @return true if the current context has the extension
+     */
+    public static boolean hasExtension(String name) {
+        return sExtensions.contains(" " + name + " ");
+    }
+
+    /**
+     * @return the GL_VERSION string of the current context
+     */
+    public static String getVersion() {
+        return sVersion;
+    }
+
+    /**
+     * @return the GL_RENDERER string of the current context
+     */
+    public static String getRenderer() {
+        return sRenderer;
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private static String nonNull(String s) {
+        return s != null ? s : "";
+    }
+}
@@ -7,6 +7,8 @@ import android.opengl.GLES20;
 import android.opengl.GLUtils;
 import android.util.Log;
 
+import org.cbateman.opengl.text.gltext.ProgramCache;
+
 import java.io.InputStream;
 
 /**
@@ -39,10 +41,26 @@ public class GraphicUtils {
      * @return texture id
      */
     public static int loadTexture(InputStream is) {
+        return loadTexture(is, null);
+    }
+
+    /**
+     * Load texture from stream and build the alpha-trimmed mesh of the image.
+     *
+     * @param is object streaming texture
+     * @param mesh if not null, mesh[0] receives the mesh of the image (null if the quad is
+     *             about as tight), see SpriteMesh
+     * @return texture id
+     */
+    public static int loadTexture(InputStream is, SpriteMesh[] mesh) {
         int[] textureId = new int[1];
         Bitmap bitmap;
         bitmap = BitmapFactory.decodeStream(is);
 
+        if (mesh != null) {
+            mesh[0] = SpriteMesh.fromBitmaps(bitmap);
+        }
+
         GLES20.glGenTextures(1, textureId, 0);
         GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId[0]);
 
@@ -61,7 +79,8 @@ public class GraphicUtils {
 
     /**
      * Loads vertex and fragment shaders, creates program object, links program, returns
-     * program id.
+     * program id. If ProgramCache has a binary for the sources it is used instead, and
+     * programs linked from source are added to the cache.
      *
      * @param vShaderCode vertex shader code as string
      * @param fShaderCode fragment shader as string
@@ -73,6 +92,11 @@ public class GraphicUtils {
         int fragmentShader;
         int[] params = new int[1];
 
+        program = ProgramCache.load(vShaderCode, fShaderCode, null);
+        if (program != 0) {
+            return program;
+        }
+
         vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vShaderCode);
         if (vertexShader == 0)
             return 0;
@@ -92,6 +116,7 @@ public class GraphicUtils {
         GLES20.glAttachShader(program, vertexShader);
         GLES20.glAttachShader(program, fragmentShader);
 
+        ProgramCache.prepare(program);
         GLES20.glLinkProgram(program);
 
         GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, params, 0);
@@ -106,6 +131,7 @@ public class GraphicUtils {
         GLES20.glDeleteShader(vertexShader);
         GLES20.glDeleteShader(fragmentShader);
 
+        ProgramCache.save(program, vShaderCode, fShaderCode, null);
         return program;
     }
 
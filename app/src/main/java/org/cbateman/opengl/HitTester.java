@@ -0,0 +1,290 @@
+package org.cbateman.opengl;
+
+import android.graphics.RectF;
+import android.opengl.Matrix;
+
+import java.util.Arrays;
+
+/**
+ * Finds what was touched. The inverse of the view projection matrix is computed once per
+ * surface change, each touch is unprojected once, and the point is then looked up in a
+ * uniform grid over the bounds of all registered items, so the cost of a touch does not grow
+ * with the number of items. When items overlap, the one drawn last (highest order) wins.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class HitTester {
+
+    /** Returned by hitTest() when nothing was hit. */
+    public static final int NO_HIT = -1;
+
+    // Aim for about this many items per grid cell
+    private static final int ITEMS_PER_CELL = 4;
+    private static final int MAX_CELLS_PER_AXIS = 64;
+
+    private final float[] mInverse = new float[16];
+    private final float[] mIn = new float[4];
+    private final float[] mOut = new float[4];
+    private final float[] mPoint = new float[2];
+    private float mWidth = 1, mHeight = 1;
+
+    // Items, indexed by handle
+    private int mCount;
+    private float[] mMinX = new float[8];
+    private float[] mMinY = new float[8];
+    private float[] mMaxX = new float[8];
+    private float[] mMaxY = new float[8];
+    private int[] mOrder = new int[8];
+    private int[] mId = new int[8];
+
+    // Grid: items of cell c are mCellItems[mCellStart[c] .. mCellStart[c + 1])
+    private boolean mDirty;
+    private int mCellsX, mCellsY;
+    private float mGridMinX, mGridMinY;
+    private float mCellW, mCellH;
+    private int[] mCellStart = new int[2];
+    private int[] mCellItems = new int[0];
+
+    /**
+     * Sets the viewport and the matrix items are drawn with. Call from onSurfaceChanged.
+     *
+     * @param width viewport width in pixels
+     * @param height viewport height in pixels
+     * @param vpMatrix the view projection matrix
+     */
+    public void setViewport(int width, int height, float[] vpMatrix) {
+        mWidth = width;
+        mHeight = height;
+        if (!Matrix.invertM(mInverse, 0, vpMatrix, 0)) {
+            Matrix.setIdentityM(mInverse, 0);
+        }
+    }
+
+    /**
+     * Converts a touch position to world coordinates.
+     *
+     * @param x x in pixels from the left of the view
+     * @param y y in pixels from the top of the view
+     * @param out receives the world x and y
+     */
+    public void unproject(float x, float y, float[] out) {
+        mIn[0] = 2.0f * x / mWidth - 1.0f;
+        mIn[1] = 1.0f - 2.0f * y / mHeight;
+        mIn[2] = 1.0f;
+        mIn[3] = 1.0f;
+        Matrix.multiplyMV(mOut, 0, mInverse, 0, mIn, 0);
+        out[0] = mOut[0] / mOut[3];
+        out[1] = mOut[1] / mOut[3];
+    }
+
+    /**
+     * Registers an item.
+     *
+     * @param bounds bounds in world coordinates (copied)
+     * @param order draw order; higher is drawn later (on top)
+     * @param id returned by hitTest() when the item is hit
+     * @return a handle for setBounds()
+     */
+    public int add(RectF bounds, int order, int id) {
+        return add(bounds.left, bounds.top, bounds.right, bounds.bottom, order, id);
+    }
+
+    /**
+     * Registers an item.
+     *
+     * @param left left edge in world coordinates
+     * @param top top edge in world coordinates
+     * @param right right edge in world coordinates
+     * @param bottom bottom edge in world coordinates
+     * @param order draw order; higher is drawn later (on top)
+     * @param id returned by hitTest() when the item is hit
+     * @return a handle for setBounds()
+     */
+    public int add(float left, float top, float right, float bottom, int order, int id) {
+        if (mCount == mId.length) {
+            final int size = mCount * 2;
+            mMinX = grow(mMinX, size);
+            mMinY = grow(mMinY, size);
+            mMaxX = grow(mMaxX, size);
+            mMaxY = grow(mMaxY, size);
+            mOrder = grow(mOrder, size);
+            mId = grow(mId, size);
+        }
+        final int handle = mCount++;
+        mOrder[handle] = order;
+        mId[handle] = id;
+        setBounds(handle, left, top, right, bottom);
+        return handle;
+    }
+
+    /**
+     * Moves an item.
+     *
+     * @param handle the handle returned by add()
+     * @param bounds new bounds in world coordinates
+     */
+    public void setBounds(int handle, RectF bounds) {
+        setBounds(handle, bounds.left, bounds.top, bounds.right, bounds.bottom);
+    }
+
+    /**
+     * Moves an item.
+     *
+     * @param handle the handle returned by add()
+     * @param left left edge in world coordinates
+     * @param top top edge in world coordinates
+     * @param right right edge in world coordinates
+     * @param bottom bottom edge in world coordinates
+     */
+    public void setBounds(int handle, float left, float top, float right, float bottom) {
+        // bounds may have top above or below bottom
+        mMinX[handle] = Math.min(left, right);
+        mMaxX[handle] = Math.max(left, right);
+        mMinY[handle] = Math.min(top, bottom);
+        mMaxY[handle] = Math.max(top, bottom);
+        mDirty = true;
+    }
+
+    /**
+     * Removes all items.
+     */
+    public void clear() {
+        mCount = 0;
+        mDirty = true;
+    }
+
+    /**
+     * Returns the id of the topmost item under a touch.
+     *
+     * @param x x in pixels from the left of the view
+     * @param y y in pixels from the top of the view
+     * @return the item id, or NO_HIT
+     */
+    public int hitTest(float x, float y) {
+        unproject(x, y, mPoint);
+        return hitTestWorld(mPoint[0], mPoint[1]);
+    }
+
+    /**
+     * Returns the id of the topmost item containing a point.
+     *
+     * @param x world x
+     * @param y world y
+     * @return the item id, or NO_HIT
+     */
+    public int hitTestWorld(float x, float y) {
+        if (mDirty) {
+            rebuild();
+        }
+        if (mCount == 0) {
+            return NO_HIT;
+        }
+        final int cx = (int) Math.floor((x - mGridMinX) / mCellW);
+        final int cy = (int) Math.floor((y - mGridMinY) / mCellH);
+        if (cx < 0 || cy < 0 || cx >= mCellsX || cy >= mCellsY) {
+            return NO_HIT;
+        }
+
+        final int cell = cy * mCellsX + cx;
+        int best = -1;
+        for (int i = mCellStart[cell], end = mCellStart[cell + 1]; i < end; i++) {
+            final int item = mCellItems[i];
+            if (x >= mMinX[item] && x <= mMaxX[item] && y >= mMinY[item] && y <= mMaxY[item]
+                    && (best < 0 || mOrder[item] >= mOrder[best])) {
+                best = item;
+            }
+        }
+        return best < 0 ? NO_HIT : mId[best];
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Rebuilds the grid over the current items. Items are listed in ascending handle order in
+     * each cell, so between items of equal order the one added last wins.
+     */
+    private void rebuild() {
+        mDirty = false;
+        if (mCount == 0) {
+            mCellsX = mCellsY = 0;
+            return;
+        }
+
+        float minX = mMinX[0], minY = mMinY[0], maxX = mMaxX[0], maxY = mMaxY[0];
+        for (int i = 1; i < mCount; i++) {
+            minX = Math.min(minX, mMinX[i]);
+            minY = Math.min(minY, mMinY[i]);
+            maxX = Math.max(maxX, mMaxX[i]);
+            maxY = Math.max(maxY, mMaxY[i]);
+        }
+
+        final int perAxis = (int) Math.ceil(Math.sqrt((double) mCount / ITEMS_PER_CELL));
+        mCellsX = mCellsY = Math.max(1, Math.min(perAxis, MAX_CELLS_PER_AXIS));
+        mGridMinX = minX;
+        mGridMinY = minY;
+        // a little wider than the items so points on the max edge fall in the last cell
+        mCellW = Math.max((maxX - minX) * 1.0001f, 1e-6f) / mCellsX;
+        mCellH = Math.max((maxY - minY) * 1.0001f, 1e-6f) / mCellsY;
+
+        // count the items of each cell, then fill them in (compressed rows)
+        final int cells = mCellsX * mCellsY;
+        if (mCellStart.length < cells + 1) {
+            mCellStart = new int[cells + 1];
+        }
+        Arrays.fill(mCellStart, 0, cells + 1, 0);
+        int total = 0;
+        for (int i = 0; i < mCount; i++) {
+            total += forEachCell(i, null);
+        }
+        if (mCellItems.length < total) {
+            mCellItems = new int[total];
+        }
+        // prefix sums give the end of each cell; filling backwards moves them to the start
+        for (int c = 1; c < cells; c++) {
+            mCellStart[c] += mCellStart[c - 1];
+        }
+        mCellStart[cells] = total;
+        for (int i = mCount - 1; i >= 0; i--) {
+            forEachCell(i, mCellItems);
+        }
+    }
+
+    /**
+     * Visits the cells an item overlaps. With items null the item is counted in mCellStart,
+     * otherwise it is stored in items just before the current end of each cell.
+     *
+     * @return the number of cells visited
+     */
+    private int forEachCell(int item, int[] items) {
+        final int x0 = clampCell((mMinX[item] - mGridMinX) / mCellW, mCellsX);
+        final int x1 = clampCell((mMaxX[item] - mGridMinX) / mCellW, mCellsX);
+        final int y0 = clampCell((mMinY[item] - mGridMinY) / mCellH, mCellsY);
+        final int y1 = clampCell((mMaxY[item] - mGridMinY) / mCellH, mCellsY);
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                final int c = y * mCellsX + x;
+                if (items == null) {
+                    mCellStart[c]++;
+                } else {
+                    items[--mCellStart[c]] = item;
+                }
+            }
+        }
+        return (x1 - x0 + 1) * (y1 - y0 + 1);
+    }
+
+    private static int clampCell(float f, int cells) {
+        return Math.max(0, Math.min((int) f, cells - 1));
+    }
+
+    private static float[] grow(float[] a, int size) {
+        float[] b = new float[size];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+
+    private static int[] grow(int[] a, int size) {
+        int[] b = new int[size];
+        System.arraycopy(a, 0, b, 0, a.length);
+        return b;
+    }
+}
@@ -24,12 +24,25 @@ public abstract class Image {
     protected int mTexCoordLocation;
     protected int mSamplerLocation;
     protected int mMVPMatrixLocation;
+    protected int mTexRegionLocation;
     protected FloatBuffer mVertices;
     protected ShortBuffer mIndices;
+    // Alpha-trimmed mesh replacing the quad; set before setupData(), null to draw the quad
+    protected SpriteMesh mMesh;
+
+    // Part of the texture drawn: u, v offset and u, v scale of the quad's texture coordinates
+    private final float[] mTexRegion = { 0.0f, 0.0f, 1.0f, 1.0f };
 
     final int[] vbo = new int[1];
     final int[] ibo = new int[1];
 
+    // Indices drawn without blending (the opaque interior of the mesh), then with blending
+    private int mOpaqueCount;
+    private int mBlendedCount = 6;
+
+    // Attribute layout of vbo/ibo with mProgram, recorded on the first draw
+    private VertexArray mVertexArray;
+
     public Image() {
     }
 
@@ -39,12 +52,13 @@ public abstract class Image {
     protected void setupData() {
         final String vertexShaderCode =
             "uniform mat4 uMVPMatrix;" +
+            "uniform vec4 uTexRegion;" +
             "attribute vec4 aPosition;" +
             "attribute vec2 aTexCoord;" +
             "varying vec2 vTexCoord;" +
             "void main() {" +
             "    gl_Position = uMVPMatrix * aPosition;" +
-            "    vTexCoord = aTexCoord;" +
+            "    vTexCoord = uTexRegion.xy + aTexCoord * uTexRegion.zw;" +
             "}";
 
         final String fragmentShaderCode =
@@ -62,16 +76,22 @@ public abstract class Image {
         mTexCoordLocation = GLES20.glGetAttribLocation(mProgram, "aTexCoord");
         mSamplerLocation = GLES20.glGetUniformLocation(mProgram, "sTexture");
         mMVPMatrixLocation = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
-
-        final short[] indicesData = {
-                0, 1, 2, 0, 2, 3
-        };
-        mIndices = ByteBuffer.allocateDirect(indicesData.length * 2)
-                .order(ByteOrder.nativeOrder()).asShortBuffer();
-        mIndices.put(indicesData).position(0);
+        mTexRegionLocation = GLES20.glGetUniformLocation(mProgram, "uTexRegion");
+
+        if (mMesh != null) {
+            setupMesh();
+        } else {
+            final short[] indicesData = {
+                    0, 1, 2, 0, 2, 3
+            };
+            mIndices = ByteBuffer.allocateDirect(indicesData.length * 2)
+                    .order(ByteOrder.nativeOrder()).asShortBuffer();
+            mIndices.put(indicesData).position(0);
+        }
 
         GLES20.glGenBuffers(1, vbo, 0);
         GLES20.glGenBuffers(1, ibo, 0);
+        mVertexArray = new VertexArray();
 
         if (vbo[0] > 0 && ibo[0] > 0) {
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
@@ -97,13 +117,18 @@ public abstract class Image {
         if (vbo[0] > 0 && ibo[0] > 0) {
             GLES20.glUseProgram(mProgram);
 
-            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+            // Specify the attributes only if the vertex array has not recorded them
+            if (mVertexArray.bind()) {
+                GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+
+                GLES20.glVertexAttribPointer(mPositionLocation, 3, GLES20.GL_FLOAT, false, 5 * 4, 0);
+                GLES20.glEnableVertexAttribArray(mPositionLocation);
 
-            GLES20.glVertexAttribPointer(mPositionLocation, 3, GLES20.GL_FLOAT, false, 5 * 4, 0);
-            GLES20.glEnableVertexAttribArray(mPositionLocation);
+                GLES20.glVertexAttribPointer(mTexCoordLocation, 2, GLES20.GL_FLOAT, false, 5 * 4, 12);
+                GLES20.glEnableVertexAttribArray(mTexCoordLocation);
 
-            GLES20.glVertexAttribPointer(mTexCoordLocation, 2, GLES20.GL_FLOAT, false, 5 * 4, 12);
-            GLES20.glEnableVertexAttribArray(mTexCoordLocation);
+                GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+            }
 
             // Bind the texture
             GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
@@ -115,16 +140,43 @@ public abstract class Image {
             // Apply the projection and view transformation
             GLES20.glUniformMatrix4fv(mMVPMatrixLocation, 1, false, mvpMatrix, 0);
 
-            // Draw
-            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
-            GLES20.glDrawElements(GLES20.GL_TRIANGLES, 6, GLES20.GL_UNSIGNED_SHORT, 0);
+            // Select the part of the texture to draw
+            GLES20.glUniform4fv(mTexRegionLocation, 1, mTexRegion, 0);
 
+            // Draw the opaque interior without blending, then the edges with blending
+            if (mOpaqueCount > 0) {
+                GLES20.glDisable(GLES20.GL_BLEND);
+                GLES20.glDrawElements(GLES20.GL_TRIANGLES, mOpaqueCount, GLES20.GL_UNSIGNED_SHORT, 0);
+                GLES20.glEnable(GLES20.GL_BLEND);
+            }
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, mBlendedCount, GLES20.GL_UNSIGNED_SHORT,
+                    mOpaqueCount * BYTES_PER_SHORT);
+
+            mVertexArray.unbind();
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
             GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
         }
     }
 
+    /**
+     * Draws a region of a texture (ie. a frame of a SpriteSheet) instead of the whole
+     * texture. The quad's texture coordinates are mapped into the region.
+     *
+     * @param region the region to draw
+     */
+    public void setTextureRegion(AtlasRegion region) {
+        mTexId = region.textureId;
+        mTexRegion[0] = region.u1;
+        mTexRegion[1] = region.v1;
+        mTexRegion[2] = region.u2 - region.u1;
+        mTexRegion[3] = region.v2 - region.v1;
+    }
+
     public void cleanup() {
+        if (mVertexArray != null) {
+            mVertexArray.cleanup();
+        }
+
         if (vbo[0] > 0) {
             GLES20.glDeleteBuffers(vbo.length, vbo, 0);
             vbo[0] = 0;
@@ -135,4 +187,46 @@ public abstract class Image {
             ibo[0] = 0;
         }
     }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Replaces the quad in mVertices with the vertices of mMesh. The quad's corners (top left,
+     * bottom left, bottom right, top right, as set by subclasses) map the mesh's texture
+     * coordinates to positions.
+     */
+    private void setupMesh() {
+        final float[] quad = new float[20];
+        mVertices.position(0);
+        mVertices.get(quad).position(0);
+
+        final float[] hull = mMesh.getHull();
+        final float[] interior = mMesh.getInterior();
+        final float[] verticesData = new float[(hull.length + interior.length) / 2 * 5];
+        int k = 0;
+        for (float[] polygon : new float[][] { hull, interior }) {
+            for (int i = 0; i < polygon.length; i += 2) {
+                final float u = polygon[i];
+                final float v = polygon[i + 1];
+                for (int c = 0; c < 3; c++) {
+                    // top left + u * (top right - top left) + v * (bottom left - top left)
+                    verticesData[k++] = quad[c] + u * (quad[15 + c] - quad[c]) + v * (quad[5 + c] - quad[c]);
+                }
+                verticesData[k++] = u;
+                verticesData[k++] = v;
+            }
+        }
+        mVertices = ByteBuffer.allocateDirect(verticesData.length * BYTES_PER_FLOAT)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        mVertices.put(verticesData).position(0);
+
+        mOpaqueCount = mMesh.getOpaqueIndexCount();
+        mBlendedCount = mMesh.getBlendedIndexCount();
+        final short[] opaque = new short[mOpaqueCount];
+        final short[] blended = new short[mBlendedCount];
+        mMesh.triangulate(opaque, blended);
+        mIndices = ByteBuffer.allocateDirect((mOpaqueCount + mBlendedCount) * BYTES_PER_SHORT)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        mIndices.put(opaque).put(blended).position(0);
+    }
 }
@@ -1,13 +1,21 @@
 package org.cbateman.opengl;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.util.Log;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 
 /**
- * Renders the moon image.
+ * Renders the moon image, spinning. The spin is a flipbook of frames rotated from the moon
+ * image when it is loaded, so drawing a frame only changes texture coordinates.
  */
 @SuppressWarnings("WeakerAccess")
 public class MoonImage extends Image {
@@ -17,6 +25,12 @@ public class MoonImage extends Image {
     private static final float MAX_X = 0.4f;
     private static final float MIN_X = -0.4f;
 
+    // One turn in SPIN_FRAMES frames, played at SPIN_FRAMES_PER_SECOND
+    private static final int SPIN_FRAMES = 32;
+    private static final float SPIN_FRAMES_PER_SECOND = 4.0f;
+
+    private final FlipbookAnimation mSpin;
+
     private float x = 0.4f;
     private float y = -0.4f;
     private int directionX = 1;
@@ -35,7 +49,12 @@ public class MoonImage extends Image {
         super();
 
         // Load moon texture.
-        mTexId = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.moon));
+        // Rotate the moon into the frames of one sheet; the mesh trims the transparent
+        // corners shared by all frames
+        final SpriteSheet sheet = SpriteSheet.fromBitmaps(createSpinFrames(context));
+        mSpin = new FlipbookAnimation(sheet, SPIN_FRAMES_PER_SECOND, FlipbookAnimation.LOOP);
+        setTextureRegion(sheet.getFrame(0));
+        mMesh = sheet.getMesh();
 
         // Setup vertices data for moon image.
         final float[] verticesData = {
@@ -79,6 +98,15 @@ public class MoonImage extends Image {
         }
     }
 
+    /**
+     * Selects the spin frame to draw. GL thread only.
+     *
+     * @param time seconds the moon has spun for
+     */
+    public void setSpinTime(float time) {
+        setTextureRegion(mSpin.getFrame(time));
+    }
+
     /**
      * Returns the desired z order.
      *
@@ -156,4 +184,39 @@ public class MoonImage extends Image {
     public void setAnimationOn(boolean setOn) {
         isAnimating = setOn;
     }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Decodes the moon and rotates it into SPIN_FRAMES frames of one turn.
+     */
+    private static Bitmap[] createSpinFrames(Context context) {
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        final Bitmap moon;
+        final InputStream is = context.getResources().openRawResource(R.raw.moon);
+        try {
+            moon = BitmapFactory.decodeStream(is, null, options);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        final int width = moon.getWidth();
+        final int height = moon.getHeight();
+        final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        final Bitmap[] frames = new Bitmap[SPIN_FRAMES];
+        for (int i = 0; i < SPIN_FRAMES; i++) {
+            frames[i] = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(frames[i]);
+            // counter clockwise, like the orbit
+            canvas.rotate(-360.0f * i / SPIN_FRAMES, width * 0.5f, height * 0.5f);
+            canvas.drawBitmap(moon, 0, 0, paint);
+        }
+        moon.recycle();
+        return frames;
+    }
 }
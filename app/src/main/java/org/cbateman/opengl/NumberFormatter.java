@@ -0,0 +1,161 @@
+package org.cbateman.opengl;
+
+/**
+ * Formats numbers into a reusable char buffer or StringBuilder without allocating, for
+ * values that change every frame (frame times, counters). Float formatting follows
+ * DecimalFormat patterns such as "0.####" or "0.00": at least one integer digit, between
+ * minFraction and maxFraction fraction digits (trailing zeros removed) and HALF_EVEN
+ * rounding. Not thread safe; use one instance per thread.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class NumberFormatter {
+
+    /** Largest supported number of fraction digits. */
+    public static final int MAX_FRACTION_DIGITS = 9;
+
+    private static final int MAX_CHARS = 32;
+    private static final long[] POW10 = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+    // Beyond this scaled values no longer fit in a long
+    private static final double MAX_SCALED = 1e18;
+
+    private final char[] mBuffer = new char[MAX_CHARS];
+    private int mLength;
+
+    /**
+     * Formats a long, left padded with zeros to at least minDigits digits.
+     *
+     * @param value the value
+     * @param minDigits minimum number of digits
+     * @return number of chars written to getBuffer()
+     */
+    public int format(long value, int minDigits) {
+        mLength = 0;
+        if (value < 0) {
+            mBuffer[mLength++] = '-';
+        }
+        writeDigits(value, minDigits);
+        return mLength;
+    }
+
+    /**
+     * Formats a float with DecimalFormat style fraction digits. Values too large to scale
+     * into a long are written with Float.toString (which allocates).
+     *
+     * @param value the value
+     * @param minFraction minimum number of fraction digits (ie. 0 for "0.####")
+     * @param maxFraction maximum number of fraction digits (ie. 4 for "0.####")
+     * @return number of chars written to getBuffer()
+     */
+    public int format(float value, int minFraction, int maxFraction) {
+        mLength = 0;
+        if (Float.isNaN(value)) {
+            return put("NaN");
+        }
+        boolean negative = value < 0 || (value == 0 && 1 / value < 0);
+        if (Float.isInfinite(value)) {
+            return put(negative ? "-\u221E" : "\u221E");
+        }
+
+        maxFraction = Math.min(Math.max(maxFraction, 0), MAX_FRACTION_DIGITS);
+        minFraction = Math.min(Math.max(minFraction, 0), maxFraction);
+
+        double scaled = Math.rint(Math.abs((double) value) * POW10[maxFraction]);
+        if (scaled >= MAX_SCALED) {
+            return put(Float.toString(value));
+        }
+
+        long units = (long) scaled;
+        long intPart = units / POW10[maxFraction];
+        long fraction = units % POW10[maxFraction];
+
+        // drop trailing zeros down to the minimum number of fraction digits
+        int digits = maxFraction;
+        while (digits > minFraction && fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+
+        if (negative) {
+            mBuffer[mLength++] = '-';
+        }
+        writeDigits(intPart, 1);
+        if (digits > 0) {
+            mBuffer[mLength++] = '.';
+            writeDigits(fraction, digits);
+        }
+        return mLength;
+    }
+
+    /**
+     * Returns the buffer holding the last formatted value.
+     *
+     * @return the buffer; valid chars are [0, length)
+     */
+    public char[] getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * Returns the length of the last formatted value.
+     *
+     * @return number of chars
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Appends a long to sb.
+     *
+     * @param sb the destination
+     * @param value the value
+     * @param minDigits minimum number of digits
+     * @return sb
+     */
+    public StringBuilder append(StringBuilder sb, long value, int minDigits) {
+        return sb.append(mBuffer, 0, format(value, minDigits));
+    }
+
+    /**
+     * Appends a float to sb.
+     *
+     * @param sb the destination
+     * @param value the value
+     * @param minFraction minimum number of fraction digits
+     * @param maxFraction maximum number of fraction digits
+     * @return sb
+     */
+    public StringBuilder append(StringBuilder sb, float value, int minFraction, int maxFraction) {
+        return sb.append(mBuffer, 0, format(value, minFraction, maxFraction));
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Writes the magnitude of value (at least minDigits digits) at the end of the buffer.
+     */
+    private void writeDigits(long value, int minDigits) {
+        int count = 1;
+        long v = value;
+        while ((v /= 10) != 0) {
+            count++;
+        }
+        count = Math.max(count, Math.min(minDigits, MAX_CHARS - mLength));
+
+        int end = mLength + count;
+        for (int i = end - 1; i >= mLength; i--) {
+            mBuffer[i] = (char) ('0' + Math.abs(value % 10));
+            value /= 10;
+        }
+        mLength = end;
+    }
+
+    private int put(String s) {
+        int n = Math.min(s.length(), MAX_CHARS);
+        s.getChars(0, n, mBuffer, 0);
+        mLength = n;
+        return n;
+    }
+}
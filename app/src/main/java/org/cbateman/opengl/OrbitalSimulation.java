@@ -0,0 +1,456 @@
+package org.cbateman.opengl;
+
+import android.util.Log;
+
+/**
+ * Gravitational simulation of many bodies (moons, asteroids) orbiting a fixed central body at
+ * the origin (the earth). Forces between bodies are approximated with a Barnes-Hut quadtree,
+ * rebuilt every step, so a step costs O(n log n) instead of O(n^2). Bodies are integrated
+ * with leapfrog (kick-drift-kick), which keeps orbits stable over long runs. Body state and
+ * the tree are stored in primitive arrays; force evaluation is split across the workers of
+ * the shared WorkerPool.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class OrbitalSimulation {
+
+    private static final String TAG = Constants.TAG;
+
+    /** Gravitational constant in scene units. */
+    public static final float G = 1.0f;
+
+    /** Below this number of bodies, forces are computed on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    // Opening angle: a node is treated as one mass when size / distance < THETA
+    private static final float THETA = 0.5f;
+    // Keeps forces finite when bodies get very close
+    private static final float SOFTENING = 0.01f;
+    // Bodies that still share a node at this depth are kept together in one leaf
+    private static final int MAX_DEPTH = 24;
+
+    private static final int EMPTY = -1;
+    private static final int MULTIPLE = -2;
+
+    private final int mCapacity;
+    private int mCount;
+    private final float mCentralMass;
+
+    // Body state, indexed by body
+    private final float[] mX;
+    private final float[] mY;
+    private final float[] mVX;
+    private final float[] mVY;
+    private final float[] mAX;
+    private final float[] mAY;
+    private final float[] mMass;
+    // The leaf each body was inserted into by the last tree build
+    private final int[] mBodyLeaf;
+
+    // Quadtree nodes; the four children of a node are stored next to each other
+    private int mNodeCount;
+    private float[] mNodeCX;
+    private float[] mNodeCY;
+    private float[] mNodeHalf;
+    private float[] mNodeMass;
+    private float[] mNodeMX;
+    private float[] mNodeMY;
+    private int[] mNodeFirstChild;
+    private int[] mNodeBody;
+
+    private boolean mAccelerationValid;
+
+    private final int mChunkCount;
+    private final ForceChunk[] mChunks;
+    private final WorkerPool.Join mJoin;
+
+    /**
+     * OrbitalSimulation constructor.
+     *
+     * @param capacity the maximum number of bodies
+     * @param centralMass mass of the fixed body at the origin
+     */
+    public OrbitalSimulation(int capacity, float centralMass) {
+        mCapacity = capacity;
+        mCentralMass = centralMass;
+        mX = new float[capacity];
+        mY = new float[capacity];
+        mVX = new float[capacity];
+        mVY = new float[capacity];
+        mAX = new float[capacity];
+        mAY = new float[capacity];
+        mMass = new float[capacity];
+        mBodyLeaf = new int[capacity];
+
+        allocateNodes(Math.max(64, capacity * 2));
+
+        final WorkerPool pool = WorkerPool.getShared();
+        mChunkCount = pool.getParallelism();
+        mChunks = new ForceChunk[mChunkCount];
+        for (int i = 0; i < mChunkCount; i++) {
+            mChunks[i] = new ForceChunk();
+        }
+        mJoin = pool.newJoin(mChunks);
+
+        Log.i(TAG, "OrbitalSimulation constructed (" + capacity + " bodies, " + mChunkCount + " chunks)");
+    }
+
+    /**
+     * Adds a body.
+     *
+     * @param x x position
+     * @param y y position
+     * @param vx x velocity in units per second
+     * @param vy y velocity in units per second
+     * @param mass mass of the body
+     * @return index of the body, or -1 if the simulation is full
+     */
+    public int addBody(float x, float y, float vx, float vy, float mass) {
+        if (mCount == mCapacity) {
+            return -1;
+        }
+        final int i = mCount++;
+        mX[i] = x;
+        mY[i] = y;
+        mVX[i] = vx;
+        mVY[i] = vy;
+        mMass[i] = mass;
+        mAccelerationValid = false;
+        return i;
+    }
+
+    /**
+     * Adds a body on a circular orbit around the central body, counter clockwise.
+     *
+     * @param radius distance from the origin
+     * @param angle position on the orbit in radians
+     * @param mass mass of the body
+     * @return index of the body, or -1 if the simulation is full
+     */
+    public int addOrbitingBody(float radius, float angle, float mass) {
+        final float cos = (float) Math.cos(angle);
+        final float sin = (float) Math.sin(angle);
+        final float speed = (float) Math.sqrt(G * mCentralMass / radius);
+        return addBody(radius * cos, radius * sin, -speed * sin, speed * cos, mass);
+    }
+
+    /**
+     * Reverses the velocity of every body. Leapfrog is time reversible, so the bodies retrace
+     * their paths.
+     */
+    public void reverse() {
+        final int n = mCount;
+        for (int i = 0; i < n; i++) {
+            mVX[i] = -mVX[i];
+            mVY[i] = -mVY[i];
+        }
+    }
+
+    /**
+     * Removes all bodies.
+     */
+    public void clear() {
+        mCount = 0;
+        mAccelerationValid = false;
+    }
+
+    /**
+     * Advances the simulation.
+     *
+     * @param deltaTime seconds to advance
+     */
+    public void step(float deltaTime) {
+        if (mCount == 0) {
+            return;
+        }
+        if (!mAccelerationValid) {
+            computeAccelerations();
+        }
+
+        final float half = deltaTime * 0.5f;
+        final int n = mCount;
+        for (int i = 0; i < n; i++) {
+            // kick, drift
+            mVX[i] += mAX[i] * half;
+            mVY[i] += mAY[i] * half;
+            mX[i] += mVX[i] * deltaTime;
+            mY[i] += mVY[i] * deltaTime;
+        }
+
+        computeAccelerations();
+
+        for (int i = 0; i < n; i++) {
+            // kick
+            mVX[i] += mAX[i] * half;
+            mVY[i] += mAY[i] * half;
+        }
+    }
+
+    /**
+     * @return the number of bodies
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the x coordinates of the bodies. The array is owned by the simulation and is
+     * only valid for [0, getCount()) until the next step().
+     *
+     * @return x coordinates
+     */
+    public float[] getX() {
+        return mX;
+    }
+
+    /**
+     * Returns the y coordinates of the bodies. The array is owned by the simulation and is
+     * only valid for [0, getCount()) until the next step().
+     *
+     * @return y coordinates
+     */
+    public float[] getY() {
+        return mY;
+    }
+
+    /**
+     * @return the number of quadtree nodes used by the last step
+     */
+    public int getNodeCount() {
+        return mNodeCount;
+    }
+
+    public void cleanup() {
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Rebuilds the quadtree and computes the acceleration of every body.
+     */
+    private void computeAccelerations() {
+        buildTree();
+
+        final int n = mCount;
+        final int chunks = n < PARALLEL_THRESHOLD ? 1 : mChunkCount;
+        final int step = (n + chunks - 1) / chunks;
+        for (int c = 0; c < chunks; c++) {
+            mChunks[c].set(c * step, Math.min(n, (c + 1) * step));
+        }
+        mJoin.run(chunks);
+        mAccelerationValid = true;
+    }
+
+    /**
+     * Builds the quadtree over all bodies. The root is the smallest square around them.
+     */
+    private void buildTree() {
+        final int n = mCount;
+        float minX = mX[0], maxX = mX[0];
+        float minY = mY[0], maxY = mY[0];
+        for (int i = 1; i < n; i++) {
+            minX = Math.min(minX, mX[i]);
+            maxX = Math.max(maxX, mX[i]);
+            minY = Math.min(minY, mY[i]);
+            maxY = Math.max(maxY, mY[i]);
+        }
+
+        mNodeCount = 0;
+        final int root = newNode((minX + maxX) * 0.5f, (minY + maxY) * 0.5f,
+                Math.max(maxX - minX, maxY - minY) * 0.5f + 1e-4f);
+        for (int i = 0; i < n; i++) {
+            insert(root, i);
+        }
+
+        // turn the mass weighted position sums into centres of mass
+        for (int node = 0; node < mNodeCount; node++) {
+            final float m = mNodeMass[node];
+            if (m > 0) {
+                mNodeMX[node] /= m;
+                mNodeMY[node] /= m;
+            }
+        }
+    }
+
+    private void insert(int node, int body) {
+        final float bx = mX[body];
+        final float by = mY[body];
+        final float bm = mMass[body];
+        int depth = 0;
+        while (true) {
+            mNodeMass[node] += bm;
+            mNodeMX[node] += bx * bm;
+            mNodeMY[node] += by * bm;
+
+            int first = mNodeFirstChild[node];
+            if (first >= 0) {
+                node = first + quadrant(node, bx, by);
+                depth++;
+                continue;
+            }
+            if (mNodeBody[node] == EMPTY) {
+                mNodeBody[node] = body;
+                mBodyLeaf[body] = node;
+                return;
+            }
+            if (depth >= MAX_DEPTH) {
+                mNodeBody[node] = MULTIPLE;
+                mBodyLeaf[body] = node;
+                return;
+            }
+
+            // split the leaf and push its body down one level
+            final int old = mNodeBody[node];
+            mNodeBody[node] = EMPTY;
+            first = subdivide(node);
+            final int child = first + quadrant(node, mX[old], mY[old]);
+            final float om = mMass[old];
+            mNodeMass[child] += om;
+            mNodeMX[child] += mX[old] * om;
+            mNodeMY[child] += mY[old] * om;
+            mNodeBody[child] = old;
+            mBodyLeaf[old] = child;
+
+            node = first + quadrant(node, bx, by);
+            depth++;
+        }
+    }
+
+    private int quadrant(int node, float x, float y) {
+        return (x >= mNodeCX[node] ? 1 : 0) + (y >= mNodeCY[node] ? 2 : 0);
+    }
+
+    private int subdivide(int node) {
+        final float h = mNodeHalf[node] * 0.5f;
+        final float cx = mNodeCX[node];
+        final float cy = mNodeCY[node];
+        final int first = newNode(cx - h, cy - h, h);
+        newNode(cx + h, cy - h, h);
+        newNode(cx - h, cy + h, h);
+        newNode(cx + h, cy + h, h);
+        mNodeFirstChild[node] = first;
+        return first;
+    }
+
+    private int newNode(float cx, float cy, float half) {
+        if (mNodeCount == mNodeCX.length) {
+            allocateNodes(mNodeCX.length * 2);
+        }
+        final int node = mNodeCount++;
+        mNodeCX[node] = cx;
+        mNodeCY[node] = cy;
+        mNodeHalf[node] = half;
+        mNodeMass[node] = 0;
+        mNodeMX[node] = 0;
+        mNodeMY[node] = 0;
+        mNodeFirstChild[node] = EMPTY;
+        mNodeBody[node] = EMPTY;
+        return node;
+    }
+
+    /**
+     * Grows the node arrays, keeping existing nodes. Only called while the tree is built,
+     * on the calling thread.
+     */
+    private void allocateNodes(int size) {
+        mNodeCX = grow(mNodeCX, size);
+        mNodeCY = grow(mNodeCY, size);
+        mNodeHalf = grow(mNodeHalf, size);
+        mNodeMass = grow(mNodeMass, size);
+        mNodeMX = grow(mNodeMX, size);
+        mNodeMY = grow(mNodeMY, size);
+        mNodeFirstChild = grow(mNodeFirstChild, size);
+        mNodeBody = grow(mNodeBody, size);
+    }
+
+    private static float[] grow(float[] a, int size) {
+        float[] b = new float[size];
+        if (a != null) {
+            System.arraycopy(a, 0, b, 0, a.length);
+        }
+        return b;
+    }
+
+    private static int[] grow(int[] a, int size) {
+        int[] b = new int[size];
+        if (a != null) {
+            System.arraycopy(a, 0, b, 0, a.length);
+        }
+        return b;
+    }
+
+    /**
+     * Computes the accelerations of a range of bodies by walking the (read only) tree.
+     */
+    private final class ForceChunk implements Runnable {
+        int start;
+        int end;
+        // each level pushes at most four nodes
+        final int[] stack = new int[MAX_DEPTH * 4 + 4];
+
+        void set(int start, int end) {
+            this.start = start;
+            this.end = Math.max(start, end);
+        }
+
+        @Override
+        public void run() {
+            final float[] nodeMass = mNodeMass, nodeMX = mNodeMX, nodeMY = mNodeMY;
+            final float[] nodeHalf = mNodeHalf, mass = mMass;
+            final int[] firstChild = mNodeFirstChild, nodeBody = mNodeBody, bodyLeaf = mBodyLeaf;
+            final float theta2 = THETA * THETA;
+            final float eps2 = SOFTENING * SOFTENING;
+            final float gm = G * mCentralMass;
+
+            for (int i = start; i < end; i++) {
+                final float x = mX[i];
+                final float y = mY[i];
+
+                // the central body
+                float d2 = x * x + y * y + eps2;
+                float inv = gm / (d2 * (float) Math.sqrt(d2));
+                float ax = -x * inv;
+                float ay = -y * inv;
+
+                int sp = 0;
+                stack[sp++] = 0;
+                while (sp > 0) {
+                    final int node = stack[--sp];
+                    final int body = nodeBody[node];
+                    float m = nodeMass[node];
+                    if (m == 0 || body == i) {
+                        continue;
+                    }
+                    float cx = nodeMX[node];
+                    float cy = nodeMY[node];
+                    if (body == MULTIPLE && node == bodyLeaf[i]) {
+                        // a leaf shared with other bodies: take this body out of its mass
+                        final float rest = m - mass[i];
+                        if (rest <= 0) {
+                            continue;
+                        }
+                        cx = (cx * m - x * mass[i]) / rest;
+                        cy = (cy * m - y * mass[i]) / rest;
+                        m = rest;
+                    }
+                    final float dx = cx - x;
+                    final float dy = cy - y;
+                    d2 = dx * dx + dy * dy + eps2;
+                    final int first = firstChild[node];
+                    final float size = nodeHalf[node] * 2;
+                    if (first < 0 || size * size < theta2 * d2) {
+                        inv = G * m / (d2 * (float) Math.sqrt(d2));
+                        ax += dx * inv;
+                        ay += dy * inv;
+                    } else {
+                        stack[sp++] = first;
+                        stack[sp++] = first + 1;
+                        stack[sp++] = first + 2;
+                        stack[sp++] = first + 3;
+                    }
+                }
+                mAX[i] = ax;
+                mAY[i] = ay;
+            }
+        }
+    }
+}
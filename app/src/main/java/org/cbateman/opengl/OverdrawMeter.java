@@ -0,0 +1,304 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Debug mode that shows how many times each pixel is shaded. The frame is drawn into an
+ * offscreen target with a stencil buffer; every fragment that is rasterized increments the
+ * stencil value of its pixel, whatever the shader that draws it (fragments the shader
+ * discards are counted too, as they cost the same fill rate). end() then maps the counts to
+ * a heatmap laid over the frame and shows the result on screen.
+ *
+ * The count is also written to the alpha channel of the target. Every READBACK_INTERVAL
+ * frames it is box-filtered into a target a quarter of the size, which is read back to
+ * compute the average overdraw of the frame.
+ *
+ * Heatmap colours: black (0), blue (1), cyan (2), green (3), yellow (4), orange (5),
+ * red (6), magenta (7 or more).
+ *
+ * Usage:
+ * <pre>
+ *     if (meter.begin()) {
+ *         // draw the frame
+ *         meter.end();
+ *     }
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class OverdrawMeter {
+
+    private static final String TAG = Constants.TAG;
+
+    // Counts of LEVELS - 1 or more share the last colour
+    private static final int LEVELS = 8;
+    // Alpha value of one shaded fragment (LEVELS * COUNT_SCALE must not exceed 255); keeps
+    // fractions of a count after the box filter
+    private static final int COUNT_SCALE = 31;
+    private static final int DOWNSAMPLE = 4;
+    private static final int READBACK_INTERVAL = 15;
+    private static final float HEATMAP_OPACITY = 0.75f;
+
+    private static final float[] HEAT_COLORS = {
+        0.0f, 0.0f, 0.0f,
+        0.0f, 0.0f, 1.0f,
+        0.0f, 1.0f, 1.0f,
+        0.0f, 1.0f, 0.0f,
+        1.0f, 1.0f, 0.0f,
+        1.0f, 0.5f, 0.0f,
+        1.0f, 0.0f, 0.0f,
+        1.0f, 0.0f, 1.0f
+    };
+
+    private int mWidth, mHeight;
+    private int mSmallWidth, mSmallHeight;
+
+    private int mHeatProgram;
+    private int mHeatPositionLocation;
+    private int mHeatColorLocation;
+
+    private int mDownsampleProgram;
+    private int mDownsamplePositionLocation;
+    private int mDownsampleTexCoordLocation;
+    private int mDownsampleSamplerLocation;
+    private int mDownsampleTexScaleLocation;
+    private int mDownsampleTexelLocation;
+
+    private int mCopyProgram;
+    private int mCopyPositionLocation;
+    private int mCopyTexCoordLocation;
+    private int mCopySamplerLocation;
+
+    // Full size target with the counts in its stencil buffer, downsampled target
+    private final RenderTarget mTarget = new RenderTarget("Overdraw", true);
+    private final RenderTarget mSmallTarget = new RenderTarget("Overdraw readback", false);
+    private final FullScreenQuad mQuad;
+
+    private ByteBuffer mPixels;
+    private int mFrameCount;
+    private float mAverageOverdraw;
+
+    /**
+     * OverdrawMeter constructor. Must be called on the GL thread.
+     */
+    public OverdrawMeter() {
+        mQuad = new FullScreenQuad();
+        setupData();
+    }
+
+    /**
+     * Sets the size of the frame. Call from onSurfaceChanged.
+     *
+     * @param width surface width in pixels
+     * @param height surface height in pixels
+     */
+    public void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mSmallWidth = Math.max(1, width / DOWNSAMPLE);
+        mSmallHeight = Math.max(1, height / DOWNSAMPLE);
+        if (!mTarget.setSize(width, height) || !mSmallTarget.setSize(mSmallWidth, mSmallHeight)) {
+            // begin() returns false and the frame is drawn normally
+            mTarget.cleanup();
+            mSmallTarget.cleanup();
+            return;
+        }
+
+        mPixels = ByteBuffer.allocateDirect(mSmallWidth * mSmallHeight * 4).order(ByteOrder.nativeOrder());
+        mFrameCount = 0;
+    }
+
+    /**
+     * Starts counting. The offscreen target is bound and its stencil cleared; the caller
+     * clears the colour and draws the frame, then calls end().
+     *
+     * @return true if the frame is counted; false if there is no offscreen target
+     */
+    public boolean begin() {
+        if (!mTarget.begin(mWidth, mHeight)) {
+            return false;
+        }
+        GLES20.glClear(GLES20.GL_STENCIL_BUFFER_BIT);
+
+        // Every fragment increments its pixel's count
+        GLES20.glEnable(GLES20.GL_STENCIL_TEST);
+        GLES20.glStencilFunc(GLES20.GL_ALWAYS, 0, 0xFF);
+        GLES20.glStencilOp(GLES20.GL_KEEP, GLES20.GL_INCR, GLES20.GL_INCR);
+        return true;
+    }
+
+    /**
+     * Stops counting, lays the heatmap over the frame and draws the result into the
+     * framebuffer that was bound when begin() was called. Leaves blending enabled with the
+     * renderer's blend function.
+     */
+    public void end() {
+        GLES20.glStencilOp(GLES20.GL_KEEP, GLES20.GL_KEEP, GLES20.GL_KEEP);
+
+        // Heatmap: the colour is mixed with the frame, the alpha is the count
+        GLES20.glEnable(GLES20.GL_BLEND);
+        GLES20.glBlendColor(0.0f, 0.0f, 0.0f, HEATMAP_OPACITY);
+        GLES20.glBlendFuncSeparate(GLES20.GL_CONSTANT_ALPHA, GLES20.GL_ONE_MINUS_CONSTANT_ALPHA,
+                GLES20.GL_ONE, GLES20.GL_ZERO);
+
+        GLES20.glUseProgram(mHeatProgram);
+        mQuad.begin(mHeatPositionLocation, -1);
+        for (int level = 0; level < LEVELS; level++) {
+            GLES20.glStencilFunc(level < LEVELS - 1 ? GLES20.GL_EQUAL : GLES20.GL_LEQUAL, level, 0xFF);
+            GLES20.glUniform4f(mHeatColorLocation, HEAT_COLORS[3 * level], HEAT_COLORS[3 * level + 1],
+                    HEAT_COLORS[3 * level + 2], level * COUNT_SCALE / 255.0f);
+            mQuad.draw();
+        }
+        mQuad.end(mHeatPositionLocation, -1);
+        GLES20.glDisable(GLES20.GL_STENCIL_TEST);
+        GLES20.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+
+        GLES20.glDisable(GLES20.GL_BLEND);
+        if (mFrameCount++ % READBACK_INTERVAL == 0) {
+            readBack();
+        }
+
+        // Show the heatmap
+        mTarget.end();
+        GLES20.glUseProgram(mCopyProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTarget.getTextureId());
+        GLES20.glUniform1i(mCopySamplerLocation, 0);
+        mQuad.draw(mCopyPositionLocation, mCopyTexCoordLocation);
+        GLES20.glEnable(GLES20.GL_BLEND);
+    }
+
+    /**
+     * Returns the average number of times a pixel was shaded, from the latest readback.
+     * Pixels shaded LEVELS - 1 or more times count as LEVELS - 1.
+     *
+     * @return the average overdraw (1.0 means every pixel was shaded once)
+     */
+    public float getAverageOverdraw() {
+        return mAverageOverdraw;
+    }
+
+    public void cleanup() {
+        mTarget.cleanup();
+        mSmallTarget.cleanup();
+        mQuad.cleanup();
+
+        if (mHeatProgram != 0) {
+            GLES20.glDeleteProgram(mHeatProgram);
+            mHeatProgram = 0;
+        }
+
+        if (mDownsampleProgram != 0) {
+            GLES20.glDeleteProgram(mDownsampleProgram);
+            mDownsampleProgram = 0;
+        }
+
+        if (mCopyProgram != 0) {
+            GLES20.glDeleteProgram(mCopyProgram);
+            mCopyProgram = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Box-filters the counts into the small target and averages them.
+     */
+    private void readBack() {
+        mSmallTarget.begin(mSmallWidth, mSmallHeight);
+        GLES20.glUseProgram(mDownsampleProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTarget.getTextureId());
+        GLES20.glUniform1i(mDownsampleSamplerLocation, 0);
+        // The small target covers the largest multiple of DOWNSAMPLE pixels of the frame
+        GLES20.glUniform2f(mDownsampleTexScaleLocation,
+                (float) (mSmallWidth * DOWNSAMPLE) / mWidth, (float) (mSmallHeight * DOWNSAMPLE) / mHeight);
+        GLES20.glUniform2f(mDownsampleTexelLocation, 1.0f / mWidth, 1.0f / mHeight);
+        mQuad.draw(mDownsamplePositionLocation, mDownsampleTexCoordLocation);
+
+        mPixels.position(0);
+        GLES20.glReadPixels(0, 0, mSmallWidth, mSmallHeight, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, mPixels);
+        mSmallTarget.end();
+        long sum = 0;
+        final int count = mSmallWidth * mSmallHeight;
+        for (int i = 0; i < count; i++) {
+            sum += mPixels.get(4 * i + 3) & 0xFF;
+        }
+        mAverageOverdraw = (float) sum / (count * COUNT_SCALE);
+    }
+
+    private void setupData() {
+        final String heatVertexShaderCode =
+            "attribute vec4 aPosition;" +
+            "void main() {" +
+            "    gl_Position = aPosition;" +
+            "}";
+
+        final String heatFragmentShaderCode =
+            "precision mediump float;" +
+            "uniform vec4 uColor;" +
+            "void main() {" +
+            "    gl_FragColor = uColor;" +
+            "}";
+
+        final String textureVertexShaderCode =
+            "attribute vec4 aPosition;" +
+            "attribute vec2 aTexCoord;" +
+            "varying vec2 vTexCoord;" +
+            "void main() {" +
+            "    gl_Position = aPosition;" +
+            "    vTexCoord = aTexCoord;" +
+            "}";
+
+        // Four bilinear taps one pixel from the centre of a 4x4 block average all 16 pixels
+        final String downsampleVertexShaderCode =
+            "uniform vec2 uTexScale;" +
+            "attribute vec4 aPosition;" +
+            "attribute vec2 aTexCoord;" +
+            "varying vec2 vTexCoord;" +
+            "void main() {" +
+            "    gl_Position = aPosition;" +
+            "    vTexCoord = aTexCoord * uTexScale;" +
+            "}";
+
+        final String downsampleFragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec2 vTexCoord;" +
+            "uniform sampler2D sTexture;" +
+            "uniform vec2 uTexel;" +
+            "void main() {" +
+            "    gl_FragColor = 0.25 * (texture2D(sTexture, vTexCoord + vec2(-uTexel.x, -uTexel.y))" +
+            "        + texture2D(sTexture, vTexCoord + vec2(uTexel.x, -uTexel.y))" +
+            "        + texture2D(sTexture, vTexCoord + vec2(-uTexel.x, uTexel.y))" +
+            "        + texture2D(sTexture, vTexCoord + vec2(uTexel.x, uTexel.y)));" +
+            "}";
+
+        final String copyFragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec2 vTexCoord;" +
+            "uniform sampler2D sTexture;" +
+            "void main() {" +
+            "    gl_FragColor = texture2D(sTexture, vTexCoord);" +
+            "}";
+        // Create programs from shaders
+        mHeatProgram = GraphicUtils.loadProgram(heatVertexShaderCode, heatFragmentShaderCode);
+        mDownsampleProgram = GraphicUtils.loadProgram(downsampleVertexShaderCode, downsampleFragmentShaderCode);
+        mCopyProgram = GraphicUtils.loadProgram(textureVertexShaderCode, copyFragmentShaderCode);
+
+        // Get locations
+        mHeatPositionLocation = GLES20.glGetAttribLocation(mHeatProgram, "aPosition");
+        mHeatColorLocation = GLES20.glGetUniformLocation(mHeatProgram, "uColor");
+
+        mDownsamplePositionLocation = GLES20.glGetAttribLocation(mDownsampleProgram, "aPosition");
+        mDownsampleTexCoordLocation = GLES20.glGetAttribLocation(mDownsampleProgram, "aTexCoord");
+        mDownsampleSamplerLocation = GLES20.glGetUniformLocation(mDownsampleProgram, "sTexture");
+        mDownsampleTexScaleLocation = GLES20.glGetUniformLocation(mDownsampleProgram, "uTexScale");
+        mDownsampleTexelLocation = GLES20.glGetUniformLocation(mDownsampleProgram, "uTexel");
+
+        mCopyPositionLocation = GLES20.glGetAttribLocation(mCopyProgram, "aPosition");
+        mCopyTexCoordLocation = GLES20.glGetAttribLocation(mCopyProgram, "aTexCoord");
+        mCopySamplerLocation = GLES20.glGetUniformLocation(mCopyProgram, "sTexture");
+    }
+}
@@ -0,0 +1,384 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A pool of simple particles (stars twinkling, meteor showers, dust trails). Particle state
+ * is kept in primitive arrays, one per attribute, and free slots are kept on a stack so
+ * emitting and killing particles never allocates. Large pools are updated in parallel: the
+ * slots are split into chunks, one per worker of the shared WorkerPool, and each chunk
+ * integrates its particles and writes the vertices of the live ones. All particles are then drawn as point sprites with
+ * one glDrawArrays call.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class ParticleSystem {
+
+    private static final String TAG = Constants.TAG;
+
+    /** Below this number of slots in use, updates run on the calling thread. */
+    public static final int PARALLEL_THRESHOLD = 8192;
+
+    // x, y, size, color
+    private static final int VERTEX_SIZE = 4;
+    private static final int BYTES_PER_INT = 4;
+
+    private final int mCapacity;
+
+    // Particle state, indexed by slot
+    private final float[] mPosX;
+    private final float[] mPosY;
+    private final float[] mVelX;
+    private final float[] mVelY;
+    private final float[] mLife;
+    private final float[] mMaxLife;
+    private final float[] mSize;
+    private final int[] mColor;
+
+    // Free slots (a stack) and the number of slots ever used
+    private final int[] mFree;
+    private int mFreeCount;
+    private int mHighWater;
+    private int mAliveCount;
+
+    private float mGravityX;
+    private float mGravityY;
+    private float mDrag;
+
+    // Vertices written by the update, and the part of them each chunk wrote
+    private final int[] mVertexData;
+    private final IntBuffer mVertices;
+    private int mVertexCount;
+
+    private final int mChunkCount;
+    private final Chunk[] mChunks;
+    private final WorkerPool.Join mJoin;
+
+    private int mProgram;
+    private int mPositionLocation;
+    private int mSizeLocation;
+    private int mColorLocation;
+    private int mMVPMatrixLocation;
+    private int mPointScaleLocation;
+    private final int[] vbo = new int[1];
+    private float mPointScale = 1.0f;
+
+    /**
+     * ParticleSystem constructor. Must be called on the GL thread.
+     *
+     * @param capacity the maximum number of live particles
+     */
+    public ParticleSystem(int capacity) {
+        mCapacity = capacity;
+        mPosX = new float[capacity];
+        mPosY = new float[capacity];
+        mVelX = new float[capacity];
+        mVelY = new float[capacity];
+        mLife = new float[capacity];
+        mMaxLife = new float[capacity];
+        mSize = new float[capacity];
+        mColor = new int[capacity];
+
+        mFree = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            // pop the lowest slots first so the live range stays small
+            mFree[i] = capacity - 1 - i;
+        }
+        mFreeCount = capacity;
+
+        mVertexData = new int[capacity * VERTEX_SIZE];
+        mVertices = ByteBuffer.allocateDirect(mVertexData.length * BYTES_PER_INT)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        final WorkerPool pool = WorkerPool.getShared();
+        mChunkCount = pool.getParallelism();
+        mChunks = new Chunk[mChunkCount];
+        for (int i = 0; i < mChunkCount; i++) {
+            // the first chunk covers every slot when the update is not split
+            mChunks[i] = new Chunk(i == 0 ? capacity : capacity / mChunkCount + 1);
+        }
+        mJoin = pool.newJoin(mChunks);
+
+        setupData();
+
+        Log.i(TAG, "ParticleSystem constructed (" + capacity + " particles, " + mChunkCount + " chunks)");
+    }
+
+    /**
+     * Sets the acceleration applied to every particle.
+     *
+     * @param x acceleration along x in units per second squared
+     * @param y acceleration along y in units per second squared
+     */
+    public void setGravity(float x, float y) {
+        mGravityX = x;
+        mGravityY = y;
+    }
+
+    /**
+     * Sets how quickly particles slow down.
+     *
+     * @param drag fraction of the velocity lost per second (0 for none)
+     */
+    public void setDrag(float drag) {
+        mDrag = drag;
+    }
+
+    /**
+     * Sets the render scale of the target the particles are drawn into; particle sizes are
+     * in screen pixels and are multiplied by it.
+     *
+     * @param scale the scale (1 for the screen)
+     */
+    public void setPointScale(float scale) {
+        mPointScale = scale;
+    }
+
+    /**
+     * Emits a particle. Its alpha fades out linearly over its life.
+     *
+     * @param x start x position
+     * @param y start y position
+     * @param vx start x velocity in units per second
+     * @param vy start y velocity in units per second
+     * @param life life in seconds, must be positive
+     * @param size point size in pixels
+     * @param color ARGB color
+     * @return true if the particle was emitted, false if the pool is full or life is not positive
+     */
+    public boolean emit(float x, float y, float vx, float vy, float life, float size, int color) {
+        // A particle without life would never be seen dying by the update and keep its slot
+        if (!(life > 0) || mFreeCount == 0) {
+            return false;
+        }
+        final int i = mFree[--mFreeCount];
+        mPosX[i] = x;
+        mPosY[i] = y;
+        mVelX[i] = vx;
+        mVelY[i] = vy;
+        mLife[i] = life;
+        mMaxLife[i] = life;
+        mSize[i] = size;
+        mColor[i] = color;
+        if (i >= mHighWater) {
+            mHighWater = i + 1;
+        }
+        mAliveCount++;
+        return true;
+    }
+
+    /**
+     * Moves all particles, frees the ones that died and builds the vertices to draw.
+     * Blocks until every chunk has finished.
+     *
+     * @param deltaTime seconds since the last update
+     */
+    public void update(float deltaTime) {
+        final int count = mHighWater;
+        final int chunks = count < PARALLEL_THRESHOLD ? 1 : mChunkCount;
+        final int step = (count + chunks - 1) / Math.max(chunks, 1);
+
+        for (int c = 0; c < chunks; c++) {
+            mChunks[c].set(c * step, Math.min(count, (c + 1) * step), deltaTime);
+        }
+        mJoin.run(chunks);
+
+        // Pack the vertices of the chunks together and return dead slots to the pool
+        int vertexCount = 0;
+        for (int c = 0; c < chunks; c++) {
+            Chunk chunk = mChunks[c];
+            if (vertexCount != chunk.start) {
+                System.arraycopy(mVertexData, chunk.start * VERTEX_SIZE, mVertexData,
+                        vertexCount * VERTEX_SIZE, chunk.vertexCount * VERTEX_SIZE);
+            }
+            vertexCount += chunk.vertexCount;
+
+            System.arraycopy(chunk.dead, 0, mFree, mFreeCount, chunk.deadCount);
+            mFreeCount += chunk.deadCount;
+            mAliveCount -= chunk.deadCount;
+        }
+        mVertexCount = vertexCount;
+
+        if (mAliveCount == 0) {
+            // every slot is free again; restart from the bottom of the pool
+            for (int i = 0; i < mCapacity; i++) {
+                mFree[i] = mCapacity - 1 - i;
+            }
+            mHighWater = 0;
+        }
+    }
+
+    /**
+     * Draws all live particles in one call.
+     *
+     * @param mvpMatrix - The Model View Project matrix in which to draw the particles
+     */
+    public void draw(float[] mvpMatrix) {
+        if (mVertexCount == 0 || vbo[0] == 0) {
+            return;
+        }
+        GLES20.glUseProgram(mProgram);
+        GLES20.glUniformMatrix4fv(mMVPMatrixLocation, 1, false, mvpMatrix, 0);
+        GLES20.glUniform1f(mPointScaleLocation, mPointScale);
+
+        // Stream the vertices; re-specifying the store lets the driver orphan the old one
+        final int ints = mVertexCount * VERTEX_SIZE;
+        mVertices.clear();
+        mVertices.put(mVertexData, 0, ints);
+        mVertices.flip();
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, ints * BYTES_PER_INT, mVertices,
+                GLES20.GL_STREAM_DRAW);
+
+        final int stride = VERTEX_SIZE * BYTES_PER_INT;
+        GLES20.glVertexAttribPointer(mPositionLocation, 2, GLES20.GL_FLOAT, false, stride, 0);
+        GLES20.glEnableVertexAttribArray(mPositionLocation);
+        GLES20.glVertexAttribPointer(mSizeLocation, 1, GLES20.GL_FLOAT, false, stride, 8);
+        GLES20.glEnableVertexAttribArray(mSizeLocation);
+        GLES20.glVertexAttribPointer(mColorLocation, 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 12);
+        GLES20.glEnableVertexAttribArray(mColorLocation);
+
+        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mVertexCount);
+
+        GLES20.glDisableVertexAttribArray(mPositionLocation);
+        GLES20.glDisableVertexAttribArray(mSizeLocation);
+        GLES20.glDisableVertexAttribArray(mColorLocation);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * @return the number of live particles
+     */
+    public int getAliveCount() {
+        return mAliveCount;
+    }
+
+    /**
+     * @return the maximum number of live particles
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public void cleanup() {
+        if (vbo[0] > 0) {
+            GLES20.glDeleteBuffers(vbo.length, vbo, 0);
+            vbo[0] = 0;
+        }
+
+        if (mProgram != 0) {
+            GLES20.glDeleteProgram(mProgram);
+            mProgram = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private void setupData() {
+        final String vertexShaderCode =
+            "uniform mat4 uMVPMatrix;" +
+            "uniform float uPointScale;" +
+            "attribute vec4 aPosition;" +
+            "attribute float aSize;" +
+            "attribute vec4 aColor;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "    gl_Position = uMVPMatrix * aPosition;" +
+            "    gl_PointSize = aSize * uPointScale;" +
+            "    vColor = aColor;" +
+            "}";
+
+        // Soft round points
+        final String fragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "    float d = length(gl_PointCoord - vec2(0.5)) * 2.0;" +
+            "    gl_FragColor = vec4(vColor.rgb, vColor.a * (1.0 - smoothstep(0.6, 1.0, d)));" +
+            "}";
+        // Create program from shaders
+        mProgram = GraphicUtils.loadProgram(vertexShaderCode, fragmentShaderCode);
+
+        // Get locations
+        mPositionLocation = GLES20.glGetAttribLocation(mProgram, "aPosition");
+        mSizeLocation = GLES20.glGetAttribLocation(mProgram, "aSize");
+        mColorLocation = GLES20.glGetAttribLocation(mProgram, "aColor");
+        mMVPMatrixLocation = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+        mPointScaleLocation = GLES20.glGetUniformLocation(mProgram, "uPointScale");
+
+        GLES20.glGenBuffers(1, vbo, 0);
+    }
+
+    /**
+     * A range of slots updated by one thread. Each chunk writes the vertices of its live
+     * particles starting at its own first slot, and records the slots that died, so chunks
+     * never write to the same memory.
+     */
+    private final class Chunk implements Runnable {
+        int start;
+        int end;
+        float deltaTime;
+        int vertexCount;
+        final int[] dead;
+        int deadCount;
+
+        Chunk(int maxSize) {
+            dead = new int[maxSize];
+        }
+
+        void set(int start, int end, float deltaTime) {
+            this.start = start;
+            this.end = Math.max(start, end);
+            this.deltaTime = deltaTime;
+        }
+
+        @Override
+        public void run() {
+            final float[] posX = mPosX, posY = mPosY, velX = mVelX, velY = mVelY;
+            final float[] life = mLife, maxLife = mMaxLife, size = mSize;
+            final int[] color = mColor, out = mVertexData;
+            final float dt = deltaTime;
+            final float gx = mGravityX * dt, gy = mGravityY * dt;
+            final float damping = Math.max(0f, 1f - mDrag * dt);
+
+            int o = start * VERTEX_SIZE;
+            int dc = 0;
+            for (int i = start; i < end; i++) {
+                float l = life[i];
+                if (l <= 0) {
+                    continue;
+                }
+                l -= dt;
+                life[i] = l;
+                if (l <= 0) {
+                    dead[dc++] = i;
+                    continue;
+                }
+
+                float vx = (velX[i] + gx) * damping;
+                float vy = (velY[i] + gy) * damping;
+                velX[i] = vx;
+                velY[i] = vy;
+                float x = posX[i] + vx * dt;
+                float y = posY[i] + vy * dt;
+                posX[i] = x;
+                posY[i] = y;
+
+                // ARGB to the RGBA byte order of the vertex, with alpha faded by remaining life
+                int c = color[i];
+                int a = (int) (((c >>> 24) & 0xFF) * (l / maxLife[i]));
+                out[o] = Float.floatToRawIntBits(x);
+                out[o + 1] = Float.floatToRawIntBits(y);
+                out[o + 2] = Float.floatToRawIntBits(size[i]);
+                out[o + 3] = (a << 24) | ((c & 0xFF) << 16) | (c & 0xFF00) | ((c >> 16) & 0xFF);
+                o += VERTEX_SIZE;
+            }
+            vertexCount = o / VERTEX_SIZE - start;
+            deadCount = dc;
+        }
+    }
+}
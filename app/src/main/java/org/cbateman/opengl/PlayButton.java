@@ -13,7 +13,7 @@ import java.nio.ByteOrder;
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class PlayButton extends Button {
 
-    private int[] mTexIdArray = new int[3];
+    private SpriteSheet mSheet;
     private final float[] mTranslateMatrix = new float[16];
     private final float[] mIntermediate = new float[16];
     private final float[] mFinal = new float[16];
@@ -21,10 +21,11 @@ public class PlayButton extends Button {
     public PlayButton(Context context, int width, int height) {
         super();
 
-        // Load speed textures.
-        mTexIdArray[0] = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.play));
-        mTexIdArray[1] = GraphicUtils.loadTexture(context.getResources().openRawResource(R.raw.pause));
-        mTexId = mTexIdArray[0];
+        // Load all button states into one texture; switching state only changes UVs.
+        mSheet = SpriteSheet.fromResources(context, R.raw.play, R.raw.pause);
+        setTextureRegion(mSheet.getFrame(0));
+        // One mesh covers every frame, so switching state still only changes UVs.
+        mMesh = mSheet.getMesh();
 
         // Setup vertices data for speed image.
         final float[] verticesData = {
@@ -70,8 +71,8 @@ public class PlayButton extends Button {
      * @param index the index of image
      */
     public void setCurrentImage(int index) {
-        if ((index >= 0) && (index < mTexIdArray.length)) {
-            mTexId = mTexIdArray[index];
+        if ((index >= 0) && (index < mSheet.getFrameCount())) {
+            setTextureRegion(mSheet.getFrame(index));
         }
     }
 
@@ -0,0 +1,159 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+import android.util.Log;
+
+/**
+ * An offscreen framebuffer with an RGBA colour texture (linear filtered, clamped) and an
+ * optional 8-bit stencil renderbuffer. begin() remembers the framebuffer and viewport that
+ * were current and end() restores them, so targets can be nested.
+ *
+ * Usage:
+ * <pre>
+ *     target.setSize(width, height);
+ *     if (target.begin(width, height)) {
+ *         // draw
+ *         target.end();
+ *     }
+ *     // sample target.getTextureId()
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class RenderTarget {
+
+    private static final String TAG = Constants.TAG;
+
+    private final String mName;
+    private final boolean mHasStencil;
+    private int mWidth, mHeight;
+
+    private final int[] fbo = new int[1];
+    private final int[] texture = new int[1];
+    private final int[] stencil = new int[1];
+
+    // Framebuffer and viewport bound when begin() was called, restored by end()
+    private final int[] mPreviousFramebuffer = new int[1];
+    private final int[] mPreviousViewport = new int[4];
+
+    /**
+     * RenderTarget constructor. Nothing is allocated until setSize().
+     *
+     * @param name name used in log messages
+     * @param hasStencil true to attach a stencil buffer
+     */
+    public RenderTarget(String name, boolean hasStencil) {
+        mName = name;
+        mHasStencil = hasStencil;
+    }
+
+    /**
+     * (Re)allocates the target. Must be called on the GL thread.
+     *
+     * @param width width in pixels
+     * @param height height in pixels
+     * @return true if the framebuffer is complete; otherwise nothing is allocated
+     */
+    public boolean setSize(int width, int height) {
+        cleanup();
+        mWidth = width;
+        mHeight = height;
+
+        GLES20.glGenTextures(1, texture, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, width, height, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+
+        if (mHasStencil) {
+            GLES20.glGenRenderbuffers(1, stencil, 0);
+            GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, stencil[0]);
+            GLES20.glRenderbufferStorage(GLES20.GL_RENDERBUFFER, GLES20.GL_STENCIL_INDEX8, width, height);
+            GLES20.glBindRenderbuffer(GLES20.GL_RENDERBUFFER, 0);
+        }
+
+        GLES20.glGenFramebuffers(1, fbo, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, fbo[0]);
+        GLES20.glFramebufferTexture2D(GLES20.GL_FRAMEBUFFER, GLES20.GL_COLOR_ATTACHMENT0,
+                GLES20.GL_TEXTURE_2D, texture[0], 0);
+        if (mHasStencil) {
+            GLES20.glFramebufferRenderbuffer(GLES20.GL_FRAMEBUFFER, GLES20.GL_STENCIL_ATTACHMENT,
+                    GLES20.GL_RENDERBUFFER, stencil[0]);
+        }
+        final int status = GLES20.glCheckFramebufferStatus(GLES20.GL_FRAMEBUFFER);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, 0);
+
+        if (status != GLES20.GL_FRAMEBUFFER_COMPLETE) {
+            Log.w(TAG, mName + " framebuffer incomplete: 0x" + Integer.toHexString(status));
+            cleanup();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the target is allocated and complete
+     */
+    public boolean isValid() {
+        return fbo[0] != 0;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getTextureId() {
+        return texture[0];
+    }
+
+    /**
+     * Binds the target with a viewport at its origin.
+     *
+     * @param viewportWidth viewport width in pixels (at most the width)
+     * @param viewportHeight viewport height in pixels (at most the height)
+     * @return false if the target is not valid, in which case nothing is bound
+     */
+    public boolean begin(int viewportWidth, int viewportHeight) {
+        if (fbo[0] == 0) {
+            return false;
+        }
+        GLES20.glGetIntegerv(GLES20.GL_FRAMEBUFFER_BINDING, mPreviousFramebuffer, 0);
+        GLES20.glGetIntegerv(GLES20.GL_VIEWPORT, mPreviousViewport, 0);
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, fbo[0]);
+        GLES20.glViewport(0, 0, viewportWidth, viewportHeight);
+        return true;
+    }
+
+    /**
+     * Rebinds the framebuffer and viewport that were current when begin() was called.
+     */
+    public void end() {
+        GLES20.glBindFramebuffer(GLES20.GL_FRAMEBUFFER, mPreviousFramebuffer[0]);
+        GLES20.glViewport(mPreviousViewport[0], mPreviousViewport[1],
+                mPreviousViewport[2], mPreviousViewport[3]);
+    }
+
+    public void cleanup() {
+        if (fbo[0] > 0) {
+            GLES20.glDeleteFramebuffers(fbo.length, fbo, 0);
+            fbo[0] = 0;
+        }
+
+        if (stencil[0] > 0) {
+            GLES20.glDeleteRenderbuffers(stencil.length, stencil, 0);
+            stencil[0] = 0;
+        }
+
+        if (texture[0] > 0) {
+            GLES20.glDeleteTextures(texture.length, texture, 0);
+            texture[0] = 0;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+
+/**
+ * Renders a layer of the frame (ie. the world) at a fraction of the surface resolution and
+ * upscales it to the screen, so a fill-rate-limited device can hold its frame time. The
+ * scale follows the measured frame times: it drops quickly while frames are over the
+ * target and rises slowly while they are on target. After each drop the scale waits twice
+ * as long before rising again, so it settles instead of swinging between two steps.
+ *
+ * The target texture is allocated at the surface size; a lower scale only draws into a
+ * smaller part of it, so changing the scale allocates nothing. The layer is opaque: it is
+ * upscaled without blending, so it must be the bottom layer of the frame. Sizes given in
+ * pixels (ie. point sprites) must be multiplied by getScale() while drawing the layer.
+ *
+ * Usage:
+ * <pre>
+ *     scaler.update(deltaTime);
+ *     if (scaler.begin()) {
+ *         // draw the layer
+ *         scaler.end();
+ *         scaler.draw();
+ *     }
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class ResolutionScaler {
+
+    private static final String TAG = Constants.TAG;
+
+    private static final float MIN_SCALE = 0.5f;
+    private static final float MAX_SCALE = 1.0f;
+    private static final float SCALE_DOWN_STEP = 0.1f;
+    private static final float SCALE_UP_STEP = 0.05f;
+    // Frame times above target * OVER_BUDGET lower the scale, below target * ON_BUDGET
+    // let it rise
+    private static final float OVER_BUDGET = 1.15f;
+    private static final float ON_BUDGET = 1.05f;
+    // Seconds between drops, and before a rise (doubled after every drop)
+    private static final float DROP_DELAY = 0.25f;
+    private static final float RAISE_DELAY = 2.0f;
+    private static final float MAX_RAISE_DELAY = 32.0f;
+
+    private int mWidth, mHeight;
+    private int mScaledWidth, mScaledHeight;
+    private float mScale = MAX_SCALE;
+    private float mTargetFrameTime = 1.0f / 60.0f;
+    private float mSinceChange;
+    private float mRaiseDelay = RAISE_DELAY;
+
+    private int mProgram;
+    private int mPositionLocation;
+    private int mTexCoordLocation;
+    private int mSamplerLocation;
+    private int mTexScaleLocation;
+
+    private final RenderTarget mTarget = new RenderTarget("Scaled", false);
+    private final FullScreenQuad mQuad;
+
+    /**
+     * ResolutionScaler constructor. Must be called on the GL thread.
+     */
+    public ResolutionScaler() {
+        mQuad = new FullScreenQuad();
+        setupData();
+    }
+
+    /**
+     * Sets the size of the surface. Call from onSurfaceChanged.
+     *
+     * @param width surface width in pixels
+     * @param height surface height in pixels
+     */
+    public void setSize(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        // If the target is incomplete, begin() returns false and the layer is drawn at
+        // full resolution
+        mTarget.setSize(width, height);
+        setScale(mScale);
+    }
+
+    /**
+     * Sets the frame time to hold.
+     *
+     * @param seconds the target frame time (default 1/60 s)
+     */
+    public void setTargetFrameTime(float seconds) {
+        mTargetFrameTime = seconds;
+    }
+
+    /**
+     * Adjusts the scale from the time of the last frame. Call once per frame, before begin().
+     *
+     * @param frameTime the (smoothed) frame time in seconds
+     */
+    public void update(float frameTime) {
+        mSinceChange += frameTime;
+        if (frameTime > mTargetFrameTime * OVER_BUDGET) {
+            if (mScale > MIN_SCALE && mSinceChange >= DROP_DELAY) {
+                setScale(mScale - SCALE_DOWN_STEP);
+                mRaiseDelay = Math.min(mRaiseDelay * 2.0f, MAX_RAISE_DELAY);
+                mSinceChange = 0.0f;
+            }
+        } else if (frameTime < mTargetFrameTime * ON_BUDGET) {
+            if (mScale < MAX_SCALE && mSinceChange >= mRaiseDelay) {
+                setScale(mScale + SCALE_UP_STEP);
+                mSinceChange = 0.0f;
+                if (mScale >= MAX_SCALE) {
+                    mRaiseDelay = RAISE_DELAY;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the current scale (MIN_SCALE to 1.0)
+     */
+    public float getScale() {
+        return mScale;
+    }
+
+    /**
+     * Starts rendering the layer. The target is bound with a viewport of the scaled size and
+     * cleared; draw the layer, then call end() and draw().
+     *
+     * @return true if the layer is drawn scaled; false if there is no target, in which case
+     *         the caller draws the layer directly
+     */
+    public boolean begin() {
+        if (!mTarget.begin(mScaledWidth, mScaledHeight)) {
+            return false;
+        }
+        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        return true;
+    }
+
+    /**
+     * Ends rendering the layer and rebinds the framebuffer and viewport that were current
+     * when begin() was called.
+     */
+    public void end() {
+        mTarget.end();
+    }
+
+    /**
+     * Upscales the layer over the whole viewport without blending.
+     */
+    public void draw() {
+        if (!mTarget.isValid()) {
+            return;
+        }
+        GLES20.glUseProgram(mProgram);
+
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTarget.getTextureId());
+        GLES20.glUniform1i(mSamplerLocation, 0);
+
+        // Only the scaled part of the texture holds the layer
+        GLES20.glUniform2f(mTexScaleLocation, (float) mScaledWidth / mWidth, (float) mScaledHeight / mHeight);
+
+        GLES20.glDisable(GLES20.GL_BLEND);
+        mQuad.draw(mPositionLocation, mTexCoordLocation);
+        GLES20.glEnable(GLES20.GL_BLEND);
+    }
+
+    public void cleanup() {
+        mTarget.cleanup();
+        mQuad.cleanup();
+
+        if (mProgram != 0) {
+            GLES20.glDeleteProgram(mProgram);
+            mProgram = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private void setScale(float scale) {
+        mScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+        mScaledWidth = Math.max(1, Math.round(mWidth * mScale));
+        mScaledHeight = Math.max(1, Math.round(mHeight * mScale));
+    }
+
+    private void setupData() {
+        final String vertexShaderCode =
+            "uniform vec2 uTexScale;" +
+            "attribute vec4 aPosition;" +
+            "attribute vec2 aTexCoord;" +
+            "varying vec2 vTexCoord;" +
+            "void main() {" +
+            "    gl_Position = aPosition;" +
+            "    vTexCoord = aTexCoord * uTexScale;" +
+            "}";
+
+        final String fragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec2 vTexCoord;" +
+            "uniform sampler2D sTexture;" +
+            "void main() {" +
+            "    gl_FragColor = texture2D(sTexture, vTexCoord);" +
+            "}";
+        // Create program from shaders
+        mProgram = GraphicUtils.loadProgram(vertexShaderCode, fragmentShaderCode);
+
+        // Get locations
+        mPositionLocation = GLES20.glGetAttribLocation(mProgram, "aPosition");
+        mTexCoordLocation = GLES20.glGetAttribLocation(mProgram, "aTexCoord");
+        mSamplerLocation = GLES20.glGetUniformLocation(mProgram, "sTexture");
+        mTexScaleLocation = GLES20.glGetUniformLocation(mProgram, "uTexScale");
+    }
+}
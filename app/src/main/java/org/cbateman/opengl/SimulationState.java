@@ -0,0 +1,44 @@
+package org.cbateman.opengl;
+
+/**
+ * A snapshot of the simulation, written by SimulationThread and read by the renderer.
+ * Snapshots are reused through a TripleBuffer, so they are only read between acquiring
+ * and the next acquire.
+ */
+@SuppressWarnings("WeakerAccess")
+public class SimulationState {
+
+    /** Number of ticks simulated when the snapshot was taken. */
+    public long tick;
+    /** Simulated time in seconds. */
+    public float time;
+
+    public float moonX;
+    public float moonY;
+    public int moonZOrder = 1;
+    public float moonSpeed = MoonImage.MIN_SPEED;
+    public boolean moonAnimating;
+
+    /**
+     * Number of valid entries in bodyX/bodyY: the bodies of an attached OrbitalSimulation
+     * other than the moon, projected like the moon. The first bodyFarCount of them are
+     * behind the earth, the rest in front of it. bodyId is the index of each body among
+     * them in the simulation, which does not change as bodies pass behind the earth.
+     */
+    public int bodyCount;
+    public int bodyFarCount;
+    public final float[] bodyX;
+    public final float[] bodyY;
+    public final int[] bodyId;
+
+    /**
+     * SimulationState constructor.
+     *
+     * @param bodyCapacity maximum number of orbital bodies in the snapshot
+     */
+    public SimulationState(int bodyCapacity) {
+        bodyX = new float[bodyCapacity];
+        bodyY = new float[bodyCapacity];
+        bodyId = new int[bodyCapacity];
+    }
+}
@@ -0,0 +1,263 @@
+package org.cbateman.opengl;
+
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs the simulation (the moon, or an OrbitalSimulation whose first body is the moon) on its
+ * own thread at a fixed tick rate, so simulation cost does not lower the frame rate. After each tick a
+ * snapshot is published through a TripleBuffer; the renderer reads the latest snapshot with
+ * getState() without ever blocking. Commands from the GL thread are counted in an atomic
+ * array and applied at the start of the next tick.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class SimulationThread implements Runnable {
+
+    private static final String TAG = Constants.TAG;
+
+    public static final int TICKS_PER_SECOND = 60;
+
+    public static final int CMD_CHANGE_DIRECTION = 0;
+    public static final int CMD_TOGGLE_PLAY = 1;
+    public static final int CMD_CHANGE_SPEED = 2;
+    private static final int CMD_COUNT = 3;
+
+    private static final long NANOS_PER_TICK = 1000000000L / TICKS_PER_SECOND;
+    private static final float SECONDS_PER_TICK = 1.0f / TICKS_PER_SECOND;
+    // After a long stall, drop time rather than running many ticks to catch up
+    private static final int MAX_TICKS_PER_WAKE = 5;
+
+    /**
+     * Orbits lie in a plane seen at an angle: orbital y is scaled by this on screen, and
+     * bodies with a positive orbital y are behind the earth.
+     */
+    public static final float ORBIT_TILT = 0.35f;
+
+    private final MoonImage mMoon;
+    private final OrbitalSimulation mOrbits;
+    private final TripleBuffer<SimulationState> mStates;
+    private final AtomicIntegerArray mCommands = new AtomicIntegerArray(CMD_COUNT);
+
+    private Thread mThread;
+    private volatile boolean mRunning;
+    private volatile boolean mPaused;
+    // The thread waits on this while paused
+    private final Object mPauseLock = new Object();
+    private long mTick;
+
+    /**
+     * SimulationThread constructor. After start() the moon and orbits must only be used by
+     * this thread. Without orbits the moon moves itself; with orbits, body 0 is the moon and
+     * the moon only keeps the play state and speed.
+     *
+     * @param moon the moon to move, or whose controls to use
+     * @param orbits orbital bodies to step, or null
+     */
+    public SimulationThread(MoonImage moon, OrbitalSimulation orbits) {
+        mMoon = moon;
+        mOrbits = orbits;
+        final int bodies = orbits != null ? Math.max(0, orbits.getCount() - 1) : 0;
+        mStates = new TripleBuffer<>(new SimulationState(bodies), new SimulationState(bodies),
+                new SimulationState(bodies));
+
+        // the renderer may draw before the first tick
+        writeState(mStates.getWriteBuffer());
+        mStates.publish();
+    }
+
+    /**
+     * Starts the simulation thread. It is a daemon, so it never keeps the process alive.
+     */
+    public void start() {
+        if (mThread != null) {
+            return;
+        }
+        mRunning = true;
+        mThread = new Thread(this, "SimulationThread");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    /**
+     * Stops the simulation thread and waits for it to finish.
+     */
+    public void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mRunning = false;
+        mThread.interrupt();
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        mThread = null;
+    }
+
+    /**
+     * Pauses or resumes ticking (ie. while the activity is paused). While paused the thread
+     * blocks until resumed or stopped.
+     *
+     * @param paused true to pause
+     */
+    public void setPaused(boolean paused) {
+        synchronized (mPauseLock) {
+            mPaused = paused;
+            mPauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Queues a command for the next tick. May be called from any thread.
+     *
+     * @param command one of the CMD_ constants
+     */
+    public void post(int command) {
+        mCommands.incrementAndGet(command);
+    }
+
+    /**
+     * Returns the latest published snapshot. Renderer thread only.
+     *
+     * @return the latest state
+     */
+    public SimulationState getState() {
+        return mStates.acquire();
+    }
+
+    @Override
+    public void run() {
+        Log.i(TAG, "SimulationThread started");
+
+        long next = System.nanoTime();
+        while (mRunning) {
+            long now = System.nanoTime();
+            if (now < next) {
+                try {
+                    Thread.sleep((next - now) / 1000000L, (int) ((next - now) % 1000000L));
+                } catch (InterruptedException e) {
+                    // stop() interrupts to wake the thread
+                }
+                continue;
+            }
+
+            if (mPaused) {
+                waitWhilePaused();
+                next = System.nanoTime();
+                continue;
+            }
+
+            int ticks = 0;
+            while (next <= now && ticks < MAX_TICKS_PER_WAKE) {
+                tick();
+                next += NANOS_PER_TICK;
+                ticks++;
+            }
+            if (next <= now) {
+                next = now + NANOS_PER_TICK;
+            }
+
+            writeState(mStates.getWriteBuffer());
+            mStates.publish();
+        }
+
+        Log.i(TAG, "SimulationThread stopped");
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private void waitWhilePaused() {
+        synchronized (mPauseLock) {
+            while (mPaused && mRunning) {
+                try {
+                    mPauseLock.wait();
+                } catch (InterruptedException e) {
+                    // stop() interrupts to wake the thread
+                }
+            }
+        }
+    }
+
+    private void tick() {
+        for (int i = 0; i < CMD_COUNT; i++) {
+            int count = mCommands.getAndSet(i, 0);
+            while (count-- > 0) {
+                applyCommand(i);
+            }
+        }
+
+        if (mOrbits == null) {
+            mMoon.update(SECONDS_PER_TICK);
+        } else if (mMoon.isAnimating()) {
+            // the speed button speeds up time instead of the moon
+            mOrbits.step(SECONDS_PER_TICK * mMoon.getSpeed() / MoonImage.MIN_SPEED);
+        }
+        mTick++;
+    }
+
+    private void applyCommand(int command) {
+        switch (command) {
+            case CMD_CHANGE_DIRECTION:
+                if (mOrbits != null) {
+                    mOrbits.reverse();
+                } else {
+                    mMoon.changeDirection();
+                }
+                break;
+            case CMD_TOGGLE_PLAY:
+                mMoon.setAnimationOn(!mMoon.isAnimating());
+                break;
+            case CMD_CHANGE_SPEED:
+                mMoon.changeSpeed();
+                break;
+        }
+    }
+
+    private void writeState(SimulationState state) {
+        state.tick = mTick;
+        state.time = mTick * SECONDS_PER_TICK;
+        state.moonSpeed = mMoon.getSpeed();
+        state.moonAnimating = mMoon.isAnimating();
+
+        if (mOrbits == null || mOrbits.getCount() == 0) {
+            state.moonX = mMoon.getX();
+            state.moonY = mMoon.getY();
+            state.moonZOrder = mMoon.getZOrder();
+            return;
+        }
+
+        final float[] x = mOrbits.getX();
+        final float[] y = mOrbits.getY();
+        state.moonX = x[0];
+        state.moonY = y[0] * ORBIT_TILT;
+        state.moonZOrder = y[0] > 0 ? -1 : 1;
+
+        // The other bodies, the ones behind the earth first
+        final int count = Math.min(mOrbits.getCount() - 1, state.bodyX.length);
+        final float[] bodyX = state.bodyX;
+        final float[] bodyY = state.bodyY;
+        final int[] bodyId = state.bodyId;
+        int far = 0;
+        for (int i = 1; i <= count; i++) {
+            if (y[i] > 0) {
+                bodyX[far] = x[i];
+                bodyY[far] = y[i] * ORBIT_TILT;
+                bodyId[far] = i - 1;
+                far++;
+            }
+        }
+        int near = far;
+        for (int i = 1; i <= count; i++) {
+            if (!(y[i] > 0)) {
+                bodyX[near] = x[i];
+                bodyY[near] = y[i] * ORBIT_TILT;
+                bodyId[near] = i - 1;
+                near++;
+            }
+        }
+        state.bodyFarCount = far;
+        state.bodyCount = count;
+    }
+}
@@ -0,0 +1,588 @@
+package org.cbateman.opengl;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+
+import org.cbateman.opengl.text.gltext.SpriteBatch;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Draws textured sprites (whole textures or atlas regions) in as few draw calls as possible.
+ * Sprites are transformed on the CPU (position, origin, scale, rotation) and written to one
+ * dynamic vertex buffer together with a per-sprite tint; the batch is flushed when the texture
+ * changes, when it is full, or at end().
+ *
+ * On OpenGL ES 3.0 (see GLCapabilities) each sprite is instead written as one instance
+ * (top left corner, the two edge vectors, texture region and tint) and the quad is expanded
+ * in the vertex shader with an instanced draw; the attribute layout lives in a vertex array
+ * object and the view projection matrix in a uniform buffer.
+ *
+ * Usage:
+ * <pre>
+ *     batcher.begin(vpMatrix);
+ *     batcher.draw(region, x, y, w, h, w / 2, h / 2, 1, 1, angle, 0xFFFFFFFF);
+ *     ...
+ *     batcher.end();
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class SpriteBatcher {
+
+    private static final String TAG = Constants.TAG;
+
+    /** Largest number of sprites in one batch (indices must fit in an unsigned short). */
+    public static final int MAX_SPRITES = 16383;
+
+    // x, y, u, v, color
+    private static final int VERTEX_SIZE = 5;
+    private static final int VERTICES_PER_SPRITE = 4;
+    private static final int INDICES_PER_SPRITE = 6;
+    private static final int BYTES_PER_INT = 4;
+    private static final int BYTES_PER_SHORT = 2;
+
+    // x, y (top left), width axis x, y, height axis x, y, u1, v1, u2, v2, color
+    private static final int INSTANCE_SIZE = 11;
+    private static final int MATRIX_BYTES = 16 * 4;
+    private static final int CAMERA_BINDING = 0;
+
+    private final int mMaxSprites;
+    private final boolean mInstanced;
+    private final int[] mVertexData;
+    private final IntBuffer mVertices;
+
+    private int mProgram;
+    private int mPositionLocation;
+    private int mTexCoordLocation;
+    private int mColorLocation;
+    private int mSamplerLocation;
+    private int mMVPMatrixLocation;
+
+    private final int[] vbo = new int[1];
+    private final int[] ibo = new int[1];
+
+    // ES 3.0 only: quad corners, vertex array object and camera uniform buffer
+    private final int[] cornerVbo = new int[1];
+    private final int[] vao = new int[1];
+    private final int[] ubo = new int[1];
+    private FloatBuffer mCameraData;
+
+    private int mTexId;
+    private int mSpriteCount;
+    private boolean mDrawing;
+
+    private int mDrawCalls;
+    private int mSpritesDrawn;
+    private int mTextureSwitches;
+    private int mLargestBatch;
+
+    /**
+     * SpriteBatcher constructor. Must be called on the GL thread.
+     *
+     * @param maxSprites maximum number of sprites per draw call (at most MAX_SPRITES)
+     */
+    public SpriteBatcher(int maxSprites) {
+        mMaxSprites = Math.max(1, Math.min(maxSprites, MAX_SPRITES));
+        mInstanced = GLCapabilities.isES3();
+        mVertexData = new int[mMaxSprites * (mInstanced ? INSTANCE_SIZE : VERTICES_PER_SPRITE * VERTEX_SIZE)];
+        mVertices = ByteBuffer.allocateDirect(mVertexData.length * BYTES_PER_INT)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        if (mInstanced) {
+            setupInstancedData();
+        } else {
+            setupData();
+        }
+    }
+
+    /**
+     * Starts a batch. Sprites may only be drawn between begin() and end().
+     *
+     * @param vpMatrix the view projection matrix the sprites are drawn with
+     */
+    public void begin(float[] vpMatrix) {
+        if (mDrawing) {
+            throw new IllegalStateException("end() must be called before begin()");
+        }
+        mDrawing = true;
+        mTexId = 0;
+        mSpriteCount = 0;
+        mDrawCalls = 0;
+        mSpritesDrawn = 0;
+        mTextureSwitches = 0;
+        mLargestBatch = 0;
+
+        GLES20.glUseProgram(mProgram);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glUniform1i(mSamplerLocation, 0);
+
+        if (mInstanced) {
+            beginInstanced(vpMatrix);
+            return;
+        }
+        GLES20.glUniformMatrix4fv(mMVPMatrixLocation, 1, false, vpMatrix, 0);
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+
+        final int stride = VERTEX_SIZE * BYTES_PER_INT;
+        GLES20.glVertexAttribPointer(mPositionLocation, 2, GLES20.GL_FLOAT, false, stride, 0);
+        GLES20.glEnableVertexAttribArray(mPositionLocation);
+        GLES20.glVertexAttribPointer(mTexCoordLocation, 2, GLES20.GL_FLOAT, false, stride, 8);
+        GLES20.glEnableVertexAttribArray(mTexCoordLocation);
+        GLES20.glVertexAttribPointer(mColorLocation, 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 16);
+        GLES20.glEnableVertexAttribArray(mColorLocation);
+    }
+
+    /**
+     * Draws an atlas region with its top left corner at (x, y) and its pixel size.
+     *
+     * @param region the region to draw
+     * @param x left of the sprite
+     * @param y top of the sprite
+     */
+    public void draw(AtlasRegion region, float x, float y) {
+        draw(region.textureId, region.u1, region.v1, region.u2, region.v2,
+                x, y, region.width, region.height, 0, 0, 1, 1, 0, 0xFFFFFFFF);
+    }
+
+    /**
+     * Draws an atlas region.
+     *
+     * @param region the region to draw
+     * @param x x position of the sprite origin
+     * @param y y position of the sprite origin
+     * @param width width of the sprite
+     * @param height height of the sprite
+     * @param originX x offset of the origin from the left of the sprite
+     * @param originY y offset of the origin from the top of the sprite
+     * @param scaleX horizontal scale around the origin
+     * @param scaleY vertical scale around the origin
+     * @param rotation rotation around the origin in degrees (counter clockwise)
+     * @param color tint as an ARGB color int (ie. 0xFFFFFFFF for none)
+     */
+    public void draw(AtlasRegion region, float x, float y, float width, float height,
+                     float originX, float originY, float scaleX, float scaleY,
+                     float rotation, int color) {
+        draw(region.textureId, region.u1, region.v1, region.u2, region.v2,
+                x, y, width, height, originX, originY, scaleX, scaleY, rotation, color);
+    }
+
+    /**
+     * Draws a sprite. (x, y) is where the origin of the sprite is placed; with an origin of
+     * (0, 0) it is the top left corner of the unrotated sprite, with y pointing down the
+     * sprite. Flushes the batch if the texture changes or the batch is full.
+     *
+     * @param textureId the texture to draw from
+     * @param u1 left texture coordinate
+     * @param v1 top texture coordinate
+     * @param u2 right texture coordinate
+     * @param v2 bottom texture coordinate
+     * @param x x position of the sprite origin
+     * @param y y position of the sprite origin
+     * @param width width of the sprite
+     * @param height height of the sprite
+     * @param originX x offset of the origin from the left of the sprite
+     * @param originY y offset of the origin from the top of the sprite
+     * @param scaleX horizontal scale around the origin
+     * @param scaleY vertical scale around the origin
+     * @param rotation rotation around the origin in degrees (counter clockwise)
+     * @param color tint as an ARGB color int (ie. 0xFFFFFFFF for none)
+     */
+    public void draw(int textureId, float u1, float v1, float u2, float v2,
+                     float x, float y, float width, float height,
+                     float originX, float originY, float scaleX, float scaleY,
+                     float rotation, int color) {
+        if (!mDrawing) {
+            throw new IllegalStateException("begin() must be called before draw()");
+        }
+        if (textureId != mTexId) {
+            if (mSpriteCount > 0) {
+                mTextureSwitches++;
+            }
+            flush();
+            mTexId = textureId;
+        } else if (mSpriteCount == mMaxSprites) {
+            flush();
+        }
+
+        // corners relative to the origin, scaled; y is up in the scene so the sprite
+        // extends downwards from the top
+        final float left = -originX * scaleX;
+        final float right = (width - originX) * scaleX;
+        final float top = originY * scaleY;
+        final float bottom = (originY - height) * scaleY;
+
+        float cos = 1;
+        float sin = 0;
+        if (rotation != 0) {
+            final double rad = Math.toRadians(rotation);
+            cos = (float) Math.cos(rad);
+            sin = (float) Math.sin(rad);
+        }
+
+        final int packed = SpriteBatch.packColor(color);
+        final int[] data = mVertexData;
+
+        if (mInstanced) {
+            // the top left corner and the vectors along the top and down the left edge
+            final float w = right - left;
+            final float h = top - bottom;
+            int i = mSpriteCount * INSTANCE_SIZE;
+            data[i++] = Float.floatToRawIntBits(x + left * cos - top * sin);
+            data[i++] = Float.floatToRawIntBits(y + left * sin + top * cos);
+            data[i++] = Float.floatToRawIntBits(w * cos);
+            data[i++] = Float.floatToRawIntBits(w * sin);
+            data[i++] = Float.floatToRawIntBits(h * sin);
+            data[i++] = Float.floatToRawIntBits(-h * cos);
+            data[i++] = Float.floatToRawIntBits(u1);
+            data[i++] = Float.floatToRawIntBits(v1);
+            data[i++] = Float.floatToRawIntBits(u2);
+            data[i++] = Float.floatToRawIntBits(v2);
+            data[i] = packed;
+            mSpriteCount++;
+            return;
+        }
+
+        int i = mSpriteCount * VERTICES_PER_SPRITE * VERTEX_SIZE;
+
+        // top left, bottom left, bottom right, top right (same order as Image)
+        i = putVertex(data, i, x + left * cos - top * sin, y + left * sin + top * cos, u1, v1, packed);
+        i = putVertex(data, i, x + left * cos - bottom * sin, y + left * sin + bottom * cos, u1, v2, packed);
+        i = putVertex(data, i, x + right * cos - bottom * sin, y + right * sin + bottom * cos, u2, v2, packed);
+        putVertex(data, i, x + right * cos - top * sin, y + right * sin + top * cos, u2, v1, packed);
+
+        mSpriteCount++;
+    }
+
+    /**
+     * Renders the sprites batched so far.
+     */
+    public void flush() {
+        if (mSpriteCount == 0) {
+            return;
+        }
+
+        final int count = mSpriteCount * (mInstanced ? INSTANCE_SIZE : VERTICES_PER_SPRITE * VERTEX_SIZE);
+        mVertices.clear();
+        mVertices.put(mVertexData, 0, count);
+        mVertices.flip();
+        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, count * BYTES_PER_INT, mVertices);
+
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTexId);
+        if (mInstanced) {
+            drawInstanced(mSpriteCount);
+        } else {
+            GLES20.glDrawElements(GLES20.GL_TRIANGLES, mSpriteCount * INDICES_PER_SPRITE,
+                    GLES20.GL_UNSIGNED_SHORT, 0);
+        }
+
+        mDrawCalls++;
+        mSpritesDrawn += mSpriteCount;
+        mLargestBatch = Math.max(mLargestBatch, mSpriteCount);
+        mSpriteCount = 0;
+    }
+
+    /**
+     * Renders any remaining sprites and ends the batch.
+     */
+    public void end() {
+        if (!mDrawing) {
+            throw new IllegalStateException("begin() must be called before end()");
+        }
+        flush();
+        mDrawing = false;
+
+        if (mInstanced) {
+            endInstanced();
+            return;
+        }
+        GLES20.glDisableVertexAttribArray(mPositionLocation);
+        GLES20.glDisableVertexAttribArray(mTexCoordLocation);
+        GLES20.glDisableVertexAttribArray(mColorLocation);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * @return number of draw calls issued since begin()
+     */
+    public int getDrawCalls() {
+        return mDrawCalls;
+    }
+
+    /**
+     * @return number of sprites rendered since begin()
+     */
+    public int getSpritesDrawn() {
+        return mSpritesDrawn;
+    }
+
+    /**
+     * @return number of flushes since begin() caused by a texture change
+     */
+    public int getTextureSwitches() {
+        return mTextureSwitches;
+    }
+
+    /**
+     * @return largest number of sprites rendered in one draw call since begin()
+     */
+    public int getLargestBatch() {
+        return mLargestBatch;
+    }
+
+    /**
+     * @return maximum number of sprites per draw call
+     */
+    public int getMaxSprites() {
+        return mMaxSprites;
+    }
+
+    public void cleanup() {
+        if (vbo[0] > 0) {
+            GLES20.glDeleteBuffers(vbo.length, vbo, 0);
+            vbo[0] = 0;
+        }
+
+        if (ibo[0] > 0) {
+            GLES20.glDeleteBuffers(ibo.length, ibo, 0);
+            ibo[0] = 0;
+        }
+
+        if (mInstanced) {
+            cleanupInstanced();
+        }
+
+        if (mProgram != 0) {
+            GLES20.glDeleteProgram(mProgram);
+            mProgram = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Creates the program and buffers. The index buffer never changes; the vertex buffer is
+     * allocated once and refilled with glBufferSubData on every flush.
+     */
+    private void setupData() {
+        final String vertexShaderCode =
+            "uniform mat4 uMVPMatrix;" +
+            "attribute vec4 aPosition;" +
+            "attribute vec2 aTexCoord;" +
+            "attribute vec4 aColor;" +
+            "varying vec2 vTexCoord;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "    gl_Position = uMVPMatrix * aPosition;" +
+            "    vTexCoord = aTexCoord;" +
+            "    vColor = aColor;" +
+            "}";
+
+        final String fragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec2 vTexCoord;" +
+            "varying vec4 vColor;" +
+            "uniform sampler2D sTexture;" +
+            "void main() {" +
+            "    gl_FragColor = texture2D(sTexture, vTexCoord) * vColor;" +
+            "}";
+        // Create program from shaders
+        mProgram = GraphicUtils.loadProgram(vertexShaderCode, fragmentShaderCode);
+
+        // Get locations
+        mPositionLocation = GLES20.glGetAttribLocation(mProgram, "aPosition");
+        mTexCoordLocation = GLES20.glGetAttribLocation(mProgram, "aTexCoord");
+        mColorLocation = GLES20.glGetAttribLocation(mProgram, "aColor");
+        mSamplerLocation = GLES20.glGetUniformLocation(mProgram, "sTexture");
+        mMVPMatrixLocation = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+
+        final short[] indicesData = new short[mMaxSprites * INDICES_PER_SPRITE];
+        for (int i = 0, j = 0; i < indicesData.length; i += INDICES_PER_SPRITE, j += VERTICES_PER_SPRITE) {
+            indicesData[i] = (short) j;
+            indicesData[i + 1] = (short) (j + 1);
+            indicesData[i + 2] = (short) (j + 2);
+            indicesData[i + 3] = (short) j;
+            indicesData[i + 4] = (short) (j + 2);
+            indicesData[i + 5] = (short) (j + 3);
+        }
+        ShortBuffer indices = ByteBuffer.allocateDirect(indicesData.length * BYTES_PER_SHORT)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        indices.put(indicesData).position(0);
+
+        GLES20.glGenBuffers(1, vbo, 0);
+        GLES20.glGenBuffers(1, ibo, 0);
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVertexData.length * BYTES_PER_INT,
+                null, GLES20.GL_DYNAMIC_DRAW);
+
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.capacity() * BYTES_PER_SHORT,
+                indices, GLES20.GL_STATIC_DRAW);
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Creates the ES 3.0 program and buffers: a static buffer with the four quad corners and
+     * the index buffer of one quad, a dynamic per-instance buffer refilled on every flush, and
+     * a uniform buffer for the view projection matrix, all recorded in one vertex array object.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void setupInstancedData() {
+        final String vertexShaderCode =
+            "#version 300 es\n" +
+            "layout(std140) uniform Camera {" +
+            "    mat4 uVPMatrix;" +
+            "};" +
+            "in vec2 aCorner;" +
+            "in vec2 aTopLeft;" +
+            "in vec4 aAxes;" +
+            "in vec4 aTexRegion;" +
+            "in vec4 aColor;" +
+            "out vec2 vTexCoord;" +
+            "out vec4 vColor;" +
+            "void main() {" +
+            "    vec2 p = aTopLeft + aCorner.x * aAxes.xy + aCorner.y * aAxes.zw;" +
+            "    gl_Position = uVPMatrix * vec4(p, 0.0, 1.0);" +
+            "    vTexCoord = mix(aTexRegion.xy, aTexRegion.zw, aCorner);" +
+            "    vColor = aColor;" +
+            "}";
+
+        final String fragmentShaderCode =
+            "#version 300 es\n" +
+            "precision mediump float;" +
+            "in vec2 vTexCoord;" +
+            "in vec4 vColor;" +
+            "uniform sampler2D sTexture;" +
+            "out vec4 fragColor;" +
+            "void main() {" +
+            "    fragColor = texture(sTexture, vTexCoord) * vColor;" +
+            "}";
+        // Create program from shaders
+        mProgram = GraphicUtils.loadProgram(vertexShaderCode, fragmentShaderCode);
+
+        // Get locations
+        final int cornerLocation = GLES20.glGetAttribLocation(mProgram, "aCorner");
+        final int topLeftLocation = GLES20.glGetAttribLocation(mProgram, "aTopLeft");
+        final int axesLocation = GLES20.glGetAttribLocation(mProgram, "aAxes");
+        final int texRegionLocation = GLES20.glGetAttribLocation(mProgram, "aTexRegion");
+        mColorLocation = GLES20.glGetAttribLocation(mProgram, "aColor");
+        mSamplerLocation = GLES20.glGetUniformLocation(mProgram, "sTexture");
+        final int cameraIndex = GLES30.glGetUniformBlockIndex(mProgram, "Camera");
+        GLES30.glUniformBlockBinding(mProgram, cameraIndex, CAMERA_BINDING);
+
+        // top left, bottom left, bottom right, top right in (width, height) units
+        final float[] corners = { 0, 0, 0, 1, 1, 1, 1, 0 };
+        final short[] indicesData = { 0, 1, 2, 0, 2, 3 };
+        ShortBuffer indices = ByteBuffer.allocateDirect(indicesData.length * BYTES_PER_SHORT)
+                .order(ByteOrder.nativeOrder()).asShortBuffer();
+        indices.put(indicesData).position(0);
+        FloatBuffer cornerBuffer = ByteBuffer.allocateDirect(corners.length * BYTES_PER_INT)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        cornerBuffer.put(corners).position(0);
+        mCameraData = ByteBuffer.allocateDirect(MATRIX_BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+        GLES20.glGenBuffers(1, vbo, 0);
+        GLES20.glGenBuffers(1, ibo, 0);
+        GLES20.glGenBuffers(1, cornerVbo, 0);
+        GLES20.glGenBuffers(1, ubo, 0);
+        GLES30.glGenVertexArrays(1, vao, 0);
+
+        GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+        GLES20.glBufferData(GLES30.GL_UNIFORM_BUFFER, MATRIX_BYTES, null, GLES20.GL_DYNAMIC_DRAW);
+        GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+
+        GLES30.glBindVertexArray(vao[0]);
+
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.capacity() * BYTES_PER_SHORT,
+                indices, GLES20.GL_STATIC_DRAW);
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, cornerVbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, cornerBuffer.capacity() * BYTES_PER_INT,
+                cornerBuffer, GLES20.GL_STATIC_DRAW);
+        GLES20.glVertexAttribPointer(cornerLocation, 2, GLES20.GL_FLOAT, false, 0, 0);
+        GLES20.glEnableVertexAttribArray(cornerLocation);
+
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVertexData.length * BYTES_PER_INT,
+                null, GLES20.GL_DYNAMIC_DRAW);
+        final int stride = INSTANCE_SIZE * BYTES_PER_INT;
+        GLES20.glVertexAttribPointer(topLeftLocation, 2, GLES20.GL_FLOAT, false, stride, 0);
+        GLES20.glVertexAttribPointer(axesLocation, 4, GLES20.GL_FLOAT, false, stride, 8);
+        GLES20.glVertexAttribPointer(texRegionLocation, 4, GLES20.GL_FLOAT, false, stride, 24);
+        GLES20.glVertexAttribPointer(mColorLocation, 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 40);
+        final int[] perInstance = { topLeftLocation, axesLocation, texRegionLocation, mColorLocation };
+        for (int location : perInstance) {
+            GLES20.glEnableVertexAttribArray(location);
+            GLES30.glVertexAttribDivisor(location, 1);
+        }
+
+        GLES30.glBindVertexArray(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void beginInstanced(float[] vpMatrix) {
+        mCameraData.clear();
+        mCameraData.put(vpMatrix, 0, 16).flip();
+        GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+        GLES20.glBufferSubData(GLES30.GL_UNIFORM_BUFFER, 0, MATRIX_BYTES, mCameraData);
+        GLES30.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, CAMERA_BINDING, ubo[0]);
+
+        GLES30.glBindVertexArray(vao[0]);
+        // flush() refills the instance buffer
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void drawInstanced(int count) {
+        GLES30.glDrawElementsInstanced(GLES20.GL_TRIANGLES, INDICES_PER_SPRITE,
+                GLES20.GL_UNSIGNED_SHORT, 0, count);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void endInstanced() {
+        GLES30.glBindVertexArray(0);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void cleanupInstanced() {
+        if (vao[0] > 0) {
+            GLES30.glDeleteVertexArrays(vao.length, vao, 0);
+            vao[0] = 0;
+        }
+
+        if (cornerVbo[0] > 0) {
+            GLES20.glDeleteBuffers(cornerVbo.length, cornerVbo, 0);
+            cornerVbo[0] = 0;
+        }
+
+        if (ubo[0] > 0) {
+            GLES20.glDeleteBuffers(ubo.length, ubo, 0);
+            ubo[0] = 0;
+        }
+    }
+
+    private static int putVertex(int[] data, int i, float x, float y, float u, float v, int color) {
+        data[i] = Float.floatToRawIntBits(x);
+        data[i + 1] = Float.floatToRawIntBits(y);
+        data[i + 2] = Float.floatToRawIntBits(u);
+        data[i + 3] = Float.floatToRawIntBits(v);
+        data[i + 4] = color;
+        return i + VERTEX_SIZE;
+    }
+}
@@ -0,0 +1,478 @@
+package org.cbateman.opengl;
+
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+
+/**
+ * A tight mesh for a sprite with transparent areas, built from the alpha channel of its
+ * image. The outer hull is a convex polygon around every pixel that is not fully
+ * transparent, so the transparent corners of round sprites are not shaded. The optional
+ * interior is a convex polygon in which every sample is fully opaque; it can be drawn
+ * without blending. Both are given in texture coordinates of the image (0-1, v down), in
+ * order of increasing angle in (u, v).
+ *
+ * Several images (ie. the frames of a button) can share one mesh: the hull then covers
+ * the visible pixels of every frame and the interior is opaque in every frame. Images
+ * without a visible pixel get a mesh with no vertices, so nothing is drawn.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class SpriteMesh {
+
+    // Directions of the hull and interior edges
+    private static final int DIRECTIONS = 16;
+    // A hull covering more of the quad than this is not worth the extra triangles
+    private static final float MAX_HULL_AREA = 0.9f;
+    // An interior covering less than this is not worth a separate draw
+    private static final float MIN_INTERIOR_AREA = 0.1f;
+    private static final int INTERIOR_ATTEMPTS = 8;
+    private static final float INTERIOR_SHRINK = 0.95f;
+    private static final float EPSILON = 1e-4f;
+
+    private static final float[] COS = new float[DIRECTIONS];
+    private static final float[] SIN = new float[DIRECTIONS];
+
+    static {
+        for (int i = 0; i < DIRECTIONS; i++) {
+            final double angle = 2 * Math.PI * i / DIRECTIONS;
+            COS[i] = (float) Math.cos(angle);
+            SIN[i] = (float) Math.sin(angle);
+        }
+    }
+
+    private final float[] mHull;
+    private final float[] mInterior;
+
+    private SpriteMesh(float[] hull, float[] interior) {
+        mHull = hull;
+        mInterior = interior;
+    }
+
+    /**
+     * Builds the mesh of one or more images.
+     *
+     * @param bitmaps the images (not recycled)
+     * @return the mesh (empty if no pixel is visible), or null if the plain quad is about
+     *         as tight
+     */
+    public static SpriteMesh fromBitmaps(Bitmap... bitmaps) {
+        final int[][] pixels = new int[bitmaps.length][];
+        final int[] widths = new int[bitmaps.length];
+        final int[] heights = new int[bitmaps.length];
+        for (int i = 0; i < bitmaps.length; i++) {
+            widths[i] = bitmaps[i].getWidth();
+            heights[i] = bitmaps[i].getHeight();
+            pixels[i] = new int[widths[i] * heights[i]];
+            bitmaps[i].getPixels(pixels[i], 0, widths[i], 0, 0, widths[i], heights[i]);
+        }
+        return fromPixels(pixels, widths, heights);
+    }
+
+    /**
+     * Builds the mesh of one or more images given as ARGB pixels.
+     *
+     * @param pixels for each image, its ARGB pixels row by row
+     * @param widths for each image, its width
+     * @param heights for each image, its height
+     * @return the mesh (empty if no pixel is visible), or null if the plain quad is about
+     *         as tight
+     */
+    public static SpriteMesh fromPixels(int[][] pixels, int[] widths, int[] heights) {
+        final float[] hull = buildHull(pixels, widths, heights);
+        if (hull == null) {
+            return new SpriteMesh(new float[0], new float[0]);
+        }
+        if (area(hull) > MAX_HULL_AREA) {
+            return null;
+        }
+
+        final boolean[][] solid = new boolean[pixels.length][];
+        for (int f = 0; f < pixels.length; f++) {
+            solid[f] = erodeOpaque(pixels[f], widths[f], heights[f]);
+        }
+        float[] interior = buildInterior(solid, widths, heights);
+        if (interior != null && area(interior) < MIN_INTERIOR_AREA) {
+            interior = null;
+        }
+        return new SpriteMesh(hull, interior != null ? interior : new float[0]);
+    }
+
+    /**
+     * @return the outer hull as u, v pairs; empty if no pixel is visible
+     */
+    public float[] getHull() {
+        return mHull;
+    }
+
+    /**
+     * @return the opaque interior as u, v pairs; empty if there is none
+     */
+    public float[] getInterior() {
+        return mInterior;
+    }
+
+    /**
+     * @return the area of the outer hull as a fraction of the quad
+     */
+    public float getHullArea() {
+        return area(mHull);
+    }
+
+    /**
+     * @return the area of the interior as a fraction of the quad
+     */
+    public float getInteriorArea() {
+        return area(mInterior);
+    }
+
+    /**
+     * @return number of indices of the interior triangles (0 if there is no interior)
+     */
+    public int getOpaqueIndexCount() {
+        final int m = mInterior.length / 2;
+        return m > 0 ? 3 * (m - 2) : 0;
+    }
+
+    /**
+     * @return number of indices of the ring triangles (or of the hull fan; 0 if the hull is
+     *         empty)
+     */
+    public int getBlendedIndexCount() {
+        final int n = mHull.length / 2;
+        final int m = mInterior.length / 2;
+        return m > 0 ? 3 * (n + m) : n > 0 ? 3 * (n - 2) : 0;
+    }
+
+    /**
+     * Triangulates the interior (a fan) and the ring between the interior and the hull.
+     * Vertices are numbered hull first, then interior; every triangle has the winding of
+     * the polygons.
+     *
+     * @param opaque receives the interior triangles; length 3 * (interior vertices - 2)
+     * @param blended receives the ring triangles (or the hull fan if there is no
+     *                interior); length 3 * (hull vertices + interior vertices), or
+     *                3 * (hull vertices - 2) without an interior
+     */
+    public void triangulate(short[] opaque, short[] blended) {
+        final int n = mHull.length / 2;
+        final int m = mInterior.length / 2;
+        if (m == 0) {
+            fan(blended, 0, n);
+            return;
+        }
+        fan(opaque, n, m);
+
+        // walk around both polygons; a hull vertex is joined to each interior edge it sees
+        // before moving on. Start at the interior vertex that ends the chain of edges seen
+        // from hull vertex 0, so that the chain is what remains when the walk returns there.
+        int i0 = 0;
+        for (int j = 0; j < m; j++) {
+            if (sees(mHull, 0, mInterior, (j + m - 1) % m) && !sees(mHull, 0, mInterior, j)) {
+                i0 = j;
+                break;
+            }
+        }
+
+        int i = 0, j = 0, t = 0;
+        while (i < n || j < m) {
+            final int o = i % n;
+            final int in = (i0 + j) % m;
+            if (j < m && (i == n || sees(mHull, o, mInterior, in))) {
+                // wound like the polygons: the hull vertex is outside the interior edge
+                blended[t++] = (short) o;
+                blended[t++] = (short) (n + (in + 1) % m);
+                blended[t++] = (short) (n + in);
+                j++;
+            } else {
+                blended[t++] = (short) o;
+                blended[t++] = (short) ((o + 1) % n);
+                blended[t++] = (short) (n + in);
+                i++;
+            }
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Intersection of the half planes in DIRECTIONS directions that support the visible
+     * pixels of all images, each pixel widened by half a texel for bilinear filtering.
+     */
+    private static float[] buildHull(int[][] pixels, int[] widths, int[] heights) {
+        final float[] support = new float[DIRECTIONS];
+        Arrays.fill(support, Float.NEGATIVE_INFINITY);
+        boolean any = false;
+
+        for (int f = 0; f < pixels.length; f++) {
+            final int w = widths[f], h = heights[f];
+            final int[] p = pixels[f];
+            for (int y = 0; y < h; y++) {
+                int minX = -1, maxX = -1;
+                for (int x = 0; x < w; x++) {
+                    if ((p[y * w + x] >>> 24) != 0) {
+                        if (minX < 0) {
+                            minX = x;
+                        }
+                        maxX = x;
+                    }
+                }
+                if (minX < 0) {
+                    continue;
+                }
+                any = true;
+                final float u0 = (minX - 0.5f) / w, u1 = (maxX + 1.5f) / w;
+                final float v0 = (y - 0.5f) / h, v1 = (y + 1.5f) / h;
+                for (int d = 0; d < DIRECTIONS; d++) {
+                    final float s = Math.max(Math.max(u0 * COS[d] + v0 * SIN[d], u1 * COS[d] + v0 * SIN[d]),
+                            Math.max(u0 * COS[d] + v1 * SIN[d], u1 * COS[d] + v1 * SIN[d]));
+                    if (s > support[d]) {
+                        support[d] = s;
+                    }
+                }
+            }
+        }
+        if (!any) {
+            return null;
+        }
+
+        // keep the hull inside the quad (directions 0, 4, 8 and 12 are the axes)
+        final int q = DIRECTIONS / 4;
+        support[0] = Math.min(support[0], 1.0f);
+        support[q] = Math.min(support[q], 1.0f);
+        support[2 * q] = Math.min(support[2 * q], 0.0f);
+        support[3 * q] = Math.min(support[3 * q], 0.0f);
+
+        // clip the quad by each half plane
+        float[] polygon = { 0, 0, 1, 0, 1, 1, 0, 1 };
+        for (int d = 0; d < DIRECTIONS && polygon != null; d++) {
+            polygon = clip(polygon, COS[d], SIN[d], support[d]);
+        }
+        return polygon;
+    }
+
+    /**
+     * Texels that are opaque along with their 8 neighbours: any bilinear sample inside
+     * such a texel only reads opaque texels.
+     */
+    private static boolean[] erodeOpaque(int[] pixels, int w, int h) {
+        final boolean[] solid = new boolean[w * h];
+        for (int y = 1; y < h - 1; y++) {
+            for (int x = 1; x < w - 1; x++) {
+                boolean opaque = true;
+                for (int dy = -1; dy <= 1 && opaque; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if ((pixels[(y + dy) * w + x + dx] >>> 24) != 0xFF) {
+                            opaque = false;
+                            break;
+                        }
+                    }
+                }
+                solid[y * w + x] = opaque;
+            }
+        }
+        return solid;
+    }
+
+    /**
+     * A convex polygon around the centroid of the solid texels, with a vertex where a ray in
+     * each direction leaves the solid area, shrunk until every texel it touches is solid in
+     * every image.
+     */
+    private static float[] buildInterior(boolean[][] solid, int[] widths, int[] heights) {
+        // centroid of the texels that are solid in every image, sampled on the first image
+        final int w0 = widths[0], h0 = heights[0];
+        double sx = 0, sy = 0;
+        int count = 0;
+        for (int y = 0; y < h0; y++) {
+            for (int x = 0; x < w0; x++) {
+                final float u = (x + 0.5f) / w0, v = (y + 0.5f) / h0;
+                if (isSolid(solid, widths, heights, u, v)) {
+                    sx += u;
+                    sy += v;
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        final float cx = (float) (sx / count), cy = (float) (sy / count);
+        if (!isSolid(solid, widths, heights, cx, cy)) {
+            // not star shaped around its centroid (ie. a ring)
+            return null;
+        }
+
+        float step = 1.0f;
+        for (int f = 0; f < widths.length; f++) {
+            step = Math.min(step, 0.5f / Math.max(widths[f], heights[f]));
+        }
+        final float[] polygon = new float[DIRECTIONS * 2];
+        for (int d = 0; d < DIRECTIONS; d++) {
+            float r = 0;
+            while (isSolid(solid, widths, heights, cx + (r + step) * COS[d], cy + (r + step) * SIN[d])) {
+                r += step;
+            }
+            // stay a texel and a half (three steps) away from the edge
+            r = Math.max(0, r - 3 * step);
+            polygon[2 * d] = cx + r * COS[d];
+            polygon[2 * d + 1] = cy + r * SIN[d];
+        }
+
+        float[] candidate = convexify(polygon);
+        for (int attempt = 0; attempt < INTERIOR_ATTEMPTS && candidate != null; attempt++) {
+            if (coversOnlySolid(candidate, solid, widths, heights)) {
+                return candidate;
+            }
+            for (int k = 0; k < candidate.length; k += 2) {
+                candidate[k] = cx + (candidate[k] - cx) * INTERIOR_SHRINK;
+                candidate[k + 1] = cy + (candidate[k + 1] - cy) * INTERIOR_SHRINK;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSolid(boolean[][] solid, int[] widths, int[] heights, float u, float v) {
+        for (int f = 0; f < solid.length; f++) {
+            final int x = (int) Math.floor(u * widths[f]);
+            final int y = (int) Math.floor(v * heights[f]);
+            if (x < 0 || y < 0 || x >= widths[f] || y >= heights[f] || !solid[f][y * widths[f] + x]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if every texel the convex polygon may touch is solid in every image. A
+     * texel is counted as touched if its centre is within half a texel diagonal of every
+     * edge line, which includes every texel the polygon overlaps.
+     */
+    private static boolean coversOnlySolid(float[] polygon, boolean[][] solid, int[] widths, int[] heights) {
+        final int n = polygon.length / 2;
+        for (int f = 0; f < solid.length; f++) {
+            final int w = widths[f], h = heights[f];
+            final float reach = 0.7072f;
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    if (solid[f][y * w + x]) {
+                        continue;
+                    }
+                    // signed distance to each edge in texels; outside if beyond any edge
+                    final float px = x + 0.5f, py = y + 0.5f;
+                    boolean inside = true;
+                    for (int k = 0; k < n && inside; k++) {
+                        final float ax = polygon[2 * k] * w, ay = polygon[2 * k + 1] * h;
+                        final int k1 = (k + 1) % n;
+                        final float bx = polygon[2 * k1] * w, by = polygon[2 * k1 + 1] * h;
+                        final float ex = bx - ax, ey = by - ay;
+                        final float len = (float) Math.sqrt(ex * ex + ey * ey);
+                        if (len < EPSILON) {
+                            continue;
+                        }
+                        // outward normal for vertices in order of increasing angle: (ey, -ex)
+                        final float dist = ((px - ax) * ey - (py - ay) * ex) / len;
+                        if (dist > reach) {
+                            inside = false;
+                        }
+                    }
+                    if (inside) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Clips a convex polygon to the half plane a * u + b * v <= c, removing near duplicate
+     * vertices.
+     */
+    private static float[] clip(float[] polygon, float a, float b, float c) {
+        final int n = polygon.length / 2;
+        final float[] out = new float[(n + 1) * 2];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            final int j = (i + 1) % n;
+            final float ui = polygon[2 * i], vi = polygon[2 * i + 1];
+            final float uj = polygon[2 * j], vj = polygon[2 * j + 1];
+            final float di = a * ui + b * vi - c;
+            final float dj = a * uj + b * vj - c;
+            if (di <= 0) {
+                count = add(out, count, ui, vi);
+            }
+            if ((di < 0 && dj > 0) || (di > 0 && dj < 0)) {
+                final float t = di / (di - dj);
+                count = add(out, count, ui + t * (uj - ui), vi + t * (vj - vi));
+            }
+        }
+        if (count > 1 && Math.abs(out[0] - out[2 * count - 2]) < EPSILON
+                && Math.abs(out[1] - out[2 * count - 1]) < EPSILON) {
+            count--;
+        }
+        return count >= 3 ? Arrays.copyOf(out, count * 2) : null;
+    }
+
+    private static int add(float[] out, int count, float u, float v) {
+        if (count > 0 && Math.abs(u - out[2 * count - 2]) < EPSILON && Math.abs(v - out[2 * count - 1]) < EPSILON) {
+            return count;
+        }
+        out[2 * count] = u;
+        out[2 * count + 1] = v;
+        return count + 1;
+    }
+
+    /**
+     * Removes the vertices of a polygon in angular order that would make it concave.
+     */
+    private static float[] convexify(float[] polygon) {
+        int n = polygon.length / 2;
+        final float[] p = polygon.clone();
+        boolean changed = true;
+        while (changed && n >= 3) {
+            changed = false;
+            for (int i = 0; i < n; i++) {
+                final int a = (i + n - 1) % n, b = (i + 1) % n;
+                final float cross = (p[2 * i] - p[2 * a]) * (p[2 * b + 1] - p[2 * i + 1])
+                        - (p[2 * i + 1] - p[2 * a + 1]) * (p[2 * b] - p[2 * i]);
+                if (cross <= EPSILON * EPSILON) {
+                    System.arraycopy(p, 2 * i + 2, p, 2 * i, 2 * (n - i - 1));
+                    n--;
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return n >= 3 ? Arrays.copyOf(p, n * 2) : null;
+    }
+
+    private static float area(float[] polygon) {
+        final int n = polygon.length / 2;
+        float sum = 0;
+        for (int i = 0; i < n; i++) {
+            final int j = (i + 1) % n;
+            sum += polygon[2 * i] * polygon[2 * j + 1] - polygon[2 * j] * polygon[2 * i + 1];
+        }
+        return Math.abs(sum) / 2;
+    }
+
+    private static void fan(short[] out, int first, int count) {
+        for (int k = 1, t = 0; k < count - 1; k++) {
+            out[t++] = (short) first;
+            out[t++] = (short) (first + k);
+            out[t++] = (short) (first + k + 1);
+        }
+    }
+
+    /**
+     * Returns true if hull vertex i is outside the line of interior edge j (from vertex j to
+     * j + 1), so it sees that edge.
+     */
+    private static boolean sees(float[] hull, int i, float[] interior, int j) {
+        final int m = interior.length / 2;
+        final int k = (j + 1) % m;
+        final float ax = interior[2 * j], ay = interior[2 * j + 1];
+        final float ex = interior[2 * k] - ax, ey = interior[2 * k + 1] - ay;
+        return ex * (hull[2 * i + 1] - ay) - ey * (hull[2 * i] - ax) < 0;
+    }
+}
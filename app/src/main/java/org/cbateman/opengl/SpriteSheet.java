@@ -0,0 +1,183 @@
+package org.cbateman.opengl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A texture holding several frames (button states, animation frames), each an AtlasRegion.
+ * Switching between frames of a sheet only changes texture coordinates, never the texture.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class SpriteSheet {
+
+    private static final String TAG = Constants.TAG;
+
+    // Transparent pixels between packed frames so filtering never samples a neighbour
+    private static final int GUTTER = 2;
+
+    private final int mTextureId;
+    private final AtlasRegion[] mFrames;
+    private SpriteMesh mMesh;
+
+    /**
+     * SpriteSheet constructor.
+     *
+     * @param textureId the texture holding the frames
+     * @param frames the frames
+     */
+    public SpriteSheet(int textureId, AtlasRegion[] frames) {
+        mTextureId = textureId;
+        mFrames = frames;
+    }
+
+    /**
+     * Creates a sheet from a texture laid out as a grid of equally sized frames, read left to
+     * right and top to bottom.
+     *
+     * @param textureId the texture
+     * @param texWidth width of the texture in pixels
+     * @param texHeight height of the texture in pixels
+     * @param frameWidth width of a frame in pixels
+     * @param frameHeight height of a frame in pixels
+     * @param count number of frames (the last row may be partial)
+     * @return the sheet
+     */
+    public static SpriteSheet fromGrid(int textureId, int texWidth, int texHeight,
+                                       int frameWidth, int frameHeight, int count) {
+        final int columns = Math.max(1, texWidth / frameWidth);
+        final AtlasRegion[] frames = new AtlasRegion[count];
+        for (int i = 0; i < count; i++) {
+            frames[i] = new AtlasRegion(textureId, texWidth, texHeight,
+                    (i % columns) * frameWidth, (i / columns) * frameHeight, frameWidth, frameHeight);
+        }
+        return new SpriteSheet(textureId, frames);
+    }
+
+    /**
+     * Packs separate images into one texture, one frame per image (see fromBitmaps()).
+     *
+     * @param context interface to resources
+     * @param resIds raw resource ids of the images, in frame order
+     * @return the sheet
+     */
+    public static SpriteSheet fromResources(Context context, int... resIds) {
+        final Bitmap[] bitmaps = new Bitmap[resIds.length];
+        final BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        for (int i = 0; i < resIds.length; i++) {
+            final InputStream is = context.getResources().openRawResource(resIds[i]);
+            try {
+                bitmaps[i] = BitmapFactory.decodeStream(is, null, options);
+            } finally {
+                try {
+                    is.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+        return fromBitmaps(bitmaps);
+    }
+
+    /**
+     * Packs images into one texture, in a grid of cells the size of the largest image, read
+     * left to right and top to bottom, one frame per image. The images are recycled.
+     *
+     * @param bitmaps the images, in frame order
+     * @return the sheet
+     */
+    public static SpriteSheet fromBitmaps(Bitmap... bitmaps) {
+        int cellWidth = 0;
+        int cellHeight = 0;
+        for (Bitmap bitmap : bitmaps) {
+            cellWidth = Math.max(cellWidth, bitmap.getWidth());
+            cellHeight = Math.max(cellHeight, bitmap.getHeight());
+        }
+        final int columns = (int) Math.ceil(Math.sqrt(bitmaps.length));
+        final int rows = (bitmaps.length + columns - 1) / columns;
+        final int width = columns * (cellWidth + GUTTER) - GUTTER;
+        final int height = rows * (cellHeight + GUTTER) - GUTTER;
+
+        final Bitmap sheet = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        sheet.eraseColor(0x00000000);
+        final Canvas canvas = new Canvas(sheet);
+        final int[] x = new int[bitmaps.length];
+        final int[] y = new int[bitmaps.length];
+        for (int i = 0; i < bitmaps.length; i++) {
+            x[i] = (i % columns) * (cellWidth + GUTTER);
+            y[i] = (i / columns) * (cellHeight + GUTTER);
+            canvas.drawBitmap(bitmaps[i], x[i], y[i], null);
+        }
+
+        final int[] textureId = new int[1];
+        GLES20.glGenTextures(1, textureId, 0);
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId[0]);
+        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, sheet, 0);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        // One mesh for all frames (in frame texture coordinates), built before recycling
+        final SpriteMesh mesh = SpriteMesh.fromBitmaps(bitmaps);
+
+        final AtlasRegion[] frames = new AtlasRegion[bitmaps.length];
+        for (int i = 0; i < bitmaps.length; i++) {
+            frames[i] = new AtlasRegion(textureId[0], width, height, x[i], y[i],
+                    bitmaps[i].getWidth(), bitmaps[i].getHeight());
+            bitmaps[i].recycle();
+        }
+        sheet.recycle();
+
+        Log.i(TAG, "SpriteSheet packed " + frames.length + " frames into " + width + "x" + height);
+        final SpriteSheet spriteSheet = new SpriteSheet(textureId[0], frames);
+        spriteSheet.mMesh = mesh;
+        return spriteSheet;
+    }
+
+    /**
+     * @return the alpha-trimmed mesh shared by the frames (in texture coordinates of a
+     *         frame), or null if the frames are drawn as plain quads
+     */
+    public SpriteMesh getMesh() {
+        return mMesh;
+    }
+
+    /**
+     * @return the texture holding the frames
+     */
+    public int getTextureId() {
+        return mTextureId;
+    }
+
+    /**
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return mFrames.length;
+    }
+
+    /**
+     * Returns a frame.
+     *
+     * @param index the frame index
+     * @return the frame
+     */
+    public AtlasRegion getFrame(int index) {
+        return mFrames[index];
+    }
+
+    public void cleanup() {
+        if (mTextureId != 0) {
+            GLES20.glDeleteTextures(1, new int[] { mTextureId }, 0);
+        }
+    }
+}
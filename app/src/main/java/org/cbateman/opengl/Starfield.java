@@ -0,0 +1,296 @@
+package org.cbateman.opengl;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A procedural starfield drawn as point sprites instead of a full-screen bitmap. Stars are
+ * generated from a seed: every star is derived from a hash of the seed and its index, so the
+ * result is the same on every run no matter how generation is split across threads. Each
+ * layer is a square tile of stars repeated across the view and moves with a fraction of the
+ * camera movement (parallax); stars twinkle in the vertex shader. Rotation of the camera is
+ * not applied to the starfield.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class Starfield {
+
+    private static final String TAG = Constants.TAG;
+
+    // x, y (0-1 in the tile), size, twinkle phase, color
+    private static final int VERTEX_SIZE = 5;
+    private static final int BYTES_PER_INT = 4;
+
+    // World size of a layer tile at zoom 1
+    private static final float TILE_SIZE = 2.0f;
+
+    // Generation is split into ranges of at least this many stars
+    private static final int MIN_STARS_PER_TASK = 256;
+
+    private final int mLayerCount;
+    private final int mStarsPerLayer;
+    private final float[] mParallax;
+
+    // Star attributes, layer by layer
+    private final float[] mX;
+    private final float[] mY;
+    private final float[] mSize;
+    private final float[] mPhase;
+    private final int[] mColor;
+
+    private int mProgram;
+    private int mPositionLocation;
+    private int mSizeLocation;
+    private int mPhaseLocation;
+    private int mColorLocation;
+    private int mMVPMatrixLocation;
+    private int mTileOriginLocation;
+    private int mTileSizeLocation;
+    private int mTimeLocation;
+    private int mPointScaleLocation;
+    private final int[] vbo = new int[1];
+    private float mPointScale = 1.0f;
+
+    private final float[] mProjectionMatrix = new float[16];
+    private final float[] mViewMatrix = new float[16];
+    private final float[] mVPMatrix = new float[16];
+
+    /**
+     * Starfield constructor. Must be called on the GL thread.
+     *
+     * @param seed the seed; the same seed always gives the same stars
+     * @param starsPerLayer stars in each layer tile
+     * @param parallax for each layer (back to front), the fraction of camera movement and
+     *                 zoom it follows; 1 moves with the world
+     */
+    public Starfield(long seed, int starsPerLayer, float... parallax) {
+        mLayerCount = parallax.length;
+        mStarsPerLayer = starsPerLayer;
+        mParallax = parallax.clone();
+
+        final int count = mLayerCount * starsPerLayer;
+        mX = new float[count];
+        mY = new float[count];
+        mSize = new float[count];
+        mPhase = new float[count];
+        mColor = new int[count];
+
+        final long start = System.nanoTime();
+        generate(seed, count);
+        Log.i(TAG, "Starfield generated " + count + " stars in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+
+        setupData(count);
+    }
+
+    /**
+     * Scales the star sizes, which are in pixels, so stars drawn into a scaled target keep
+     * their size on screen (see ResolutionScaler.getScale()).
+     *
+     * @param scale the scale (1 for the screen)
+     */
+    public void setPointScale(float scale) {
+        mPointScale = scale;
+    }
+
+    /**
+     * Draws all layers as seen through the camera.
+     *
+     * @param camera the camera
+     * @param time seconds since start, for twinkling
+     */
+    public void draw(Camera2D camera, float time) {
+        if (vbo[0] == 0) {
+            return;
+        }
+        GLES20.glUseProgram(mProgram);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+
+        final int stride = VERTEX_SIZE * BYTES_PER_INT;
+        GLES20.glVertexAttribPointer(mPositionLocation, 2, GLES20.GL_FLOAT, false, stride, 0);
+        GLES20.glEnableVertexAttribArray(mPositionLocation);
+        GLES20.glVertexAttribPointer(mSizeLocation, 1, GLES20.GL_FLOAT, false, stride, 8);
+        GLES20.glEnableVertexAttribArray(mSizeLocation);
+        GLES20.glVertexAttribPointer(mPhaseLocation, 1, GLES20.GL_FLOAT, false, stride, 12);
+        GLES20.glEnableVertexAttribArray(mPhaseLocation);
+        GLES20.glVertexAttribPointer(mColorLocation, 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 16);
+        GLES20.glEnableVertexAttribArray(mColorLocation);
+
+        GLES20.glUniform1f(mTimeLocation, time);
+        GLES20.glUniform1f(mTileSizeLocation, TILE_SIZE);
+        GLES20.glUniform1f(mPointScaleLocation, mPointScale);
+
+        for (int layer = 0; layer < mLayerCount; layer++) {
+            final float p = mParallax[layer];
+            final float zoom = 1.0f + (camera.getZoom() - 1.0f) * p;
+            final float cx = camera.getX() * p;
+            final float cy = camera.getY() * p;
+            final float hw = camera.getHalfWidth() / zoom;
+            final float hh = camera.getHalfHeight() / zoom;
+
+            Matrix.orthoM(mProjectionMatrix, 0, -hw, hw, -hh, hh, 3, 7);
+            Matrix.setLookAtM(mViewMatrix, 0, cx, cy, 3, cx, cy, 0, 0f, 1.0f, 0.0f);
+            Matrix.multiplyMM(mVPMatrix, 0, mProjectionMatrix, 0, mViewMatrix, 0);
+            GLES20.glUniformMatrix4fv(mMVPMatrixLocation, 1, false, mVPMatrix, 0);
+
+            // repeat the tile over the visible area
+            final int tx0 = (int) Math.floor((cx - hw) / TILE_SIZE);
+            final int tx1 = (int) Math.floor((cx + hw) / TILE_SIZE);
+            final int ty0 = (int) Math.floor((cy - hh) / TILE_SIZE);
+            final int ty1 = (int) Math.floor((cy + hh) / TILE_SIZE);
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    GLES20.glUniform2f(mTileOriginLocation, tx * TILE_SIZE, ty * TILE_SIZE);
+                    GLES20.glDrawArrays(GLES20.GL_POINTS, layer * mStarsPerLayer, mStarsPerLayer);
+                }
+            }
+        }
+
+        GLES20.glDisableVertexAttribArray(mPositionLocation);
+        GLES20.glDisableVertexAttribArray(mSizeLocation);
+        GLES20.glDisableVertexAttribArray(mPhaseLocation);
+        GLES20.glDisableVertexAttribArray(mColorLocation);
+        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+    }
+
+    public void cleanup() {
+        if (vbo[0] > 0) {
+            GLES20.glDeleteBuffers(vbo.length, vbo, 0);
+            vbo[0] = 0;
+        }
+
+        if (mProgram != 0) {
+            GLES20.glDeleteProgram(mProgram);
+            mProgram = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Generates all stars, split into ranges of at least MIN_STARS_PER_TASK across the
+     * shared WorkerPool.
+     */
+    private void generate(final long seed, final int count) {
+        final WorkerPool pool = WorkerPool.getShared();
+        final int tasks = Math.max(1, Math.min(pool.getParallelism(), count / MIN_STARS_PER_TASK));
+        final int step = (count + tasks - 1) / tasks;
+        final Runnable[] ranges = new Runnable[tasks];
+        for (int t = 0; t < tasks; t++) {
+            final int from = t * step;
+            final int to = Math.min(count, from + step);
+            ranges[t] = new Runnable() {
+                @Override
+                public void run() {
+                    generate(seed, from, to);
+                }
+            };
+        }
+        pool.newJoin(ranges).run(tasks);
+    }
+
+    private void generate(long seed, int from, int to) {
+        for (int i = from; i < to; i++) {
+            long h = mix(seed + i * 0x9E3779B97F4A7C15L);
+            mX[i] = unit(h);
+            h = mix(h);
+            mY[i] = unit(h);
+            h = mix(h);
+
+            // Many faint stars and few bright ones
+            final float magnitude = unit(h);
+            final float brightness = magnitude * magnitude * magnitude;
+            mSize[i] = 1.5f + 4.0f * brightness;
+            h = mix(h);
+            mPhase[i] = unit(h) * 6.2831855f;
+            h = mix(h);
+
+            // Blue-white to yellow-orange tint
+            final float temperature = unit(h);
+            final int r = 255;
+            final int g = (int) (215 + 40 * Math.min(1.0f, temperature * 1.5f));
+            final int b = (int) (170 + 85 * temperature);
+            final int a = (int) (90 + 165 * brightness);
+            // RGBA byte order of the vertex
+            mColor[i] = (a << 24) | (b << 16) | (g << 8) | r;
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer, used as a stateless random function.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static float unit(long h) {
+        return (h >>> 40) / (float) (1 << 24);
+    }
+
+    private void setupData(int count) {
+        final String vertexShaderCode =
+            "uniform mat4 uMVPMatrix;" +
+            "uniform vec2 uTileOrigin;" +
+            "uniform float uTileSize;" +
+            "uniform float uTime;" +
+            "uniform float uPointScale;" +
+            "attribute vec2 aPosition;" +
+            "attribute float aSize;" +
+            "attribute float aPhase;" +
+            "attribute vec4 aColor;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "    gl_Position = uMVPMatrix * vec4(uTileOrigin + aPosition * uTileSize, 0.0, 1.0);" +
+            "    gl_PointSize = aSize * uPointScale;" +
+            "    float twinkle = 0.75 + 0.25 * sin(uTime * (1.5 + fract(aPhase * 7.0) * 2.0) + aPhase);" +
+            "    vColor = vec4(aColor.rgb, aColor.a * twinkle);" +
+            "}";
+
+        final String fragmentShaderCode =
+            "precision mediump float;" +
+            "varying vec4 vColor;" +
+            "void main() {" +
+            "    float d = length(gl_PointCoord - vec2(0.5)) * 2.0;" +
+            "    gl_FragColor = vec4(vColor.rgb, vColor.a * (1.0 - smoothstep(0.3, 1.0, d)));" +
+            "}";
+        // Create program from shaders
+        mProgram = GraphicUtils.loadProgram(vertexShaderCode, fragmentShaderCode);
+
+        // Get locations
+        mPositionLocation = GLES20.glGetAttribLocation(mProgram, "aPosition");
+        mSizeLocation = GLES20.glGetAttribLocation(mProgram, "aSize");
+        mPhaseLocation = GLES20.glGetAttribLocation(mProgram, "aPhase");
+        mColorLocation = GLES20.glGetAttribLocation(mProgram, "aColor");
+        mMVPMatrixLocation = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+        mTileOriginLocation = GLES20.glGetUniformLocation(mProgram, "uTileOrigin");
+        mTileSizeLocation = GLES20.glGetUniformLocation(mProgram, "uTileSize");
+        mTimeLocation = GLES20.glGetUniformLocation(mProgram, "uTime");
+        mPointScaleLocation = GLES20.glGetUniformLocation(mProgram, "uPointScale");
+
+        final int[] data = new int[count * VERTEX_SIZE];
+        for (int i = 0, o = 0; i < count; i++, o += VERTEX_SIZE) {
+            data[o] = Float.floatToRawIntBits(mX[i]);
+            data[o + 1] = Float.floatToRawIntBits(mY[i]);
+            data[o + 2] = Float.floatToRawIntBits(mSize[i]);
+            data[o + 3] = Float.floatToRawIntBits(mPhase[i]);
+            data[o + 4] = mColor[i];
+        }
+        IntBuffer vertices = ByteBuffer.allocateDirect(data.length * BYTES_PER_INT)
+                .order(ByteOrder.nativeOrder()).asIntBuffer();
+        vertices.put(data).position(0);
+
+        GLES20.glGenBuffers(1, vbo, 0);
+        if (vbo[0] > 0) {
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, data.length * BYTES_PER_INT, vertices,
+                    GLES20.GL_STATIC_DRAW);
+            GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        }
+    }
+}
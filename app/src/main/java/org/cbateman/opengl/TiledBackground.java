@@ -0,0 +1,406 @@
+package org.cbateman.opengl;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
+import android.opengl.GLES20;
+import android.opengl.GLUtils;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Draws a large background image without ever decoding or uploading all of it. The image is
+ * split into TILE_SIZE tiles at several resolutions (level n is 2^n times smaller); only the
+ * tiles visible through the camera, at the resolution the current zoom needs, are decoded
+ * with a BitmapRegionDecoder on a worker thread. Decoded tiles are uploaded into the slots
+ * of one atlas texture that acts as a fixed-size LRU cache, sized to hold every tile that can
+ * be visible at once; a slot drawn in the current frame is never evicted. Until a tile
+ * arrives, the part of the lowest resolution tile covering it (always resident) or any other
+ * resident coarser tile is drawn instead. Tiles are drawn with a SpriteBatcher.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TiledBackground {
+
+    private static final String TAG = Constants.TAG;
+
+    public static final int TILE_SIZE = 256;
+
+    // Slot of the lowest resolution tile, which is never evicted
+    private static final int FALLBACK_SLOT = 0;
+    private static final int MAX_UPLOADS_PER_FRAME = 2;
+    private static final int MAX_PENDING = 8;
+    private static final long NO_TILE = -1;
+
+    private BitmapRegionDecoder mDecoder;
+    private final int mImageWidth, mImageHeight;
+    private final int mMaxLevel;
+
+    // World rectangle the image is drawn in
+    private final float mLeft, mTop;
+    private final float mWorldPerPixelX, mWorldPerPixelY;
+
+    private int mAtlasId;
+    private final int mSlotsPerRow;
+    private final int mAtlasWidth, mAtlasHeight;
+
+    // Atlas slots: the tile each holds, its size in pixels and when it was last drawn
+    private final int mSlotCount;
+    private final long[] mSlotKey;
+    private final int[] mSlotWidth;
+    private final int[] mSlotHeight;
+    private final int[] mSlotLastUsed;
+    private int mFrame;
+
+    // Tiles being decoded (GL thread) and decoded tiles waiting for upload (any thread)
+    private final long[] mPending = new long[MAX_PENDING];
+    private int mPendingCount;
+    private final ConcurrentLinkedQueue<DecodedTile> mDecoded = new ConcurrentLinkedQueue<>();
+    private final ExecutorService mExecutor;
+
+    /**
+     * TiledBackground constructor. Must be called on the GL thread.
+     *
+     * @param context interface to resources
+     * @param resId raw resource id of the image
+     * @param left world x of the left edge of the image
+     * @param top world y of the top edge of the image
+     * @param right world x of the right edge of the image
+     * @param bottom world y of the bottom edge of the image
+     * @param viewportWidth width of the viewport in pixels
+     * @param viewportHeight height of the viewport in pixels
+     */
+    public TiledBackground(Context context, int resId, float left, float top, float right, float bottom,
+                           int viewportWidth, int viewportHeight) {
+        InputStream is = context.getResources().openRawResource(resId);
+        try {
+            mDecoder = BitmapRegionDecoder.newInstance(is, false);
+        } catch (IOException e) {
+            Log.e(TAG, "Unable to open background image: " + e.getMessage());
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        mImageWidth = mDecoder != null ? mDecoder.getWidth() : 1;
+        mImageHeight = mDecoder != null ? mDecoder.getHeight() : 1;
+        int level = 0;
+        while (Math.max(mImageWidth, mImageHeight) > (TILE_SIZE << level)) {
+            level++;
+        }
+        mMaxLevel = level;
+
+        mLeft = left;
+        mTop = top;
+        mWorldPerPixelX = (right - left) / mImageWidth;
+        mWorldPerPixelY = (top - bottom) / mImageHeight;
+
+        // A drawn tile covers more than TILE_SIZE / 2 screen pixels (see draw()), so at most
+        // this many tiles are visible; each draws from one slot, plus the fallback slot
+        final int columns = (viewportWidth + TILE_SIZE / 2 - 1) / (TILE_SIZE / 2) + 1;
+        final int rows = (viewportHeight + TILE_SIZE / 2 - 1) / (TILE_SIZE / 2) + 1;
+        int slots = columns * rows + 1;
+        final int[] maxSize = new int[1];
+        GLES20.glGetIntegerv(GLES20.GL_MAX_TEXTURE_SIZE, maxSize, 0);
+        final int maxPerRow = Math.max(1, maxSize[0] / TILE_SIZE);
+        if (slots > maxPerRow * maxPerRow) {
+            Log.w(TAG, "TiledBackground atlas limited to " + maxPerRow * maxPerRow + " of " + slots + " tiles");
+            slots = maxPerRow * maxPerRow;
+        }
+        mSlotsPerRow = Math.min(maxPerRow, (int) Math.ceil(Math.sqrt(slots)));
+        mSlotCount = slots;
+        mAtlasWidth = mSlotsPerRow * TILE_SIZE;
+        mAtlasHeight = ((slots + mSlotsPerRow - 1) / mSlotsPerRow) * TILE_SIZE;
+
+        mSlotKey = new long[slots];
+        mSlotWidth = new int[slots];
+        mSlotHeight = new int[slots];
+        mSlotLastUsed = new int[slots];
+        for (int i = 0; i < slots; i++) {
+            mSlotKey[i] = NO_TILE;
+        }
+
+        int[] textureId = new int[1];
+        GLES20.glGenTextures(1, textureId, 0);
+        mAtlasId = textureId[0];
+        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mAtlasId);
+        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, mAtlasWidth, mAtlasHeight, 0,
+                GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, null);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        // BitmapRegionDecoder serializes decodes, so one worker is enough
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "TiledBackground");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        // The lowest resolution tile is decoded first and kept for the whole session
+        request(key(mMaxLevel, 0, 0));
+
+        Log.i(TAG, "TiledBackground constructed (" + mImageWidth + "x" + mImageHeight
+                + ", " + (mMaxLevel + 1) + " levels, " + mSlotCount + " slots)");
+    }
+
+    /**
+     * Draws the visible part of the image, requests missing tiles and then uploads decoded
+     * ones into slots not drawn this frame. Call between SpriteBatcher.begin() and end() with
+     * the camera's matrix.
+     *
+     * @param batcher the sprite batcher
+     * @param camera the camera the background is seen through
+     */
+    public void draw(SpriteBatcher batcher, Camera2D camera) {
+        if (mDecoder == null) {
+            return;
+        }
+        mFrame++;
+
+        // Pick the level whose pixels are closest to (but not smaller than) screen pixels
+        final float worldPerScreenPixel = (camera.getMaxX() - camera.getMinX()) / camera.getViewportWidth();
+        final float imagePerScreenPixel = worldPerScreenPixel / mWorldPerPixelX;
+        int level = 0;
+        while (level < mMaxLevel && (2 << level) <= imagePerScreenPixel) {
+            level++;
+        }
+
+        // Visible tiles at that level
+        final int span = TILE_SIZE << level;
+        final int px0 = Math.max(0, (int) ((camera.getMinX() - mLeft) / mWorldPerPixelX));
+        final int px1 = Math.min(mImageWidth - 1, (int) ((camera.getMaxX() - mLeft) / mWorldPerPixelX));
+        final int py0 = Math.max(0, (int) ((mTop - camera.getMaxY()) / mWorldPerPixelY));
+        final int py1 = Math.min(mImageHeight - 1, (int) ((mTop - camera.getMinY()) / mWorldPerPixelY));
+        if (px0 <= px1 && py0 <= py1) {
+            for (int ty = py0 / span; ty <= py1 / span; ty++) {
+                for (int tx = px0 / span; tx <= px1 / span; tx++) {
+                    drawTile(batcher, level, tx, ty);
+                }
+            }
+        }
+
+        // After drawing, so the slots drawn this frame are known and kept
+        uploadDecoded();
+    }
+
+    public void cleanup() {
+        mExecutor.shutdownNow();
+        try {
+            mExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        DecodedTile tile;
+        while ((tile = mDecoded.poll()) != null) {
+            tile.bitmap.recycle();
+        }
+        if (mDecoder != null) {
+            mDecoder.recycle();
+            mDecoder = null;
+        }
+        if (mAtlasId != 0) {
+            GLES20.glDeleteTextures(1, new int[] { mAtlasId }, 0);
+            mAtlasId = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Draws one tile, or the part of the finest resident coarser tile that covers it.
+     */
+    private void drawTile(SpriteBatcher batcher, int level, int tx, int ty) {
+        // area of the tile in image pixels
+        final int span = TILE_SIZE << level;
+        final int x0 = tx * span;
+        final int y0 = ty * span;
+        final int x1 = Math.min(x0 + span, mImageWidth);
+        final int y1 = Math.min(y0 + span, mImageHeight);
+
+        int slot = findSlot(key(level, tx, ty));
+        if (slot < 0) {
+            request(key(level, tx, ty));
+        }
+        int l = level;
+        while (slot < 0 && l < mMaxLevel) {
+            l++;
+            slot = findSlot(key(l, x0 / (TILE_SIZE << l), y0 / (TILE_SIZE << l)));
+        }
+        if (slot < 0) {
+            return;
+        }
+        mSlotLastUsed[slot] = mFrame;
+
+        // the area inside the slot (pixels of level l)
+        final int origin = TILE_SIZE << l;
+        final float sx0 = (float) (x0 % origin) / (1 << l);
+        final float sy0 = (float) (y0 % origin) / (1 << l);
+        final float sx1 = Math.min(sx0 + (float) (x1 - x0) / (1 << l), mSlotWidth[slot]);
+        final float sy1 = Math.min(sy0 + (float) (y1 - y0) / (1 << l), mSlotHeight[slot]);
+
+        // half a texel inside so neighbouring slots never bleed in
+        final float ax = (slot % mSlotsPerRow) * TILE_SIZE;
+        final float ay = (slot / mSlotsPerRow) * TILE_SIZE;
+        final float u1 = (ax + sx0 + 0.5f) / mAtlasWidth;
+        final float v1 = (ay + sy0 + 0.5f) / mAtlasHeight;
+        final float u2 = (ax + sx1 - 0.5f) / mAtlasWidth;
+        final float v2 = (ay + sy1 - 0.5f) / mAtlasHeight;
+
+        batcher.draw(mAtlasId, u1, v1, u2, v2,
+                mLeft + x0 * mWorldPerPixelX, mTop - y0 * mWorldPerPixelY,
+                (x1 - x0) * mWorldPerPixelX, (y1 - y0) * mWorldPerPixelY,
+                0, 0, 1, 1, 0, 0xFFFFFFFF);
+    }
+
+    /**
+     * Queues a tile for decoding, unless it is already queued or too many are. A decoded
+     * tile (or null if decoding failed) is always posted, so the key leaves mPending.
+     */
+    private void request(final long key) {
+        for (int i = 0; i < mPendingCount; i++) {
+            if (mPending[i] == key) {
+                return;
+            }
+        }
+        if (mPendingCount == MAX_PENDING) {
+            return;
+        }
+        mPending[mPendingCount++] = key;
+
+        final BitmapRegionDecoder decoder = mDecoder;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int level = level(key);
+                final int span = TILE_SIZE << level;
+                final int x = tileX(key) * span;
+                final int y = tileY(key) * span;
+                Rect rect = new Rect(x, y, Math.min(x + span, mImageWidth), Math.min(y + span, mImageHeight));
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inSampleSize = 1 << level;
+                options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+                Bitmap bitmap = null;
+                try {
+                    bitmap = decoder.decodeRegion(rect, options);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Unable to decode background tile: " + e.getMessage());
+                } finally {
+                    mDecoded.add(new DecodedTile(key, bitmap));
+                }
+            }
+        });
+    }
+
+    /**
+     * Uploads a few decoded tiles into atlas slots, evicting the least recently drawn tiles.
+     * A tile is dropped (and requested again when next needed) rather than evicting a tile
+     * drawn in this frame.
+     */
+    private void uploadDecoded() {
+        DecodedTile tile;
+        for (int n = 0; n < MAX_UPLOADS_PER_FRAME && (tile = mDecoded.poll()) != null; n++) {
+            removePending(tile.key);
+            if (tile.bitmap == null) {
+                Log.e(TAG, "Unable to decode background tile");
+                continue;
+            }
+
+            final int slot = level(tile.key) == mMaxLevel ? FALLBACK_SLOT : leastRecentlyUsedSlot();
+            if (slot < 0) {
+                tile.bitmap.recycle();
+                continue;
+            }
+            mSlotKey[slot] = tile.key;
+            mSlotWidth[slot] = Math.min(tile.bitmap.getWidth(), TILE_SIZE);
+            mSlotHeight[slot] = Math.min(tile.bitmap.getHeight(), TILE_SIZE);
+            mSlotLastUsed[slot] = mFrame;
+
+            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mAtlasId);
+            GLUtils.texSubImage2D(GLES20.GL_TEXTURE_2D, 0, (slot % mSlotsPerRow) * TILE_SIZE,
+                    (slot / mSlotsPerRow) * TILE_SIZE, tile.bitmap);
+            tile.bitmap.recycle();
+        }
+    }
+
+    /**
+     * Returns the empty or least recently drawn slot, or -1 if every slot was drawn this frame.
+     */
+    private int leastRecentlyUsedSlot() {
+        int best = -1;
+        for (int i = 0; i < mSlotCount; i++) {
+            if (i == FALLBACK_SLOT) {
+                continue;
+            }
+            if (mSlotKey[i] == NO_TILE) {
+                return i;
+            }
+            if (best < 0 || mSlotLastUsed[i] < mSlotLastUsed[best]) {
+                best = i;
+            }
+        }
+        return best >= 0 && mSlotLastUsed[best] == mFrame ? -1 : best;
+    }
+
+    private int findSlot(long key) {
+        for (int i = 0; i < mSlotCount; i++) {
+            if (mSlotKey[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removePending(long key) {
+        for (int i = 0; i < mPendingCount; i++) {
+            if (mPending[i] == key) {
+                mPending[i] = mPending[--mPendingCount];
+                return;
+            }
+        }
+    }
+
+    private static long key(int level, int tx, int ty) {
+        return ((long) level << 48) | ((long) tx << 24) | ty;
+    }
+
+    private static int level(long key) {
+        return (int) (key >>> 48);
+    }
+
+    private static int tileX(long key) {
+        return (int) ((key >>> 24) & 0xFFFFFF);
+    }
+
+    private static int tileY(long key) {
+        return (int) (key & 0xFFFFFF);
+    }
+
+    /**
+     * A tile decoded on the worker thread.
+     */
+    private static final class DecodedTile {
+        final long key;
+        final Bitmap bitmap;
+
+        DecodedTile(long key, Bitmap bitmap) {
+            this.key = key;
+            this.bitmap = bitmap;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.cbateman.opengl;
+
+import android.view.MotionEvent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Passes touch events from the UI thread to the GL thread without allocating. Events are
+ * copied into preallocated primitive records (action, pointer id, x, y, time) in a ring
+ * buffer with one producer (the UI thread) and one consumer (the renderer, once per frame).
+ * When draining, consecutive moves of the same pointer are coalesced into the last one.
+ * If the ring is full, new move records are dropped; other records are dropped only when
+ * there is no room at all.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TouchEventRing {
+
+    /** Receives the drained touch events on the consumer thread. */
+    public interface Listener {
+        /**
+         * Called for each touch record.
+         *
+         * @param action the masked action (ie. MotionEvent.ACTION_DOWN)
+         * @param pointerId the pointer id
+         * @param x x in pixels from the left of the view
+         * @param y y in pixels from the top of the view
+         * @param eventTime event time in milliseconds (MotionEvent.getEventTime())
+         */
+        void onTouch(int action, int pointerId, float x, float y, long eventTime);
+    }
+
+    // Moves of pointers with larger ids are delivered without coalescing
+    private static final int MAX_COALESCED_POINTER_ID = 16;
+    // Room kept free for non-move records
+    private static final int MOVE_RESERVE = 8;
+
+    private final int mMask;
+    private final int[] mAction;
+    private final int[] mPointerId;
+    private final float[] mX;
+    private final float[] mY;
+    private final long[] mTime;
+
+    // Sequence numbers; head is written by the consumer, tail by the producer
+    private final AtomicInteger mHead = new AtomicInteger();
+    private final AtomicInteger mTail = new AtomicInteger();
+    private volatile int mDropped;
+
+    // Consumer only
+    private final int[] mLastMove = new int[MAX_COALESCED_POINTER_ID];
+
+    /**
+     * TouchEventRing constructor.
+     *
+     * @param capacity the number of records, rounded up to a power of two
+     */
+    public TouchEventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, MOVE_RESERVE * 2) - 1) << 1;
+        mMask = size - 1;
+        mAction = new int[size];
+        mPointerId = new int[size];
+        mX = new float[size];
+        mY = new float[size];
+        mTime = new long[size];
+    }
+
+    /**
+     * Records a MotionEvent. Producer thread only. The event is not kept, so it can be
+     * recycled by the caller.
+     *
+     * @param e the event
+     */
+    public void add(MotionEvent e) {
+        final int action = e.getActionMasked();
+        final long time = e.getEventTime();
+        switch (action) {
+            case MotionEvent.ACTION_MOVE:
+            case MotionEvent.ACTION_CANCEL:
+                // every pointer
+                for (int i = 0, n = e.getPointerCount(); i < n; i++) {
+                    add(action, e.getPointerId(i), e.getX(i), e.getY(i), time);
+                }
+                break;
+            default:
+                // the pointer that went down or up
+                final int index = e.getActionIndex();
+                add(action, e.getPointerId(index), e.getX(index), e.getY(index), time);
+                break;
+        }
+    }
+
+    /**
+     * Records one touch. Producer thread only.
+     *
+     * @return false if the record was dropped because the ring is full
+     */
+    public boolean add(int action, int pointerId, float x, float y, long eventTime) {
+        final int tail = mTail.get();
+        final int free = mMask + 1 - (tail - mHead.get());
+        if (free == 0 || (action == MotionEvent.ACTION_MOVE && free <= MOVE_RESERVE)) {
+            mDropped++;
+            return false;
+        }
+        final int i = tail & mMask;
+        mAction[i] = action;
+        mPointerId[i] = pointerId;
+        mX[i] = x;
+        mY[i] = y;
+        mTime[i] = eventTime;
+        // publish the record
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Delivers all recorded touches to the listener, coalescing consecutive moves. Consumer
+     * thread only.
+     *
+     * @param listener receives the touches
+     * @return the number of records delivered
+     */
+    public int drain(Listener listener) {
+        final int head = mHead.get();
+        final int tail = mTail.get();
+        int delivered = 0;
+
+        int seq = head;
+        while (seq != tail) {
+            int i = seq & mMask;
+            if (mAction[i] != MotionEvent.ACTION_MOVE) {
+                listener.onTouch(mAction[i], mPointerId[i], mX[i], mY[i], mTime[i]);
+                delivered++;
+                seq++;
+                continue;
+            }
+
+            // find the run of moves and the last move of each pointer in it
+            int end = seq;
+            while (end != tail && mAction[end & mMask] == MotionEvent.ACTION_MOVE) {
+                final int id = mPointerId[end & mMask];
+                if (id >= 0 && id < MAX_COALESCED_POINTER_ID) {
+                    mLastMove[id] = end;
+                }
+                end++;
+            }
+            for (; seq != end; seq++) {
+                i = seq & mMask;
+                final int id = mPointerId[i];
+                if (id < 0 || id >= MAX_COALESCED_POINTER_ID || mLastMove[id] == seq) {
+                    listener.onTouch(mAction[i], id, mX[i], mY[i], mTime[i]);
+                    delivered++;
+                }
+            }
+        }
+
+        // free the records
+        mHead.lazySet(tail);
+        return delivered;
+    }
+
+    /**
+     * @return the number of records dropped because the ring was full
+     */
+    public int getDroppedCount() {
+        return mDropped;
+    }
+}
@@ -0,0 +1,77 @@
+package org.cbateman.opengl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands objects from one writer thread to one reader thread without locks. The writer fills
+ * the write buffer and publishes it; the reader acquires the most recently published buffer.
+ * Neither side ever waits: the writer always has a buffer the reader is not using, and the
+ * reader keeps its current buffer until a newer one has been published. Buffers are reused,
+ * so a published buffer must not be modified by the writer and an acquired buffer must not
+ * be modified by the reader.
+ *
+ * @param <T> the buffer type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TripleBuffer<T> {
+
+    // The middle (shared) buffer index, with FRESH set if the writer published it and the
+    // reader has not acquired it yet
+    private static final int FRESH = 0x4;
+    private static final int INDEX_MASK = 0x3;
+
+    private final Object[] mBuffers;
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+    private int mWrite = 0;     // only used by the writer
+    private int mRead = 2;      // only used by the reader
+
+    /**
+     * TripleBuffer constructor.
+     *
+     * @param first first buffer (the first write buffer)
+     * @param second second buffer
+     * @param third third buffer (returned by acquire() until something is published)
+     */
+    public TripleBuffer(T first, T second, T third) {
+        mBuffers = new Object[] { first, second, third };
+    }
+
+    /**
+     * Returns the buffer the writer may fill. Writer thread only.
+     *
+     * @return the write buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) mBuffers[mWrite];
+    }
+
+    /**
+     * Publishes the write buffer and swaps in a free one. Writer thread only.
+     */
+    public void publish() {
+        mWrite = mMiddle.getAndSet(mWrite | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Returns the most recently published buffer. Reader thread only.
+     *
+     * @return the latest buffer
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        if ((mMiddle.get() & FRESH) != 0) {
+            mRead = mMiddle.getAndSet(mRead) & INDEX_MASK;
+        }
+        return (T) mBuffers[mRead];
+    }
+
+    /**
+     * Returns true if a buffer has been published since the last acquire().
+     *
+     * @return true if acquire() would return a newer buffer
+     */
+    public boolean hasUpdate() {
+        return (mMiddle.get() & FRESH) != 0;
+    }
+}
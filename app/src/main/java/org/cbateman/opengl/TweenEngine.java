@@ -0,0 +1,331 @@
+package org.cbateman.opengl;
+
+/**
+ * Animates float properties (position, scale, rotation, alpha) of any number of targets from
+ * keyframes. A target is just an id with a row of property values; objects read their values
+ * with getValue() when they draw. A track animates one property of one target through up to
+ * MAX_KEYS keyframes, each segment with its own Easing curve, and can play once, loop or
+ * ping-pong. Targets, tracks and keyframes live in preallocated arrays and running tracks are
+ * kept in a dense list, so update() is a tight loop that never allocates.
+ *
+ * Usage:
+ * <pre>
+ *     int button = tweens.createTarget();
+ *     tweens.to(button, TweenEngine.SCALE, 1.0f, 1.2f, 0.3f, Easing.BACK_OUT);
+ *     ...
+ *     tweens.update(deltaTime);
+ *     float scale = tweens.getValue(button, TweenEngine.SCALE);
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TweenEngine {
+
+    // Properties of a target
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int SCALE = 2;
+    public static final int ROTATION = 3;
+    public static final int ALPHA = 4;
+    public static final int PROPERTY_COUNT = 5;
+
+    // Play modes
+    public static final int ONCE = 0;
+    public static final int LOOP = 1;
+    public static final int PING_PONG = 2;
+
+    /** Maximum number of keyframes of a track. */
+    public static final int MAX_KEYS = 8;
+
+    private static final float[] DEFAULTS = { 0.0f, 0.0f, 1.0f, 0.0f, 1.0f };
+
+    // Target property values, PROPERTY_COUNT per target
+    private final float[] mValues;
+    private final int mMaxTargets;
+    private int mTargetCount;
+
+    // Track state, indexed by track
+    private final int mMaxTracks;
+    private final int[] mTrackValue;        // index into mValues
+    private final int[] mTrackKeyCount;
+    private final int[] mTrackSegment;      // last segment evaluated
+    private final int[] mTrackMode;
+    private final float[] mTrackDelay;
+    private final float[] mTrackTime;
+    private final int[] mTrackActivePos;    // position in mActive, -1 if free
+
+    // Keyframes, MAX_KEYS per track; the easing of a key applies to the segment ending there
+    private final float[] mKeyTime;
+    private final float[] mKeyValue;
+    private final int[] mKeyEasing;
+
+    // Running tracks (dense) and free tracks (stack)
+    private final int[] mActive;
+    private int mActiveCount;
+    private final int[] mFree;
+    private int mFreeCount;
+
+    /**
+     * TweenEngine constructor.
+     *
+     * @param maxTargets the maximum number of targets
+     * @param maxTracks the maximum number of tracks running at once
+     */
+    public TweenEngine(int maxTargets, int maxTracks) {
+        mMaxTargets = maxTargets;
+        mValues = new float[maxTargets * PROPERTY_COUNT];
+
+        mMaxTracks = maxTracks;
+        mTrackValue = new int[maxTracks];
+        mTrackKeyCount = new int[maxTracks];
+        mTrackSegment = new int[maxTracks];
+        mTrackMode = new int[maxTracks];
+        mTrackDelay = new float[maxTracks];
+        mTrackTime = new float[maxTracks];
+        mTrackActivePos = new int[maxTracks];
+
+        mKeyTime = new float[maxTracks * MAX_KEYS];
+        mKeyValue = new float[maxTracks * MAX_KEYS];
+        mKeyEasing = new int[maxTracks * MAX_KEYS];
+
+        mActive = new int[maxTracks];
+        mFree = new int[maxTracks];
+        for (int i = 0; i < maxTracks; i++) {
+            mFree[i] = maxTracks - 1 - i;
+            mTrackActivePos[i] = -1;
+        }
+        mFreeCount = maxTracks;
+    }
+
+    /**
+     * Creates a target with default values (scale and alpha 1, everything else 0).
+     *
+     * @return the target id, or -1 if there is no room
+     */
+    public int createTarget() {
+        if (mTargetCount == mMaxTargets) {
+            return -1;
+        }
+        final int target = mTargetCount++;
+        System.arraycopy(DEFAULTS, 0, mValues, target * PROPERTY_COUNT, PROPERTY_COUNT);
+        return target;
+    }
+
+    /**
+     * Returns the current value of a property.
+     *
+     * @param target the target id
+     * @param property the property
+     * @return the value
+     */
+    public float getValue(int target, int property) {
+        return mValues[target * PROPERTY_COUNT + property];
+    }
+
+    /**
+     * Sets a property directly (it is overwritten by any track animating it).
+     *
+     * @param target the target id
+     * @param property the property
+     * @param value the value
+     */
+    public void setValue(int target, int property, float value) {
+        mValues[target * PROPERTY_COUNT + property] = value;
+    }
+
+    /**
+     * Animates a property from one value to another, once.
+     *
+     * @param target the target id
+     * @param property the property
+     * @param from the start value
+     * @param to the end value
+     * @param duration duration in seconds
+     * @param easing the easing curve
+     * @return the track id, or -1 if there is no free track
+     */
+    public int to(int target, int property, float from, float to, float duration, int easing) {
+        final int track = beginTrack(target, property, ONCE, 0);
+        if (track >= 0) {
+            addKey(track, 0, from, Easing.LINEAR);
+            addKey(track, duration, to, easing);
+            start(track);
+        }
+        return track;
+    }
+
+    /**
+     * Starts a track that is filled with addKey() and started with start(). Keys must be
+     * added in time order, the first one at time 0.
+     *
+     * @param target the target id
+     * @param property the property
+     * @param mode ONCE, LOOP or PING_PONG
+     * @param delay seconds to wait before the track starts
+     * @return the track id, or -1 if there is no free track
+     */
+    public int beginTrack(int target, int property, int mode, float delay) {
+        if (mFreeCount == 0) {
+            return -1;
+        }
+        final int track = mFree[--mFreeCount];
+        mTrackValue[track] = target * PROPERTY_COUNT + property;
+        mTrackKeyCount[track] = 0;
+        mTrackSegment[track] = 0;
+        mTrackMode[track] = mode;
+        mTrackDelay[track] = delay;
+        mTrackTime[track] = 0;
+        return track;
+    }
+
+    /**
+     * Adds a keyframe to a track created with beginTrack().
+     *
+     * @param track the track id
+     * @param time the time of the key in seconds from the start of the track
+     * @param value the value at that time
+     * @param easing the curve used to reach this key from the previous one
+     * @return false if the track already has MAX_KEYS keys
+     */
+    public boolean addKey(int track, float time, float value, int easing) {
+        final int count = mTrackKeyCount[track];
+        if (count == MAX_KEYS) {
+            return false;
+        }
+        final int k = track * MAX_KEYS + count;
+        mKeyTime[k] = time;
+        mKeyValue[k] = value;
+        mKeyEasing[k] = easing;
+        mTrackKeyCount[track] = count + 1;
+        return true;
+    }
+
+    /**
+     * Starts running a track created with beginTrack(). The property is set to the value of
+     * the first key right away.
+     *
+     * @param track the track id
+     */
+    public void start(int track) {
+        if (mTrackActivePos[track] >= 0 || mTrackKeyCount[track] == 0) {
+            return;
+        }
+        mValues[mTrackValue[track]] = mKeyValue[track * MAX_KEYS];
+        mTrackActivePos[track] = mActiveCount;
+        mActive[mActiveCount++] = track;
+    }
+
+    /**
+     * Stops a track, leaving the property at its current value.
+     *
+     * @param track the track id
+     */
+    public void cancel(int track) {
+        final int pos = mTrackActivePos[track];
+        if (pos < 0) {
+            return;
+        }
+        final int last = mActive[--mActiveCount];
+        mActive[pos] = last;
+        mTrackActivePos[last] = pos;
+        mTrackActivePos[track] = -1;
+        mFree[mFreeCount++] = track;
+    }
+
+    /**
+     * Returns true while a track is running.
+     *
+     * @param track the track id
+     * @return true if running
+     */
+    public boolean isRunning(int track) {
+        return mTrackActivePos[track] >= 0;
+    }
+
+    /**
+     * @return the number of running tracks
+     */
+    public int getRunningCount() {
+        return mActiveCount;
+    }
+
+    /**
+     * Advances all running tracks and writes their property values. Tracks played ONCE are
+     * freed when they finish.
+     *
+     * @param deltaTime seconds since the last update
+     */
+    public void update(float deltaTime) {
+        final float[] keyTime = mKeyTime;
+        final float[] keyValue = mKeyValue;
+        final int[] keyEasing = mKeyEasing;
+
+        int i = 0;
+        while (i < mActiveCount) {
+            final int track = mActive[i];
+
+            float delay = mTrackDelay[track];
+            float dt = deltaTime;
+            if (delay > 0) {
+                delay -= dt;
+                mTrackDelay[track] = Math.max(delay, 0);
+                if (delay >= 0) {
+                    i++;
+                    continue;
+                }
+                dt = -delay;
+            }
+
+            final int base = track * MAX_KEYS;
+            final int keys = mTrackKeyCount[track];
+            final float duration = keyTime[base + keys - 1];
+            float time = mTrackTime[track] + dt;
+            float t = time;
+            boolean finished = false;
+
+            if (duration <= 0) {
+                finished = mTrackMode[track] == ONCE;
+                t = 0;
+            } else if (mTrackMode[track] == LOOP) {
+                // keep the time small so it does not lose precision
+                time %= duration;
+                t = time;
+            } else if (mTrackMode[track] == PING_PONG) {
+                time %= 2 * duration;
+                t = time <= duration ? time : 2 * duration - time;
+            } else if (time >= duration) {
+                t = duration;
+                finished = true;
+            }
+            mTrackTime[track] = time;
+
+            // find the segment holding t, starting from the last one (usually unchanged)
+            int seg = mTrackSegment[track];
+            while (seg > 0 && t < keyTime[base + seg]) {
+                seg--;
+            }
+            while (seg < keys - 2 && t >= keyTime[base + seg + 1]) {
+                seg++;
+            }
+            mTrackSegment[track] = seg;
+
+            final float value;
+            if (keys == 1) {
+                value = keyValue[base];
+            } else {
+                final int k = base + seg;
+                final float t0 = keyTime[k];
+                final float span = keyTime[k + 1] - t0;
+                final float f = span > 0 ? (t - t0) / span : 1;
+                final float v0 = keyValue[k];
+                value = v0 + (keyValue[k + 1] - v0) * Easing.ease(keyEasing[k + 1], f);
+            }
+            mValues[mTrackValue[track]] = value;
+
+            if (finished) {
+                cancel(track);      // moves another track into position i
+            } else {
+                i++;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.cbateman.opengl;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES30;
+import android.os.Build;
+
+/**
+ * A vertex array object that records the attribute layout of one buffer/program pair the
+ * first time it is drawn, so later draws only bind it. Where vertex array objects are not
+ * available (see GLCapabilities.hasVertexArrays()) it does nothing and the caller specifies
+ * the attributes on every draw as before.
+ *
+ * Usage:
+ * <pre>
+ *     if (vertexArray.bind()) {
+ *         // bind buffers, glVertexAttribPointer, glEnableVertexAttribArray
+ *     }
+ *     GLES20.glDrawElements(...);
+ *     vertexArray.unbind();
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class VertexArray {
+
+    private final boolean mSupported;
+    private final int[] vao = new int[1];
+
+    /**
+     * VertexArray constructor. Must be called on the GL thread, after GLCapabilities.detect().
+     */
+    public VertexArray() {
+        mSupported = GLCapabilities.hasVertexArrays();
+    }
+
+    /**
+     * Binds the vertex array object, creating it on first use.
+     *
+     * @return true if the caller must bind the buffers and specify the attributes (first
+     *         use, or vertex array objects are not available); false if the recorded layout
+     *         is bound
+     */
+    public boolean bind() {
+        if (!mSupported) {
+            return true;
+        }
+        if (vao[0] != 0) {
+            bindVertexArray(vao[0]);
+            return false;
+        }
+        genVertexArray();
+        bindVertexArray(vao[0]);
+        return true;
+    }
+
+    /**
+     * Unbinds the vertex array object. Call before unbinding the element array buffer, which
+     * is part of the recorded state.
+     */
+    public void unbind() {
+        if (mSupported) {
+            bindVertexArray(0);
+        }
+    }
+
+    /**
+     * @return true if attribute layouts are recorded
+     */
+    public boolean isSupported() {
+        return mSupported;
+    }
+
+    public void cleanup() {
+        if (vao[0] != 0) {
+            deleteVertexArray();
+            vao[0] = 0;
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void genVertexArray() {
+        GLES30.glGenVertexArrays(1, vao, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void bindVertexArray(int id) {
+        GLES30.glBindVertexArray(id);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private void deleteVertexArray() {
+        GLES30.glDeleteVertexArrays(1, vao, 0);
+    }
+}
@@ -0,0 +1,151 @@
+package org.cbateman.opengl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Worker threads shared by every subsystem that splits its work across cores (particles,
+ * orbital simulation, starfield generation), one per core besides the calling thread. Work
+ * is forked through a Join: the tasks run on the workers, the last one on the calling
+ * thread, and Join.run() returns once all of them have finished. Tasks are queued in a
+ * preallocated array and a Join waits on a counter it resets for every run, so forking
+ * allocates nothing and can be done every frame.
+ *
+ * Usage:
+ * <pre>
+ *     Join join = WorkerPool.getShared().newJoin(chunks);  // once
+ *     join.run(count);                                      // every frame
+ * </pre>
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class WorkerPool {
+
+    // Tasks waiting for a worker; when full, the calling thread runs the task itself
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static WorkerPool sShared;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final int mParallelism;
+
+    private WorkerPool(int workers) {
+        mParallelism = workers + 1;
+        if (workers == 0) {
+            mExecutor = null;
+            return;
+        }
+        mExecutor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+                    private int mCount;
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "WorkerPool-" + mCount++);
+                        t.setDaemon(true);
+                        return t;
+                    }
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Returns the pool shared by the whole process. Its threads are daemons and live as long
+     * as the process.
+     *
+     * @return the shared pool
+     */
+    public static synchronized WorkerPool getShared() {
+        if (sShared == null) {
+            sShared = new WorkerPool(Math.max(0, Runtime.getRuntime().availableProcessors() - 1));
+        }
+        return sShared;
+    }
+
+    /**
+     * @return the number of tasks that can run at once (the workers and the calling thread)
+     */
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Creates a join for a fixed set of tasks. Create it once and run it as often as needed,
+     * from one thread at a time.
+     *
+     * @param tasks the tasks
+     * @return the join
+     */
+    public Join newJoin(Runnable[] tasks) {
+        return new Join(tasks);
+    }
+
+    /**
+     * Runs a prefix of a fixed set of tasks in parallel and waits for them.
+     */
+    public final class Join {
+
+        private final Runnable[] mTasks;
+        private final Runnable[] mForked;
+        private final AtomicInteger mPending = new AtomicInteger();
+        private volatile Thread mWaiter;
+
+        private Join(Runnable[] tasks) {
+            mTasks = tasks;
+            mForked = new Runnable[tasks.length];
+            for (int i = 0; i < tasks.length; i++) {
+                final Runnable task = tasks[i];
+                mForked[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            task.run();
+                        } finally {
+                            if (mPending.decrementAndGet() == 0) {
+                                LockSupport.unpark(mWaiter);
+                            }
+                        }
+                    }
+                };
+            }
+        }
+
+        /**
+         * Runs tasks [0, count) and returns when all have finished. The last task runs on
+         * the calling thread.
+         *
+         * @param count number of tasks to run
+         */
+        public void run(int count) {
+            if (count <= 1 || mExecutor == null) {
+                for (int i = 0; i < count; i++) {
+                    mTasks[i].run();
+                }
+                return;
+            }
+
+            mWaiter = Thread.currentThread();
+            mPending.set(count - 1);
+            for (int i = 0; i < count - 1; i++) {
+                mExecutor.execute(mForked[i]);
+            }
+            mTasks[count - 1].run();
+
+            // The forked tasks write memory the caller reads next, so wait for them even if
+            // interrupted, and restore the interrupt afterwards
+            boolean interrupted = false;
+            while (mPending.get() > 0) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+            mWaiter = null;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
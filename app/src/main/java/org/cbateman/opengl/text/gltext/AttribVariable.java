@@ -3,7 +3,11 @@ package org.cbateman.opengl.text.gltext;
 public enum AttribVariable {
 	A_Position(1, "a_Position"), 
 	A_TexCoordinate(2, "a_TexCoordinate"), 
-	A_MVPMatrixIndex(3, "a_MVPMatrixIndex");
+	A_MVPMatrixIndex(3, "a_MVPMatrixIndex"),
+	A_Color(4, "a_Color"),
+	A_Rect(5, "a_Rect"),                       // Per-instance (ES 3.0 only)
+	A_TexRegion(6, "a_TexRegion"),             // Per-instance (ES 3.0 only)
+	A_ModelMatrix(7, "a_ModelMatrix");         // Per-instance, uses locations 7-10 (ES 3.0 only)
 	
 	private int mHandle;
 	private String mName;
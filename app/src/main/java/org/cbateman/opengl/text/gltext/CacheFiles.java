@@ -0,0 +1,64 @@
+// File helpers shared by the on-disk caches (ProgramCache, FontAtlasCache).
+// Cache files are written to a temporary file and renamed into place, so a
+// partially written file is never loaded after a crash or a full disk.
+
+package org.cbateman.opengl.text.gltext;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+class CacheFiles {
+
+	//--Constants--//
+	private static final String TAG = "CacheFiles";
+
+	private CacheFiles() {
+	}
+
+	//--Write--//
+	// D: replace a cache file with the remaining bytes of a buffer
+	// A: file - the cache file
+	//    buffer - the contents (position to limit), consumed
+	// R: [none]; throws IOException if the file could not be written or renamed
+	static void write(File file, ByteBuffer buffer) throws IOException {
+		File tmp = new File(file.getPath() + ".tmp");
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(tmp);
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			out.close();
+			out = null;
+			if (!tmp.renameTo(file))
+				throw new IOException("Unable to rename " + tmp.getName());
+		} finally {
+			close(out);
+			if (tmp.exists() && !tmp.delete()) {
+				Log.w(TAG, "Unable to delete " + tmp.getName());
+			}
+		}
+	}
+
+	//--Close--//
+	// D: close a stream, ignoring errors
+	// A: closeable - the stream (may be null)
+	// R: [none]
+	static void close(Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+// Persists the rasterized font atlas produced by GLText.load() so that later
+// loads of the same font/size/padding can skip Typeface creation, glyph
+// measurement and Canvas rendering. The atlas pixels are memory mapped and
+// uploaded straight from the mapped buffer.
+
+package org.cbateman.opengl.text.gltext;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+class FontAtlasCache {
+
+	//--Constants--//
+	private static final int MAGIC = 0x474C5458;       // 'GLTX'
+	private static final int VERSION = 2;              // Bump When the File Layout Changes
+	private static final int HEADER_INTS = 5;          // Magic, Version, Texture Size, Cell Width/Height
+	private static final int HEADER_FLOATS = 5;        // Font Height, Ascent, Descent, Char Width Max, Char Height
+	private static final int REGION_FLOATS = 4;        // U1, V1, U2, V2
+	private static final int GLYPH_FLOATS = 4;         // Offset X/Y, Width, Height
+	private static final String TAG = "FontAtlasCache";
+
+	//--Members--//
+	final File file;                                   // Cache File for the Requested Font
+
+	//--Constructor--//
+	// D: build the cache file name from the font contents, size and padding
+	// A: cacheDir - directory to store atlas files in (ie. Context.getCacheDir())
+	//    assets - asset manager used to read the font file
+	//    fontFile - font file name (in 'Assets' folder)
+	//    size, padX, padY - the values passed to GLText.load()
+	FontAtlasCache(File cacheDir, AssetManager assets, String fontFile, int size, int padX, int padY) {
+		long hash = hashAsset(assets, fontFile);
+		file = new File(cacheDir, "gltext-" + Long.toHexString(hash) + "-" + size
+				+ "-" + padX + "x" + padY + ".atlas");
+	}
+
+	//--Load--//
+	// D: restore the font metrics and texture from the cache file
+	// A: font - the GLText instance to populate
+	// R: true if the font was restored; false if there is no valid cache entry
+	boolean load(GLText font) {
+		if (!file.isFile()) {
+			return false;
+		}
+
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (mapped.remaining() < metaSize() || mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+				Log.w(TAG, "Discarding stale font atlas " + file.getName());
+				return false;
+			}
+
+			int textureSize = mapped.getInt();
+			int cellWidth = mapped.getInt();
+			int cellHeight = mapped.getInt();
+			if (mapped.capacity() != metaSize() + textureSize * textureSize) {
+				Log.w(TAG, "Discarding truncated font atlas " + file.getName());
+				return false;
+			}
+
+			font.fontHeight = mapped.getFloat();
+			font.fontAscent = mapped.getFloat();
+			font.fontDescent = mapped.getFloat();
+			font.charWidthMax = mapped.getFloat();
+			font.charHeight = mapped.getFloat();
+			for (int c = 0; c < GLText.CHAR_CNT; c++) {
+				font.charWidths[c] = mapped.getFloat();
+			}
+			for (int c = 0; c < GLText.CHAR_CNT; c++) {
+				font.charRgn[c] = new TextureRegion(mapped.getFloat(), mapped.getFloat(),
+						mapped.getFloat(), mapped.getFloat());
+			}
+			for (int c = 0; c < GLText.CHAR_CNT; c++) {
+				font.glyphOffX[c] = mapped.getFloat();
+				font.glyphOffY[c] = mapped.getFloat();
+				font.glyphWidths[c] = mapped.getFloat();
+				font.glyphHeights[c] = mapped.getFloat();
+			}
+
+			font.textureSize = textureSize;
+			font.cellWidth = cellWidth;
+			font.cellHeight = cellHeight;
+			font.textureRgn = new TextureRegion(textureSize, textureSize, 0, 0, textureSize, textureSize);
+
+			// the remainder of the file is the alpha-only atlas, upload it in place
+			font.textureId = TextureHelper.loadAlphaTexture(mapped.slice(), textureSize, textureSize);
+			return true;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read font atlas " + file.getName(), e);
+			return false;
+		} finally {
+			CacheFiles.close(in);
+		}
+	}
+
+	//--Save--//
+	// D: write the font metrics and rasterized atlas to the cache file
+	//    NOTE: must be called before the bitmap is uploaded (and recycled)!
+	// A: font - the loaded GLText instance
+	//    bitmap - the ALPHA_8 atlas bitmap (textureSize x textureSize)
+	// R: [none]
+	void save(GLText font, Bitmap bitmap) {
+		int textureSize = font.textureSize;
+		ByteBuffer buffer = ByteBuffer.allocate(metaSize() + textureSize * textureSize);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(textureSize);
+		buffer.putInt(font.cellWidth);
+		buffer.putInt(font.cellHeight);
+
+		buffer.putFloat(font.fontHeight);
+		buffer.putFloat(font.fontAscent);
+		buffer.putFloat(font.fontDescent);
+		buffer.putFloat(font.charWidthMax);
+		buffer.putFloat(font.charHeight);
+		for (int c = 0; c < GLText.CHAR_CNT; c++) {
+			buffer.putFloat(font.charWidths[c]);
+		}
+		for (int c = 0; c < GLText.CHAR_CNT; c++) {
+			TextureRegion rgn = font.charRgn[c];
+			buffer.putFloat(rgn.u1);
+			buffer.putFloat(rgn.v1);
+			buffer.putFloat(rgn.u2);
+			buffer.putFloat(rgn.v2);
+		}
+		for (int c = 0; c < GLText.CHAR_CNT; c++) {
+			buffer.putFloat(font.glyphOffX[c]);
+			buffer.putFloat(font.glyphOffY[c]);
+			buffer.putFloat(font.glyphWidths[c]);
+			buffer.putFloat(font.glyphHeights[c]);
+		}
+
+		bitmap.copyPixelsToBuffer(buffer);
+		buffer.flip();
+
+		try {
+			CacheFiles.write(file, buffer);             // Through a Temporary File (See CacheFiles)
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write font atlas " + file.getName(), e);
+		}
+	}
+
+	//--Helpers--//
+	private static int metaSize() {
+		return (HEADER_INTS + HEADER_FLOATS + GLText.CHAR_CNT
+				+ GLText.CHAR_CNT * (REGION_FLOATS + GLYPH_FLOATS)) * 4;
+	}
+
+	private static long hashAsset(AssetManager assets, String fontFile) {
+		CRC32 crc = new CRC32();
+		InputStream in = null;
+		try {
+			in = assets.open(fontFile);
+			byte[] chunk = new byte[8192];
+			int read;
+			while ((read = in.read(chunk)) != -1) {
+				crc.update(chunk, 0, read);
+			}
+		} catch (IOException e) {
+			// fall back to the file name; the font load itself will report the error
+			crc.update(fontFile.getBytes());
+		} finally {
+			CacheFiles.close(in);
+		}
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,195 @@
+// Loads several fonts (typefaces and sizes) into shared texture pages that are
+// drawn with one program and one sprite batch. Text in different fonts can be
+// mixed between begin() and end(); the batch is only flushed when a font on a
+// different page is drawn.
+//
+// USAGE:
+//    FontManager fonts = new FontManager(assets);
+//    GLText title = fonts.add("Roboto-Regular.ttf", 40, 2, 2);
+//    GLText body = fonts.add("Roboto-Regular.ttf", 20, 2, 2);
+//    fonts.build();
+//    ...
+//    fonts.begin(vpMatrix);
+//    title.draw("Title", x, y);
+//    body.draw("Body", x, y - 40);
+//    fonts.end();
+
+package org.cbateman.opengl.text.gltext;
+
+import android.content.res.AssetManager;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import org.cbateman.opengl.text.gltext.programs.Program;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class FontManager {
+
+	private static final String TAG = "FontManager";
+
+	//--Members--//
+	private final AssetManager mAssets;                // Asset Manager
+	private final Program mProgram;                    // Program Shared by All Fonts
+	private final SpriteBatch mBatch;                  // Batch Shared by All Fonts
+	private final List<GLText> mFonts = new ArrayList<>();       // Fonts Added (in Order)
+	private final List<Integer> mPages = new ArrayList<>();      // Page Texture IDs
+	private final int mColorHandle;                    // Shader Color Handle
+	private final int mTextureUniformHandle;           // Shader Texture Handle
+	private int mBuilt;                                // Number of Fonts Already Placed on Pages
+	private int mBoundPage;                            // Page Texture Currently Bound While Drawing
+
+	//--Constructor--//
+	// D: create the shared program and batch
+	// A: assets - asset manager used to load font files
+	public FontManager(AssetManager assets) {
+		mAssets = assets;
+		mProgram = Utilities.createTextProgram();
+		mBatch = new SpriteBatch(GLText.getBatchSize(mProgram), mProgram);
+		mColorHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_Color");
+		mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_Texture");
+		mBoundPage = -1;
+	}
+
+	//--Add Font--//
+	// D: measure a font and queue it to be placed on a page by build()
+	// A: file - Filename of the font (.ttf, .otf) to use. In 'Assets' folder.
+	//    size - Requested pixel size of font (height)
+	//    padX, padY - Extra padding per character (X+Y Axis)
+	// R: the font, usable once build() has been called; null if the size is not valid
+	public GLText add(String file, int size, int padX, int padY) {
+		GLText font = new GLText(mProgram, mBatch, mAssets, this);
+		if (!font.measure(file, size, padX, padY)) {
+			Log.w(TAG, "Font size " + size + " not supported for " + file);
+			return null;
+		}
+		mFonts.add(font);
+		return font;
+	}
+
+	//--Build Pages--//
+	// D: pack the glyphs of all fonts added since the last build into as few pages
+	//    as possible, rasterize them and upload the page textures
+	// A: [none]
+	// R: false if a font does not fit on a page on its own
+	public boolean build() {
+		int first = mBuilt;                             // First Font on Current Page
+		int[] rgnX = null, rgnY = null;                 // Packed Positions of Current Page
+		int pageSize = 0;                               // Size of Current Page
+
+		for (int i = mBuilt; i < mFonts.size(); i++) {  // FOR Each New Font
+			int cnt = (i + 1 - first) * GLText.CHAR_CNT;
+			int[] x = new int[cnt];
+			int[] y = new int[cnt];
+			int size = GlyphPacker.pack(collectWidths(first, i + 1), collectHeights(first, i + 1),
+					x, y, GLText.TEXTURE_SIZE_MAX);
+
+			if (size == 0) {                            // IF Font Does Not Fit With the Others
+				if (i == first) {                       // IF Font Does Not Fit on Its Own
+					Log.e(TAG, "Font does not fit on a " + GLText.TEXTURE_SIZE_MAX + " page");
+					return false;
+				}
+				uploadPage(first, i, rgnX, rgnY, pageSize);
+				first = i;
+				i--;                                    // Retry Font on a New Page
+				continue;
+			}
+			rgnX = x;
+			rgnY = y;
+			pageSize = size;
+		}
+
+		if (first < mFonts.size())                      // IF Fonts Left on Last Page
+			uploadPage(first, mFonts.size(), rgnX, rgnY, pageSize);
+		mBuilt = mFonts.size();
+		return true;
+	}
+
+	//--Begin/End Text Drawing--//
+	// D: call these methods before/after all draw() calls on fonts of this manager
+	// A: red, green, blue, alpha - color for the text
+	//    vpMatrix - View and projection matrix to use
+	// R: [none]
+	public void begin(float[] vpMatrix) {
+		begin(1.0f, 1.0f, 1.0f, 1.0f, vpMatrix);
+	}
+
+	public void begin(float red, float green, float blue, float alpha, float[] vpMatrix) {
+		GLES20.glUseProgram(mProgram.getHandle());
+		GLES20.glUniform4f(mColorHandle, red, green, blue, alpha);
+		GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+		GLES20.glUniform1i(mTextureUniformHandle, 0);
+		mBoundPage = -1;                                // Bind First Page on First Draw
+		mBatch.setColor(0xFFFFFFFF);                    // Reset Per-Vertex Color to White
+		mBatch.beginBatch(vpMatrix);
+	}
+
+	public void end() {
+		mBatch.endBatch();
+	}
+
+	//--Use Page--//
+	// D: make sure the page holding a font is bound, flushing sprites of the previous page
+	// A: textureId - the page texture of the font about to be drawn
+	// R: [none]
+	void usePage(int textureId) {
+		if (textureId != mBoundPage) {                  // IF Page Changes
+			if (mBoundPage != -1)
+				mBatch.flush();                         // Render Sprites of Previous Page
+			GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);
+			mBoundPage = textureId;
+		}
+	}
+
+	//--Get Page Count--//
+	public int getPageCount() {
+		return mPages.size();
+	}
+
+	//--Clean Up--//
+	// D: release the batch, program and page textures
+	public void cleanUp() {
+		mBatch.cleanUp();
+		mProgram.delete();
+		int[] ids = new int[mPages.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = mPages.get(i);
+		if (ids.length > 0)
+			GLES20.glDeleteTextures(ids.length, ids, 0);
+		mPages.clear();
+	}
+
+	//--Helpers--//
+	private void uploadPage(int first, int last, int[] rgnX, int[] rgnY, int pageSize) {
+		Bitmap bitmap = Bitmap.createBitmap(pageSize, pageSize, Bitmap.Config.ALPHA_8);
+		Canvas canvas = new Canvas(bitmap);
+		bitmap.eraseColor(0x00000000);
+		for (int i = first; i < last; i++) {
+			mFonts.get(i).rasterize(canvas, rgnX, rgnY, (i - first) * GLText.CHAR_CNT, pageSize);
+		}
+
+		int textureId = TextureHelper.loadTexture(bitmap);
+		for (int i = first; i < last; i++) {
+			mFonts.get(i).textureId = textureId;
+		}
+		mPages.add(textureId);
+	}
+
+	private int[] collectWidths(int first, int last) {
+		int[] w = new int[(last - first) * GLText.CHAR_CNT];
+		for (int i = first; i < last; i++)
+			System.arraycopy(mFonts.get(i).packWidths(), 0, w, (i - first) * GLText.CHAR_CNT, GLText.CHAR_CNT);
+		return w;
+	}
+
+	private int[] collectHeights(int first, int last) {
+		int[] h = new int[(last - first) * GLText.CHAR_CNT];
+		for (int i = first; i < last; i++)
+			System.arraycopy(mFonts.get(i).packHeights(), 0, h, (i - first) * GLText.CHAR_CNT, GLText.CHAR_CNT);
+		return h;
+	}
+}
@@ -13,15 +13,17 @@ import android.content.res.AssetManager;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
+import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.opengl.GLES20;
 import android.opengl.Matrix;
 
-import org.cbateman.opengl.text.gltext.programs.BatchTextProgram;
 import org.cbateman.opengl.text.gltext.programs.Program;
 
+import java.io.File;
+
 @SuppressWarnings({"unused", "WeakerAccess", "SameParameterValue"})
-public class GLText {
+public class GLText implements TextMetrics {
 
 	//--Constants--//
 	public final static int CHAR_START = 32;           // First Character (ASCII Code)
@@ -33,10 +35,12 @@ public class GLText {
 
 	public final static int FONT_SIZE_MIN = 6;          // Minimum Font Size (Pixels)
 	public final static int FONT_SIZE_MAX = 180;        // Maximum Font Size (Pixels)
+	public final static int TEXTURE_SIZE_MAX = 2048;    // Maximum Font Texture Size (Pixels)
 
 	public final static int CHAR_BATCH_SIZE = 24;       // Number of Characters to Render Per Batch
 													    // must be the same as the size of u_MVPMatrix
 													    // in BatchTextProgram
+	public final static int INSTANCED_CHAR_BATCH_SIZE = 512;  // Characters Per Batch with InstancedTextProgram
 
 	//--Members--//
 	AssetManager assets;                               // Asset Manager
@@ -56,29 +60,47 @@ public class GLText {
 	float charHeight;                                  // Character Height (Maximum; Pixels)
 	final float[] charWidths;                          // Width of Each Character (Actual; Pixels)
 	TextureRegion[] charRgn;                           // Region of Each Character (Texture Coordinates)
-	int cellWidth, cellHeight;                         // Character Cell Width/Height
-	int rowCnt, colCnt;                                // Number of Rows/Columns
+	final float[] glyphOffX, glyphOffY;                // Offset of Each Glyph Quad From Pen Position/Baseline (Pixels)
+	final float[] glyphWidths, glyphHeights;           // Size of Each Glyph Quad (Including Padding; Pixels)
+	int cellWidth, cellHeight;                         // Character Cell Width/Height (Maximum Glyph Advance + Padding)
 
 	float scaleX, scaleY;                              // Font Scale (X,Y Axis)
 	float spaceX;                                      // Additional (X,Y Axis) Spacing (Unscaled)
 	
 	private Program mProgram; 						   // OpenGL Program object
+	private FontManager mManager;                      // Manager Owning the Batch and Texture (Null if Standalone)
+	private boolean mOwnsProgram;                      // Program Created Here (Else Owned by the Caller or Manager)
+	private Paint mPaint;                              // Paint Used Between measure() and rasterize()
+	private int[] inkLeft, inkTop;                     // Ink Offsets Used Between measure() and rasterize()
+	private final float[] mModelMatrix = new float[16];  // Reused Model Matrix (No Per-Draw Allocation)
 	private int mColorHandle;						   // Shader color handle	
 	private int mTextureUniformHandle;                 // Shader texture handle
 
 	//--Constructor--//
 	// D: save program + asset manager, create arrays, and initialize the members
 	public GLText(Program program, AssetManager assets) {
+		this(program, null, assets, null);
+	}
+
+	// D: constructor for a font sharing the program, batch and texture pages of a FontManager
+	GLText(Program program, SpriteBatch batch, AssetManager assets, FontManager manager) {
 		if (program == null) {
-			program = new BatchTextProgram();
-			program.init();
+			program = Utilities.createTextProgram();        // BatchTextProgram, or InstancedTextProgram on ES 3.0
+			mOwnsProgram = true;
 		}
 		this.assets = assets;                               // Save the Asset Manager Instance
-		
-		batch = new SpriteBatch(CHAR_BATCH_SIZE, program);  // Create Sprite Batch (with Defined Size)
+		mManager = manager;
+
+		if (batch == null)                                  // IF Not Sharing a Batch
+			batch = new SpriteBatch(getBatchSize(program), program);  // Create Sprite Batch (with Defined Size)
+		this.batch = batch;
 
 		charWidths = new float[CHAR_CNT];                   // Create the Array of Character Widths
 		charRgn = new TextureRegion[CHAR_CNT];              // Create the Array of Character Regions
+		glyphOffX = new float[CHAR_CNT];                    // Create the Arrays of Glyph Offsets
+		glyphOffY = new float[CHAR_CNT];
+		glyphWidths = new float[CHAR_CNT];                  // Create the Arrays of Glyph Sizes
+		glyphHeights = new float[CHAR_CNT];
 
 		// initialize remaining members
 		fontPadX = 0;
@@ -96,8 +118,6 @@ public class GLText {
 
 		cellWidth = 0;
 		cellHeight = 0;
-		rowCnt = 0;
-		colCnt = 0;
 
 		scaleX = 1.0f;                                      // Default Scale = 1 (Unscaled)
 		scaleY = 1.0f;                                      // Default Scale = 1 (Unscaled)
@@ -109,7 +129,14 @@ public class GLText {
         mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_Texture");
 	}
 	
-	// Constructor using the default program (BatchTextProgram)
+	//--Get Batch Size--//
+	// D: the number of characters per batch for a program. instanced programs are not
+	//    limited by the size of the matrix uniform array
+	static int getBatchSize(Program program) {
+		return program.isInstanced() ? INSTANCED_CHAR_BATCH_SIZE : CHAR_BATCH_SIZE;
+	}
+
+	// Constructor using the default program (BatchTextProgram, or InstancedTextProgram on ES 3.0)
 	public GLText(AssetManager assets) {
 		this(null, assets);
 	}
@@ -122,12 +149,60 @@ public class GLText {
 	//    file - Filename of the font (.ttf, .otf) to use. In 'Assets' folder.
 	//    size - Requested pixel size of font (height)
 	//    padX, padY - Extra padding per character (X+Y Axis); to prevent overlapping characters.
+	//    cacheDir - Optional directory used to cache the rasterized font map between loads (may be null).
+	public boolean load(String file, int size, int padX, int padY) {
+		return load(file, size, padX, padY, null);
+	}
+
 	@SuppressWarnings({"UnusedAssignment"})
-    public boolean load(String file, int size, int padX, int padY) {
+    public boolean load(String file, int size, int padX, int padY, File cacheDir) {
 		// setup requested values
 		fontPadX = padX;                                // Set Requested X Axis Padding
 		fontPadY = padY;                                // Set Requested Y Axis Padding
 
+		// reuse a previously rasterized font map if one is cached
+		FontAtlasCache cache = null;
+		if (cacheDir != null) {
+			cache = new FontAtlasCache(cacheDir, assets, file, size, padX, padY);
+			if (cache.load(this))                       // IF Font Map Restored From Cache
+				return true;                            // Return Success
+		}
+
+		// measure the font, then pack the glyphs tightly and pick the smallest texture that holds them
+		if (!measure(file, size, padX, padY))               // IF Font Size Not Valid
+			return false;                                   // Return Error
+		int[] rgnX = new int[CHAR_CNT];
+		int[] rgnY = new int[CHAR_CNT];
+		textureSize = GlyphPacker.pack(packWidths(), packHeights(), rgnX, rgnY, TEXTURE_SIZE_MAX);
+		if (textureSize == 0)                               // IF Glyphs Do Not Fit
+			return false;                                   // Return Error
+
+		// create an empty bitmap (alpha only) and render the characters to it
+		Bitmap bitmap = Bitmap.createBitmap(textureSize, textureSize, Bitmap.Config.ALPHA_8);  // Create Bitmap
+		Canvas canvas = new Canvas(bitmap);           // Create Canvas for Rendering to Bitmap
+		bitmap.eraseColor(0x00000000);                // Set Transparent Background (ARGB)
+		rasterize(canvas, rgnX, rgnY, 0, textureSize);
+
+		// store the font map for the next load, then save the bitmap in a texture
+		if (cache != null)
+			cache.save(this, bitmap);
+		textureId = TextureHelper.loadTexture(bitmap);
+
+		// return success
+		return true;                                    // Return Success
+	}
+
+	//--Measure Font--//
+	// D: load the font and measure the metrics and inked bounds of every character.
+	//    NOTE: the paint and ink offsets are kept until rasterize() is called
+	// A: file - Filename of the font (.ttf, .otf) to use. In 'Assets' folder.
+	//    size - Requested pixel size of font (height)
+	//    padX, padY - Extra padding per character (X+Y Axis)
+	// R: false if the font size is outside the valid bounds
+	boolean measure(String file, int size, int padX, int padY) {
+		fontPadX = padX;                                // Set Requested X Axis Padding
+		fontPadY = padY;                                // Set Requested Y Axis Padding
+
 		// load the font and setup paint instance for drawing
 		Typeface tf = Typeface.createFromAsset(assets, file);   // Create the Typeface from Font File
 		Paint paint = new Paint();                              // Create Android Paint Instance
@@ -174,67 +249,93 @@ public class GLText {
 		if (maxSize < FONT_SIZE_MIN || maxSize > FONT_SIZE_MAX)         // IF Maximum Size Outside Valid Bounds
 			return false;                                               // Return Error
 
-		// set texture size based on max font size (width or height)
-		// NOTE: these values are fixed, based on the defined characters. when
-		// changing start/end characters (CHAR_START/CHAR_END) this will need adjustment too!
-		if (maxSize <= 24)                                  // IF Max Size is 18 or Less
-			textureSize = 256;                              // Set 256 Texture Size
-		else if (maxSize <= 40)                             // ELSE IF Max Size is 40 or Less
-			textureSize = 512;                              // Set 512 Texture Size
-		else if (maxSize <= 80)                             // ELSE IF Max Size is 80 or Less
-			textureSize = 1024;                             // Set 1024 Texture Size
-		else                                                // ELSE IF Max Size is Larger Than 80 (and Less than FONT_SIZE_MAX)
-			textureSize = 2048;                             // Set 2048 Texture Size
-
-		// create an empty bitmap (alpha only)
-		Bitmap bitmap = Bitmap.createBitmap(textureSize, textureSize, Bitmap.Config.ALPHA_8);  // Create Bitmap
-		Canvas canvas = new Canvas(bitmap);           // Create Canvas for Rendering to Bitmap
-		bitmap.eraseColor(0x00000000);                // Set Transparent Background (ARGB)
-
-		// calculate rows/columns
-		// NOTE: while not required for anything, these may be useful to have :)
-		colCnt = textureSize / cellWidth;                           // Calculate Number of Columns
-		rowCnt = (int)Math.ceil( (float)CHAR_CNT / (float)colCnt);  // Calculate Number of Rows
-
-		// render each of the characters to the canvas (ie. build the font map)
-		float x = fontPadX;                                     // Set Start Position (X)
-		float y = (cellHeight - 1) - fontDescent - fontPadY;    // Set Start Position (Y)
-		for (char c = CHAR_START; c <= CHAR_END; c++) {         // FOR Each Character
-			s[0] = c;                                           // Set Character to Draw
-			canvas.drawText(s, 0, 1, x, y, paint);              // Draw Character
-			x += cellWidth;                                     // Move to Next Character
-			if (( x + cellWidth - fontPadX ) > textureSize) {   // IF End of Line Reached
-				x = fontPadX;                                   // Set X for New Row
-				y += cellHeight;                                // Move Down a Row
+		// measure the actual (inked) bounds of each character, including unknown character
+		Rect bounds = new Rect();                           // Working Glyph Bounds
+		inkLeft = new int[CHAR_CNT];                        // Left of Ink Relative to Pen Position
+		inkTop = new int[CHAR_CNT];                         // Top of Ink Relative to Baseline
+		for (int c = 0; c < CHAR_CNT; c++) {                // FOR Each Character
+			s[0] = (c == CHAR_UNKNOWN) ? (char)CHAR_NONE : (char)(c + CHAR_START);
+			paint.getTextBounds(s, 0, 1, bounds);           // Get Glyph Bounds
+			if (bounds.width() <= 0 || bounds.height() <= 0) {  // IF No Ink (ie. Space)
+				glyphOffX[c] = glyphOffY[c] = 0;
+				glyphWidths[c] = glyphHeights[c] = 0;
+				continue;
 			}
+			inkLeft[c] = bounds.left;
+			inkTop[c] = bounds.top;
+			glyphOffX[c] = bounds.left - fontPadX;          // Quad Left Relative to Pen Position
+			glyphOffY[c] = -(bounds.bottom + fontPadY);     // Quad Bottom Relative to Baseline (Y Up)
+			glyphWidths[c] = bounds.width() + (2 * fontPadX);
+			glyphHeights[c] = bounds.height() + (2 * fontPadY);
 		}
-		s[0] = CHAR_NONE;                               // Set Character to Use for NONE
-		canvas.drawText(s, 0, 1, x, y, paint);          // Draw Character
 
-		// save the bitmap in a texture
-		textureId = TextureHelper.loadTexture(bitmap);
+		mPaint = paint;                                     // Keep Paint for Rasterizing
+		return true;
+	}
 
-		// setup the array of character texture regions
-		x = 0;                                              // Initialize X
-		y = 0;                                              // Initialize Y
+
+	//--Packed Glyph Sizes--//
+	// D: return the size of each glyph region on the texture (pixels), for GlyphPacker
+	int[] packWidths() {
+		int[] w = new int[CHAR_CNT];
+		for (int c = 0; c < CHAR_CNT; c++)
+			w[c] = (int)glyphWidths[c];
+		return w;
+	}
+
+	int[] packHeights() {
+		int[] h = new int[CHAR_CNT];
+		for (int c = 0; c < CHAR_CNT; c++)
+			h[c] = (int)glyphHeights[c];
+		return h;
+	}
+
+	//--Rasterize Font--//
+	// D: render each of the measured characters to its packed region and setup the texture regions
+	//    NOTE: must be called after measure()
+	// A: canvas - canvas of the (alpha only) texture bitmap
+	//    rgnX, rgnY - top/left of each packed glyph region (pixels)
+	//    offset - index of this font's first glyph in rgnX/rgnY
+	//    texSize - the size of the texture (pixels)
+	// R: [none]
+	void rasterize(Canvas canvas, int[] rgnX, int[] rgnY, int offset, int texSize) {
+		char[] s = new char[2];                             // Create Character Array
 		for (int c = 0; c < CHAR_CNT; c++) {                // FOR Each Character (On Texture)
-			charRgn[c] = new TextureRegion(textureSize, textureSize, x, y, cellWidth-1, cellHeight-1);  // Create Region for Character
-			x += cellWidth;                                 // Move to Next Char (Cell)
-			if (x + cellWidth > textureSize) {
-				x = 0;                                      // Reset X Position to Start
-				y += cellHeight;                            // Move to Next Row (Cell)
-			}
+			int rx = rgnX[offset + c];
+			int ry = rgnY[offset + c];
+			charRgn[c] = new TextureRegion(texSize, texSize, rx, ry, glyphWidths[c], glyphHeights[c]);  // Create Region for Character
+			if (glyphWidths[c] == 0)                        // IF Nothing to Draw
+				continue;
+			s[0] = (c == CHAR_UNKNOWN) ? (char)CHAR_NONE : (char)(c + CHAR_START);
+			float x = rx + fontPadX - inkLeft[c];           // Pen X So Ink Starts After Padding
+			float y = ry + fontPadY - inkTop[c];            // Baseline Y So Ink Starts After Padding
+			canvas.drawText(s, 0, 1, x, y, mPaint);         // Draw Character
 		}
 
 		// create full texture region
+		textureSize = texSize;
 		textureRgn = new TextureRegion(textureSize, textureSize, 0, 0, textureSize, textureSize);  // Create Full Texture Region
 
-		// return success
-		return true;                                    // Return Success
+		// release the measuring state
+		mPaint = null;
+		inkLeft = inkTop = null;
 	}
 
+	//--Clean Up--//
+	// D: free the batch, texture and (if created here) program of a standalone font. a font
+	//    of a FontManager shares them, and they are freed by FontManager.cleanUp()
+	// A: [none]
+	// R: [none]
 	public void cleanUp() {
-        batch.cleanUp();
+		if (mManager != null)                           // IF Shared (Owned by Manager)
+			return;
+		batch.cleanUp();
+		if (textureId > 0) {
+			GLES20.glDeleteTextures(1, new int[] { textureId }, 0);
+			textureId = -1;
+		}
+		if (mOwnsProgram && mProgram.initialized())
+			mProgram.delete();
 	}
 
 	//--Begin/End Text Drawing--//
@@ -254,28 +355,48 @@ public class GLText {
 
 	public void begin(float red, float green, float blue, float alpha, float[] vpMatrix) {
 		initDraw(red, green, blue, alpha);
+		batch.setColor(0xFFFFFFFF);                             // Reset Per-Vertex Color to White
 		batch.beginBatch(vpMatrix);                             // Begin Batch
 	}
 	
 	void initDraw(float red, float green, float blue, float alpha) {
-		GLES20.glUseProgram(mProgram.getHandle()); // specify the program to use
+		initDraw(mProgram.getHandle(), mColorHandle, mTextureUniformHandle, red, green, blue, alpha);
+	}
+
+	// D: as above, for another program with the same uniforms (ie. the BatchTextProgram of a
+	//    TextLabel when the font itself draws with InstancedTextProgram)
+	void initDraw(int program, int colorHandle, int textureUniformHandle,
+				  float red, float green, float blue, float alpha) {
+		GLES20.glUseProgram(program);              // specify the program to use
 		
-		// set color TODO: only alpha component works, text is always black #BUG
-		float[] color = {red, green, blue, alpha}; 
-		GLES20.glUniform4fv(mColorHandle, 1, color, 0);
-		GLES20.glEnableVertexAttribArray(mColorHandle);
+		// set the tint for the whole batch; it multiplies the per-vertex colors (see setColor())
+		GLES20.glUniform4f(colorHandle, red, green, blue, alpha);
 		
 		GLES20.glActiveTexture(GLES20.GL_TEXTURE0);             // Set the active texture unit to texture unit 0
 		
 		GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureId);  // Bind the texture to this unit
 		
 		// Tell the texture uniform sampler to use this texture in the shader by binding to texture unit 0
-		GLES20.glUniform1i(mTextureUniformHandle, 0); 
+		GLES20.glUniform1i(textureUniformHandle, 0); 
 	}
 	
 	public void end() {
 		batch.endBatch();                               // End Batch
-		GLES20.glDisableVertexAttribArray(mColorHandle);
+	}
+
+	//--Set Color--//
+	// D: set the color of text drawn after this call (multiplied with the begin() color).
+	//    the color is stored per vertex, so changing it between or within strings does
+	//    NOT end the batch; differently colored text is rendered in a single draw call.
+	// A: red, green, blue, alpha - color components (0.0 - 1.0)
+	//    argb - Android color int (ie. 0xFFFF0000 for red)
+	// R: [none]
+	public void setColor(float red, float green, float blue, float alpha) {
+		batch.setColor(red, green, blue, alpha);
+	}
+
+	public void setColor(int argb) {
+		batch.setColor(SpriteBatch.packColor(argb));
 	}
 
 	//--Draw Text--//
@@ -285,31 +406,53 @@ public class GLText {
 	//    angleDeg - angle to rotate the text
 	// R: [none]
 	public void draw(String text, float x, float y, float z, float angleDegX, float angleDegY, float angleDegZ) {
-		float chrHeight = cellHeight * scaleY;          // Calculate Scaled Character Height
-		float chrWidth = cellWidth * scaleX;            // Calculate Scaled Character Width
-		int len = text.length();                        // Get String Length
-		x += (chrWidth / 2.0f) - (fontPadX * scaleX);   // Adjust Start X
-		y += (chrHeight / 2.0f) - (fontPadY * scaleY);  // Adjust Start Y
-		
+		draw(text, 0, text.length(), x, y, z, angleDegX, angleDegY, angleDegZ);
+	}
+
+	// D: draw the characters [start, end) of text at the specified x,y position
+	public void draw(CharSequence text, int start, int end, float x, float y, float z,
+					 float angleDegX, float angleDegY, float angleDegZ) {
+		draw(text, start, end, null, x, y, z, angleDegX, angleDegY, angleDegZ);
+	}
+
+	// D: draw text where each character has its own color, without flushing the batch
+	// A: colors - Android ARGB color of each character (same indices as text)
+	public void draw(CharSequence text, int[] colors, float x, float y) {
+		draw(text, 0, text.length(), colors, x, y, 0, 0, 0, 0);
+	}
+
+	private void draw(CharSequence text, int start, int end, int[] colors, float x, float y, float z,
+					  float angleDegX, float angleDegY, float angleDegZ) {
+		if (mManager != null)                           // IF Sharing a Batch With Other Fonts
+			mManager.usePage(textureId);                // Flush and Rebind Only if Page Changes
+
 		// create a model matrix based on x, y and angleDeg
-		float[] modelMatrix = new float[16];
+		float[] modelMatrix = mModelMatrix;
 		Matrix.setIdentityM(modelMatrix, 0);
 		Matrix.translateM(modelMatrix, 0, x, y, z);
 		Matrix.rotateM(modelMatrix, 0, angleDegZ, 0, 0, 1);
 		Matrix.rotateM(modelMatrix, 0, angleDegX, 1, 0, 0);
 		Matrix.rotateM(modelMatrix, 0, angleDegY, 0, 1, 0);
 		
-		float letterX, letterY; 
-		letterX = letterY = 0;
+		float letterX = 0;                              // Pen Position
+		float baseY = fontDescent * scaleY;             // Baseline (Text Bottom Includes Descent)
+		int color = batch.getColor();                   // Save Current Color
 		
-		for (int i = 0; i < len; i++) {                     // FOR Each Character in String
-			int c = (int)text.charAt(i) - CHAR_START;       // Calculate Character Index (Offset by First Char in Font)
-			if (c < 0 || c >= CHAR_CNT)                     // IF Character Not In Font
-				c = CHAR_UNKNOWN;                           // Set to Unknown Character Index
-			//TODO: optimize - applying the same model matrix to all the characters in the string
-			batch.drawSprite(letterX, letterY, chrWidth, chrHeight, charRgn[c], modelMatrix);  // Draw the Character
+		for (int i = start; i < end; i++) {                 // FOR Each Character in String
+			int c = charIndex(text.charAt(i));              // Calculate Character Index
+			if (colors != null)                             // IF Per-Character Colors
+				batch.setColor(SpriteBatch.packColor(colors[i]));  // Set Color (No Flush)
+			if (glyphWidths[c] > 0) {                       // IF Character Has Ink
+				float chrWidth = glyphWidths[c] * scaleX;   // Calculate Scaled Glyph Width
+				float chrHeight = glyphHeights[c] * scaleY; // Calculate Scaled Glyph Height
+				float letterCX = letterX + (glyphOffX[c] * scaleX) + (chrWidth / 2.0f);  // Glyph Center X
+				float letterCY = baseY + (glyphOffY[c] * scaleY) + (chrHeight / 2.0f);   // Glyph Center Y
+				//TODO: optimize - applying the same model matrix to all the characters in the string
+				batch.drawSprite(letterCX, letterCY, chrWidth, chrHeight, charRgn[c], modelMatrix);  // Draw the Character
+			}
 			letterX += (charWidths[c] + spaceX ) * scaleX;    // Advance X Position by Scaled Character Width
 		}
+		batch.setColor(color);                          // Restore Color
 	}
 	public void draw(String text, float x, float y, float z, float angleDegZ) {
 		draw(text, x, y, z, 0, 0, angleDegZ);
@@ -323,6 +466,11 @@ public class GLText {
 		draw(text, x, y, 0, 0);
 	}
 
+	// D: draw text held in a reusable buffer (ie. a StringBuilder filled by NumberFormatter)
+	public void draw(CharSequence text, float x, float y) {
+		draw(text, 0, text.length(), x, y, 0, 0, 0, 0);
+	}
+
 	//--Draw Text Centered--//
 	// D: draw text CENTERED at the specified x,y position
 	// A: text - the string to draw
@@ -345,8 +493,7 @@ public class GLText {
 	}
 
 	public float drawC(String text, float x, float y) {
-		float len = getLength(text);                  // Get Text Length
-		return drawC(text, x - (len / 2.0f), y - (getCharHeight() / 2.0f ), 0);
+		return drawC(text, x, y, 0);
 	}
 
 	public float drawCX(String text, float x, float y) {
@@ -359,6 +506,21 @@ public class GLText {
 		draw(text, x, y - (getCharHeight() / 2.0f));  // Draw Text Centered (Y-Axis Only)
 	}
 
+	//--Draw Text Layout--//
+	// D: draw a (possibly multi-line) layout created by TextLayoutEngine
+	//    NOTE: the layout must have been created with the current scale and spacing!
+	// A: layout - the layout to draw
+	//    x, y - the bottom left of the first line; following lines are drawn below it
+	// R: [none]
+	public void draw(TextLayout layout, float x, float y) {
+		String text = layout.getText();
+		float lineHeight = getCharHeight();
+		for (int i = 0; i < layout.getLineCount(); i++) {   // FOR Each Line
+			draw(text, layout.getLineStart(i), layout.getLineEnd(i),
+					x + layout.getLineOffset(i), y - (i * lineHeight), 0, 0, 0, 0);
+		}
+	}
+
 	//--Set Scale--//
 	// D: set the scaling to use for the font
 	// A: scale - uniform scale for both x and y axis scaling
@@ -377,6 +539,7 @@ public class GLText {
 	// D: get the current scaling used for the font
 	// A: [none]
 	// R: the x/y scale currently used for scale
+	@Override
 	public float getScaleX() {
 		return scaleX;                                  // Return X Scale
 	}
@@ -397,6 +560,7 @@ public class GLText {
 	// D: get the current spacing used for the font
 	// A: [none]
 	// R: the x/y space currently used for scale
+	@Override
 	public float getSpace() {
 		return spaceX;                                  // Return X Space
 	}
@@ -406,10 +570,15 @@ public class GLText {
 	// A: text - the string to get length for
 	// R: the length of the specified string (pixels)
 	public float getLength(String text) {
+		return getLength(text, 0, text.length());
+	}
+
+	// D: return the length of the characters [start, end) of text
+	public float getLength(CharSequence text, int start, int end) {
 		float len = 0.0f;                                 // Working Length
-		int strLen = text.length();                       // Get String Length (Characters)
-		for (int i = 0; i < strLen; i++) {                // For Each Character in String (Except Last
-			int c = (int)text.charAt(i) - CHAR_START;     // Calculate Character Index (Offset by First Char in Font)
+		int strLen = end - start;                         // Get String Length (Characters)
+		for (int i = start; i < end; i++) {               // For Each Character in String (Except Last
+			int c = charIndex(text.charAt(i));            // Calculate Character Index
 			len += (charWidths[c] * scaleX);              // Add Scaled Character Width to Total Length
 		}
 		len += (strLen > 1 ? ((strLen - 1) * spaceX) * scaleX : 0);     // Add Space Length
@@ -423,10 +592,36 @@ public class GLText {
 	// A: chr - the character to get width for
 	// R: the requested character size (scaled)
 	public float getCharWidth(char chr) {
-		int c = chr - CHAR_START;                       // Calculate Character Index (Offset by First Char in Font)
+		int c = charIndex(chr);                         // Calculate Character Index
 		return (charWidths[c] * scaleX);                // Return Scaled Character Width
 	}
 
+	//--Get Advance of Character--//
+	// D: return the unscaled width of a character, excluding spacing (see TextMetrics)
+	// A: chr - the character to get the advance for
+	// R: the advance (pixels)
+	@Override
+	public float getAdvance(char chr) {
+		return charWidths[charIndex(chr)];
+	}
+
+	//--Get Program--//
+	// D: return the program used to draw this font
+	Program getProgram() {
+		return mProgram;
+	}
+
+	//--Get Character Index--//
+	// D: return the index of a character in the font (offset by first char in font)
+	// A: chr - the character
+	// R: the character index, or CHAR_UNKNOWN if the character is not in the font
+	int charIndex(char chr) {
+		int c = (int)chr - CHAR_START;                  // Calculate Character Index (Offset by First Char in Font)
+		if (c < 0 || c >= CHAR_CNT)                     // IF Character Not In Font
+			c = CHAR_UNKNOWN;                           // Set to Unknown Character Index
+		return c;
+	}
+
 	public float getCharWidthMax() {
 		return (charWidthMax * scaleX);               // Return Scaled Max Character Width
 	}
@@ -0,0 +1,83 @@
+// Packs glyph rectangles into the smallest square, power of two texture that
+// holds them all. Glyphs are sorted by height and placed left to right on
+// shelves, a new shelf being started when the current one is full. This wastes
+// far less space than the fixed cells previously used by GLText.
+
+package org.cbateman.opengl.text.gltext;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+class GlyphPacker {
+
+	//--Constants--//
+	final static int MIN_TEXTURE_SIZE = 32;            // Smallest Texture Size Tried
+	final static int GUTTER = 1;                       // Empty Pixels Between Glyphs (Avoids Filter Bleeding)
+
+	private GlyphPacker() {}
+
+	//--Pack--//
+	// D: find positions for each rectangle and the texture size that holds them
+	//    NOTE: rectangles with a zero width or height are not placed (outX/outY = 0)
+	// A: widths, heights - the size of each rectangle (pixels)
+	//    outX, outY - receives the top/left position of each rectangle (pixels)
+	//    maxSize - the largest texture size allowed
+	// R: the texture size (width and height) used; 0 if the rectangles do not fit
+	static int pack(int[] widths, int[] heights, int[] outX, int[] outY, int maxSize) {
+		int cnt = widths.length;
+
+		// sort indices by descending height so each shelf is filled with similar glyphs
+		int[] order = new int[cnt];
+		for (int i = 0; i < cnt; i++) {
+			order[i] = i;
+		}
+		for (int i = 1; i < cnt; i++) {
+			int idx = order[i];
+			int j = i - 1;
+			while (j >= 0 && heights[order[j]] < heights[idx]) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = idx;
+		}
+
+		for (int size = MIN_TEXTURE_SIZE; size <= maxSize; size *= 2) {
+			if (packShelves(widths, heights, order, outX, outY, size)) {
+				return size;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean packShelves(int[] widths, int[] heights, int[] order,
+									   int[] outX, int[] outY, int size) {
+		int x = 0;                                      // Next Free X on Current Shelf
+		int y = 0;                                      // Top of Current Shelf
+		int shelfHeight = 0;                            // Height of Current Shelf
+
+		for (int idx : order) {
+			int w = widths[idx];
+			int h = heights[idx];
+			if (w <= 0 || h <= 0) {                     // IF Nothing to Place
+				outX[idx] = outY[idx] = 0;
+				continue;
+			}
+			if (w > size) {                             // IF Wider Than the Texture
+				return false;
+			}
+			if (x + w > size) {                         // IF Shelf Full, Start a New One
+				x = 0;
+				y += shelfHeight + GUTTER;
+				shelfHeight = 0;
+			}
+			if (y + h > size) {                         // IF Out of Rows
+				return false;
+			}
+			outX[idx] = x;
+			outY[idx] = y;
+			x += w + GUTTER;
+			if (h > shelfHeight) {
+				shelfHeight = h;
+			}
+		}
+		return true;
+	}
+}
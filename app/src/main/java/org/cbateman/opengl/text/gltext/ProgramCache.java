@@ -0,0 +1,231 @@
+// Persists linked program binaries so that later launches (and surface changes)
+// can skip GLSL compilation and linking. Binaries are keyed by a hash of the
+// shader sources, the attribute bindings and the driver (GL_RENDERER and
+// GL_VERSION), so a driver update never loads a stale binary. If the driver
+// rejects a binary anyway, the file is deleted and the caller compiles from
+// source as before.
+//
+// NOTE: program binaries are core in OpenGL ES 3.0. android.opengl has no
+// bindings for glGetProgramBinaryOES, so the cache is disabled on ES 2.0 contexts.
+
+package org.cbateman.opengl.text.gltext;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class ProgramCache {
+
+	//--Constants--//
+	private static final int MAGIC = 0x474C5042;       // 'GLPB'
+	private static final int VERSION = 1;              // Bump When the File Layout Changes
+	private static final int HEADER_INTS = 4;          // Magic, Version, Binary Format, Binary Length
+	private static final String TAG = "ProgramCache";
+
+	//--Members--//
+	private static File sDirectory;                    // Cache Directory (null = Disabled)
+	private static String sDriver = "";                // Renderer and Version of the Current Context
+	private static int sLoaded;                        // Programs Restored from Binaries
+	private static int sCompiled;                      // Programs Compiled from Source
+
+	private ProgramCache() {
+	}
+
+	//--Set Directory--//
+	// D: enable the cache for the current context. call on the GL thread once the context
+	//    exists (ie. onSurfaceCreated), before any program is created
+	// A: cacheDir - directory to store binaries in (ie. Context.getCacheDir()), null to disable
+	// R: true if binaries will be cached
+	public static boolean setDirectory(File cacheDir) {
+		sDirectory = null;
+		if (cacheDir == null || !Utilities.isES3Context())
+			return false;
+		int[] formats = new int[1];
+		GLES20.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+		if (formats[0] == 0) {                          // IF Driver Cannot Return Binaries
+			Log.i(TAG, "No program binary formats, compiling from source");
+			return false;
+		}
+		sDriver = GLES20.glGetString(GLES20.GL_RENDERER) + "|" + GLES20.glGetString(GLES20.GL_VERSION);
+		sDirectory = cacheDir;
+		return true;
+	}
+
+	//--Load--//
+	// D: create a program from a cached binary
+	// A: vertexShaderCode, fragmentShaderCode - the sources the program is built from
+	//    variables - attribute locations bound before linking (may be null)
+	// R: the linked program; 0 if there is no valid cached binary
+	public static int load(String vertexShaderCode, String fragmentShaderCode, AttribVariable[] variables) {
+		if (sDirectory == null)
+			return 0;
+		File file = fileFor(vertexShaderCode, fragmentShaderCode, variables);
+		if (!file.isFile())
+			return 0;
+
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+			if (mapped.remaining() < HEADER_INTS * 4 || mapped.getInt() != MAGIC || mapped.getInt() != VERSION) {
+				discard(file, "stale");
+				return 0;
+			}
+			int format = mapped.getInt();
+			int length = mapped.getInt();
+			if (mapped.remaining() != length) {
+				discard(file, "truncated");
+				return 0;
+			}
+
+			// the remainder of the file is the binary, pass it in place
+			int program = programBinary(format, mapped.slice(), length);
+			if (program == 0) {
+				discard(file, "rejected");
+				return 0;
+			}
+			sLoaded++;
+			return program;
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to read program binary " + file.getName(), e);
+			return 0;
+		} finally {
+			CacheFiles.close(in);
+		}
+	}
+
+	//--Prepare--//
+	// D: ask the driver to keep the binary of a program retrievable
+	//    NOTE: must be called before glLinkProgram()
+	// A: program - the program about to be linked
+	// R: [none]
+	public static void prepare(int program) {
+		if (sDirectory != null)
+			setRetrievable(program);
+	}
+
+	//--Save--//
+	// D: write the binary of a program linked from source to the cache
+	// A: program - the linked program (prepared with prepare())
+	//    vertexShaderCode, fragmentShaderCode, variables - as passed to load()
+	// R: [none]
+	public static void save(int program, String vertexShaderCode, String fragmentShaderCode,
+							AttribVariable[] variables) {
+		sCompiled++;
+		if (sDirectory == null || program == 0)
+			return;
+		File file = fileFor(vertexShaderCode, fragmentShaderCode, variables);
+
+		int[] length = new int[1];
+		GLES20.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+		if (length[0] <= 0)
+			return;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_INTS * 4 + length[0]);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.position(HEADER_INTS * 4);
+		ByteBuffer binary = buffer.slice();
+		int[] format = new int[1];
+		getProgramBinary(program, length, format, binary);
+		if (length[0] <= 0)
+			return;
+
+		buffer.position(0);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(format[0]);
+		buffer.putInt(length[0]);
+		buffer.position(0);
+		buffer.limit(HEADER_INTS * 4 + length[0]);
+
+		try {
+			CacheFiles.write(file, buffer);             // Through a Temporary File (See CacheFiles)
+		} catch (IOException e) {
+			Log.w(TAG, "Unable to write program binary " + file.getName(), e);
+		}
+	}
+
+	//--Statistics--//
+	// D: number of programs restored from binaries / compiled from source since launch
+	public static int getLoadedCount() {
+		return sLoaded;
+	}
+
+	public static int getCompiledCount() {
+		return sCompiled;
+	}
+
+	//--Helpers--//
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static int programBinary(int format, ByteBuffer binary, int length) {
+		int program = GLES20.glCreateProgram();
+		if (program == 0)
+			return 0;
+		GLES30.glProgramBinary(program, format, binary, length);
+
+		int[] linkStatus = new int[1];
+		GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+		if (linkStatus[0] == 0) {                       // IF Driver Rejected the Binary
+			GLES20.glDeleteProgram(program);
+			return 0;
+		}
+		return program;
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void getProgramBinary(int program, int[] length, int[] format, ByteBuffer binary) {
+		GLES30.glGetProgramBinary(program, length[0], length, 0, format, 0, binary);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void setRetrievable(int program) {
+		GLES30.glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GLES20.GL_TRUE);
+	}
+
+	private static File fileFor(String vertexShaderCode, String fragmentShaderCode, AttribVariable[] variables) {
+		StringBuilder key = new StringBuilder(vertexShaderCode.length() + fragmentShaderCode.length() + 128);
+		key.append(sDriver).append('\0').append(vertexShaderCode).append('\0').append(fragmentShaderCode);
+		if (variables != null) {
+			for (AttribVariable var : variables) {
+				key.append('\0').append(var.getHandle()).append('=').append(var.getName());
+			}
+		}
+		return new File(sDirectory, "program-" + sha1(key.toString()) + ".bin");
+	}
+
+	private static String sha1(String s) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			// every platform has SHA-1 and UTF-8; fall back to the (weaker) string hash
+			return Integer.toHexString(s.hashCode()) + "-" + s.length();
+		}
+	}
+
+	private static void discard(File file, String reason) {
+		Log.w(TAG, "Discarding " + reason + " program binary " + file.getName());
+		if (!file.delete()) {
+			Log.w(TAG, "Unable to delete " + file.getName());
+		}
+	}
+}
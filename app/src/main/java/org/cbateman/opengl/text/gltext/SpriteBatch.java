@@ -2,35 +2,70 @@ package org.cbateman.opengl.text.gltext;
 
 import org.cbateman.opengl.text.gltext.programs.Program;
 
+import android.annotation.TargetApi;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
 import android.opengl.Matrix;
+import android.os.Build;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 
 @SuppressWarnings({"unused", "WeakerAccess", "PointlessArithmeticExpression"})
 public class SpriteBatch {
 
 	//--Constants--//
-	final static int VERTEX_SIZE = 5;                  // Vertex Size (in Components) ie. (X,Y,U,V,M), M is MVP matrix index
+	final static int VERTEX_SIZE = 6;                  // Vertex Size (in Components) ie. (X,Y,U,V,M,C), M is MVP matrix index, C is packed RGBA color
 	final static int VERTICES_PER_SPRITE = 4;          // Vertices Per Sprite
 	final static int INDICES_PER_SPRITE = 6;           // Indices Per Sprite
+	final static int INSTANCE_SIZE = 25;               // Instance Size (in Components) ie. (Rect[4],Region[4],Model[16],C), ES 3.0 only
+	private static final int MATRIX_BYTES = 16 * 4;    // Byte Size of the Camera Uniform Block (One mat4)
+	private static final int CAMERA_BINDING = 1;       // Uniform Buffer Binding Point of the Camera Block
 	private static final String TAG = "SpriteBatch";
 
 	//--Members--//
 	Vertices vertices;                                 // Vertices Instance Used for Rendering
-	float[] vertexBuffer;                              // Vertex Buffer
+	int[] vertexBuffer;                                // Vertex Buffer (Floats Stored as Raw Int Bits)
 	int bufferIndex;                                   // Vertex Buffer Start Index
 	int maxSprites;                                    // Maximum Sprites Allowed in Buffer
 	int numSprites;                                    // Number of Sprites Currently in Buffer
 	private float[] mVPMatrix;							// View and projection matrix specified at begin 
-	private float[] uMVPMatrices = new float[GLText.CHAR_BATCH_SIZE*16]; // MVP matrix array to pass to shader
+	private float[] uMVPMatrices;                        // MVP matrix array to pass to shader (one per sprite)
 	private int mMVPMatricesHandle;							// shader handle of the MVP matrix array
 	private float[] mMVPMatrix = new float[16];				// used to calculate MVP matrix of each sprite
+	private int mColor = 0xFFFFFFFF;                    // Packed RGBA color for following sprites (White)
+
+	// ES 3.0 only (program.isInstanced()): one instance per sprite, drawn with glDrawElementsInstanced
+	private final boolean mInstanced;                  // Instanced Program?
+	private IntBuffer mInstances;                      // Instance Data Staging Buffer
+	private FloatBuffer mCameraData;                   // View/Projection Matrix Staging Buffer
+	private final int[] vao = new int[1];              // Vertex Array Object (Attribute Layout)
+	private final int[] instanceVbo = new int[1];      // Per-Instance Attribute Buffer
+	private final int[] cornerVbo = new int[1];        // Quad Corner Buffer
+	private final int[] ibo = new int[1];              // Quad Index Buffer
+	private final int[] ubo = new int[1];              // Camera Uniform Buffer
 	
 	//--Constructor--//
 	// D: prepare the sprite batcher for specified maximum number of sprites
-	// A: maxSprites - the maximum allowed sprites per batch
+	// A: maxSprites - the maximum allowed sprites per batch. without instancing at most
+	//                 GLText.CHAR_BATCH_SIZE, the length of the shader's u_MVPMatrix array
 	//    program - program to use when drawing
 	public SpriteBatch(int maxSprites, Program program) {
-		this.vertexBuffer = new float[maxSprites * VERTICES_PER_SPRITE * VERTEX_SIZE];  // Create Vertex Buffer
+		this.mInstanced = program.isInstanced();
+		if (mInstanced) {                               // IF Drawing Instances
+			this.vertexBuffer = new int[maxSprites * INSTANCE_SIZE];  // Create Instance Buffer
+			this.bufferIndex = 0;
+			this.maxSprites = maxSprites;
+			this.numSprites = 0;
+			setupInstancedData(program);
+			return;
+		}
+		maxSprites = Math.min(maxSprites, GLText.CHAR_BATCH_SIZE);  // One Matrix per Sprite in the Shader
+		this.uMVPMatrices = new float[maxSprites * 16];
+		this.vertexBuffer = new int[maxSprites * VERTICES_PER_SPRITE * VERTEX_SIZE];  // Create Vertex Buffer
 		this.vertices = new Vertices(maxSprites * VERTICES_PER_SPRITE, maxSprites * INDICES_PER_SPRITE);  // Create Rendering Vertices
 		this.bufferIndex = 0;                           // Reset Buffer Index
 		this.maxSprites = maxSprites;                   // Save Maximum Sprites
@@ -54,6 +89,10 @@ public class SpriteBatch {
 	}
 
     public void cleanUp() {
+        if (mInstanced) {
+            cleanUpInstanced();
+            return;
+        }
         vertices.cleanUp();
     }
 	
@@ -68,10 +107,13 @@ public class SpriteBatch {
 	// A: [none]
 	// R: [none]
 	public void endBatch() {
+		if (mInstanced) {                            // IF Drawing Instances
+			drawInstanced();
+			return;
+		}
 		if (numSprites > 0) {                        // IF Any Sprites to Render
 			// bind MVP matrices array to shader
 			GLES20.glUniformMatrix4fv(mMVPMatricesHandle, numSprites, false, uMVPMatrices, 0); 
-			GLES20.glEnableVertexAttribArray(mMVPMatricesHandle);
 			
 			vertices.setVertices(vertexBuffer, 0, bufferIndex);     // Set Vertices from Buffer
 			vertices.bind();                                        // Bind Vertices
@@ -80,6 +122,53 @@ public class SpriteBatch {
 		}
 	}
 
+	//--Flush Batch--//
+	// D: render the batched sprites and restart the batch with the same view/projection
+	//    NOTE: used when a texture (or other state) must change mid-batch
+	// A: [none]
+	// R: [none]
+	public void flush() {
+		endBatch();                                     // Render Current Sprites
+		numSprites = 0;                                 // Empty Sprite Counter
+		bufferIndex = 0;                                // Reset Buffer Index (Empty)
+	}
+
+	//--Set Color--//
+	// D: set the color of sprites added after this call. the color is stored per
+	//    vertex, so changing it does NOT flush the batch
+	// A: red, green, blue, alpha - color components (0.0 - 1.0)
+	//    color - color packed with packColor()
+	// R: [none]
+	public void setColor(float red, float green, float blue, float alpha) {
+		mColor = packColor(red, green, blue, alpha);
+	}
+
+	public void setColor(int color) {
+		mColor = color;
+	}
+
+	public int getColor() {
+		return mColor;
+	}
+
+	//--Pack Color--//
+	// D: pack a color into the int stored in the vertex buffer. the bytes are laid out
+	//    R,G,B,A in (little endian) memory, read as normalized GL_UNSIGNED_BYTE
+	// A: red, green, blue, alpha - color components (0.0 - 1.0)
+	// R: the packed color
+	public static int packColor(float red, float green, float blue, float alpha) {
+		int r = (int)(Math.max(0.0f, Math.min(red, 1.0f)) * 255.0f + 0.5f);
+		int g = (int)(Math.max(0.0f, Math.min(green, 1.0f)) * 255.0f + 0.5f);
+		int b = (int)(Math.max(0.0f, Math.min(blue, 1.0f)) * 255.0f + 0.5f);
+		int a = (int)(Math.max(0.0f, Math.min(alpha, 1.0f)) * 255.0f + 0.5f);
+		return (a << 24) | (b << 16) | (g << 8) | r;
+	}
+
+	// D: convert an Android ARGB color int (ie. 0xFFFF0000 for red) to a packed color
+	public static int packColor(int argb) {
+		return (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF) | ((argb & 0xFF) << 16);
+	}
+
 	//--Draw Sprite to Batch--//
 	// D: batch specified sprite to batch. adds vertices for sprite to vertex buffer
 	//    NOTE: MUST be called after beginBatch(), and before endBatch()!
@@ -94,10 +183,13 @@ public class SpriteBatch {
     public void drawSprite(float x, float y, float width, float height,
                            TextureRegion region, float[] modelMatrix) {
 		if (numSprites == maxSprites) {              // IF Sprite Buffer is Full
-			endBatch();                                  // End Batch
 			// NOTE: leave current texture bound!!
-			numSprites = 0;                              // Empty Sprite Counter
-			bufferIndex = 0;                             // Reset Buffer Index (Empty)
+			flush();                                     // Render and Restart Batch
+		}
+
+		if (mInstanced) {                            // IF Drawing Instances
+			addInstance(x, y, width, height, region, modelMatrix);
+			return;
 		}
 
 		float halfWidth = width / 2.0f;                 // Calculate Half Width
@@ -107,39 +199,184 @@ public class SpriteBatch {
 		float x2 = x + halfWidth;                       // Calculate Right X
 		float y2 = y + halfHeight;                      // Calculate Top Y
 
-		vertexBuffer[bufferIndex++] = x1;               // Add X for Vertex 0
-		vertexBuffer[bufferIndex++] = y1;               // Add Y for Vertex 0
-		vertexBuffer[bufferIndex++] = region.u1;        // Add U for Vertex 0
-		vertexBuffer[bufferIndex++] = region.v2;        // Add V for Vertex 0
-		vertexBuffer[bufferIndex++] = numSprites;
-
-		vertexBuffer[bufferIndex++] = x2;               // Add X for Vertex 1
-		vertexBuffer[bufferIndex++] = y1;               // Add Y for Vertex 1
-		vertexBuffer[bufferIndex++] = region.u2;        // Add U for Vertex 1
-		vertexBuffer[bufferIndex++] = region.v2;        // Add V for Vertex 1
-		vertexBuffer[bufferIndex++] = numSprites;
-
-		vertexBuffer[bufferIndex++] = x2;               // Add X for Vertex 2
-		vertexBuffer[bufferIndex++] = y2;               // Add Y for Vertex 2
-		vertexBuffer[bufferIndex++] = region.u2;        // Add U for Vertex 2
-		vertexBuffer[bufferIndex++] = region.v1;        // Add V for Vertex 2
-		vertexBuffer[bufferIndex++] = numSprites;
-
-		vertexBuffer[bufferIndex++] = x1;               // Add X for Vertex 3
-		vertexBuffer[bufferIndex++] = y2;               // Add Y for Vertex 3
-		vertexBuffer[bufferIndex++] = region.u1;        // Add U for Vertex 3
-		vertexBuffer[bufferIndex++] = region.v1;        // Add V for Vertex 3
-		vertexBuffer[bufferIndex++] = numSprites;
+		int fx1 = Float.floatToRawIntBits(x1);          // Vertex Data is Stored as Raw Int Bits
+		int fy1 = Float.floatToRawIntBits(y1);
+		int fx2 = Float.floatToRawIntBits(x2);
+		int fy2 = Float.floatToRawIntBits(y2);
+		int fu1 = Float.floatToRawIntBits(region.u1);
+		int fv1 = Float.floatToRawIntBits(region.v1);
+		int fu2 = Float.floatToRawIntBits(region.u2);
+		int fv2 = Float.floatToRawIntBits(region.v2);
+		int fm = Float.floatToRawIntBits(numSprites);
+
+		vertexBuffer[bufferIndex++] = fx1;              // Add X for Vertex 0
+		vertexBuffer[bufferIndex++] = fy1;              // Add Y for Vertex 0
+		vertexBuffer[bufferIndex++] = fu1;              // Add U for Vertex 0
+		vertexBuffer[bufferIndex++] = fv2;              // Add V for Vertex 0
+		vertexBuffer[bufferIndex++] = fm;
+		vertexBuffer[bufferIndex++] = mColor;           // Add Color for Vertex 0
+
+		vertexBuffer[bufferIndex++] = fx2;              // Add X for Vertex 1
+		vertexBuffer[bufferIndex++] = fy1;              // Add Y for Vertex 1
+		vertexBuffer[bufferIndex++] = fu2;              // Add U for Vertex 1
+		vertexBuffer[bufferIndex++] = fv2;              // Add V for Vertex 1
+		vertexBuffer[bufferIndex++] = fm;
+		vertexBuffer[bufferIndex++] = mColor;           // Add Color for Vertex 1
+
+		vertexBuffer[bufferIndex++] = fx2;              // Add X for Vertex 2
+		vertexBuffer[bufferIndex++] = fy2;              // Add Y for Vertex 2
+		vertexBuffer[bufferIndex++] = fu2;              // Add U for Vertex 2
+		vertexBuffer[bufferIndex++] = fv1;              // Add V for Vertex 2
+		vertexBuffer[bufferIndex++] = fm;
+		vertexBuffer[bufferIndex++] = mColor;           // Add Color for Vertex 2
+
+		vertexBuffer[bufferIndex++] = fx1;              // Add X for Vertex 3
+		vertexBuffer[bufferIndex++] = fy2;              // Add Y for Vertex 3
+		vertexBuffer[bufferIndex++] = fu1;              // Add U for Vertex 3
+		vertexBuffer[bufferIndex++] = fv1;              // Add V for Vertex 3
+		vertexBuffer[bufferIndex++] = fm;
+		vertexBuffer[bufferIndex++] = mColor;           // Add Color for Vertex 3
 
 		// add the sprite mvp matrix to uMVPMatrices array
 		
 		Matrix.multiplyMM(mMVPMatrix, 0, mVPMatrix , 0, modelMatrix, 0);
 
-		//TODO: make sure numSprites < 24
+		// numSprites < maxSprites <= CHAR_BATCH_SIZE: a full batch was flushed above
 		for (int i = 0; i < 16; ++i) {
 			uMVPMatrices[numSprites*16+i] = mMVPMatrix[i];
 		}
 		
 		numSprites++;                                   // Increment Sprite Count
 	}
+
+	//--Instanced Rendering (ES 3.0)--//
+	// D: add a sprite as one instance: its rectangle, texture region, model matrix and color.
+	//    the view/projection matrix is applied on the GPU, so nothing is multiplied here
+	// A: see drawSprite()
+	// R: [none]
+	private void addInstance(float x, float y, float width, float height,
+							 TextureRegion region, float[] modelMatrix) {
+		float halfWidth = width / 2.0f;                 // Calculate Half Width
+		float halfHeight = height / 2.0f;               // Calculate Half Height
+		int[] buffer = vertexBuffer;
+		int i = bufferIndex;
+		buffer[i++] = Float.floatToRawIntBits(x - halfWidth);   // Left
+		buffer[i++] = Float.floatToRawIntBits(y - halfHeight);  // Bottom
+		buffer[i++] = Float.floatToRawIntBits(x + halfWidth);   // Right
+		buffer[i++] = Float.floatToRawIntBits(y + halfHeight);  // Top
+		buffer[i++] = Float.floatToRawIntBits(region.u1);
+		buffer[i++] = Float.floatToRawIntBits(region.v1);
+		buffer[i++] = Float.floatToRawIntBits(region.u2);
+		buffer[i++] = Float.floatToRawIntBits(region.v2);
+		for (int m = 0; m < 16; m++)                    // Model Matrix (Column Major, One vec4 per Attribute)
+			buffer[i++] = Float.floatToRawIntBits(modelMatrix[m]);
+		buffer[i++] = mColor;
+		bufferIndex = i;
+		numSprites++;                                   // Increment Sprite Count
+	}
+
+	// D: create the quad corner, index, instance and uniform buffers, and record the
+	//    attribute layout in a vertex array object (once, instead of on every bind)
+	// A: program - the instanced program (attribute locations are bound by AttribVariable)
+	// R: [none]
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void setupInstancedData(Program program) {
+		float[] corners = { 0, 0, 1, 0, 1, 1, 0, 1 };   // Bottom Left, Bottom Right, Top Right, Top Left
+		short[] indices = { 0, 1, 2, 2, 3, 0 };         // Same Winding as the ES 2.0 Quads
+		FloatBuffer cornerData = ByteBuffer.allocateDirect(corners.length * 4)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+		cornerData.put(corners).flip();
+		ShortBuffer indexData = ByteBuffer.allocateDirect(indices.length * 2)
+				.order(ByteOrder.nativeOrder()).asShortBuffer();
+		indexData.put(indices).flip();
+		mInstances = ByteBuffer.allocateDirect(vertexBuffer.length * 4)
+				.order(ByteOrder.nativeOrder()).asIntBuffer();
+		mCameraData = ByteBuffer.allocateDirect(MATRIX_BYTES)
+				.order(ByteOrder.nativeOrder()).asFloatBuffer();
+
+		int cameraIndex = GLES30.glGetUniformBlockIndex(program.getHandle(), "Camera");
+		GLES30.glUniformBlockBinding(program.getHandle(), cameraIndex, CAMERA_BINDING);
+
+		GLES20.glGenBuffers(1, cornerVbo, 0);
+		GLES20.glGenBuffers(1, instanceVbo, 0);
+		GLES20.glGenBuffers(1, ibo, 0);
+		GLES20.glGenBuffers(1, ubo, 0);
+		GLES30.glGenVertexArrays(1, vao, 0);
+
+		GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+		GLES20.glBufferData(GLES30.GL_UNIFORM_BUFFER, MATRIX_BYTES, null, GLES20.GL_DYNAMIC_DRAW);
+		GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, 0);
+
+		GLES30.glBindVertexArray(vao[0]);
+
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+		GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.length * 2, indexData, GLES20.GL_STATIC_DRAW);
+
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, cornerVbo[0]);
+		GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, corners.length * 4, cornerData, GLES20.GL_STATIC_DRAW);
+		int position = AttribVariable.A_Position.getHandle();
+		GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, 0, 0);
+		GLES20.glEnableVertexAttribArray(position);
+
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, instanceVbo[0]);
+		GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vertexBuffer.length * 4, null, GLES20.GL_DYNAMIC_DRAW);
+		int stride = INSTANCE_SIZE * 4;
+		instanceAttrib(AttribVariable.A_Rect.getHandle(), 4, GLES20.GL_FLOAT, false, stride, 0);
+		instanceAttrib(AttribVariable.A_TexRegion.getHandle(), 4, GLES20.GL_FLOAT, false, stride, 4 * 4);
+		for (int col = 0; col < 4; col++)               // mat4 Attribute Uses Four Consecutive Locations
+			instanceAttrib(AttribVariable.A_ModelMatrix.getHandle() + col, 4, GLES20.GL_FLOAT, false,
+					stride, (8 + col * 4) * 4);
+		instanceAttrib(AttribVariable.A_Color.getHandle(), 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 24 * 4);
+
+		GLES30.glBindVertexArray(0);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void instanceAttrib(int location, int size, int type, boolean normalized, int stride, int offset) {
+		GLES20.glVertexAttribPointer(location, size, type, normalized, stride, offset);
+		GLES20.glEnableVertexAttribArray(location);
+		GLES30.glVertexAttribDivisor(location, 1);      // Advance Once per Instance
+	}
+
+	// D: upload the view/projection matrix and the instances, and draw them in one call
+	//    NOTE: the program and texture are bound by the caller (see GLText.initDraw())
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void drawInstanced() {
+		if (numSprites == 0)                            // IF No Sprites to Render
+			return;
+
+		mCameraData.clear();
+		mCameraData.put(mVPMatrix, 0, 16).flip();
+		GLES20.glBindBuffer(GLES30.GL_UNIFORM_BUFFER, ubo[0]);
+		GLES20.glBufferSubData(GLES30.GL_UNIFORM_BUFFER, 0, MATRIX_BYTES, mCameraData);
+		GLES30.glBindBufferBase(GLES30.GL_UNIFORM_BUFFER, CAMERA_BINDING, ubo[0]);
+
+		mInstances.clear();
+		mInstances.put(vertexBuffer, 0, bufferIndex);
+		mInstances.flip();
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, instanceVbo[0]);
+		GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, bufferIndex * 4, mInstances);
+
+		GLES30.glBindVertexArray(vao[0]);
+		GLES30.glDrawElementsInstanced(GLES20.GL_TRIANGLES, INDICES_PER_SPRITE, GLES20.GL_UNSIGNED_SHORT, 0, numSprites);
+		GLES30.glBindVertexArray(0);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void cleanUpInstanced() {
+		if (vao[0] > 0) {
+			GLES30.glDeleteVertexArrays(1, vao, 0);
+			vao[0] = 0;
+		}
+		int[][] buffers = { cornerVbo, instanceVbo, ibo, ubo };
+		for (int[] buffer : buffers) {
+			if (buffer[0] > 0) {
+				GLES20.glDeleteBuffers(1, buffer, 0);
+				buffer[0] = 0;
+			}
+		}
+	}
 }
@@ -0,0 +1,282 @@
+// A retained text label. The glyph quads of the label live in a vertex buffer
+// object on the GPU and are drawn with a single matrix uniform. When the text
+// changes only the range of glyphs that actually changed is re-uploaded with
+// glBufferSubData, so mostly static labels cost almost nothing per frame.
+//
+// NOTE: uses the program (BatchTextProgram) and texture of the GLText instance,
+// with every vertex referencing u_MVPMatrix[0]. if the font draws with
+// InstancedTextProgram (ES 3.0) the label creates its own BatchTextProgram.
+
+package org.cbateman.opengl.text.gltext;
+
+import org.cbateman.opengl.text.gltext.programs.BatchTextProgram;
+import org.cbateman.opengl.text.gltext.programs.Program;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TextLabel {
+
+	//--Constants--//
+	final static int VERTEX_SIZE = SpriteBatch.VERTEX_SIZE;                    // Components Per Vertex (X,Y,U,V,M,C)
+	final static int GLYPH_SIZE = VERTEX_SIZE * SpriteBatch.VERTICES_PER_SPRITE;  // Components Per Glyph Quad
+	private static final int BYTES_PER_FLOAT = 4;
+	private static final int WHITE = 0xFFFFFFFF;      // Packed Vertex Color (Label Color is the u_Color Tint)
+	private static final int BYTES_PER_SHORT = 2;
+
+	//--Members--//
+	private final GLText mFont;                        // Font (Program, Texture and Metrics)
+	private final int mCapacity;                       // Maximum Number of Characters
+	private final char[] mChars;                       // Current Text
+	private int mLength;                               // Current Text Length
+	private final int[] mShadow;                       // CPU Copy of the Uploaded Vertices (Raw Int Bits)
+	private final int[] mScratch;                      // Vertices for New Text (Raw Int Bits)
+	private final IntBuffer mUpload;                   // Direct Buffer Used for Uploads
+	private final int[] vbo = new int[1];
+	private final int[] ibo = new int[1];
+	private final Program mProgram;                    // BatchTextProgram (the Font's or Our Own)
+	private final boolean mOwnsProgram;                // Program Created (and Deleted) by the Label
+	private int mMVPMatrixHandle;                      // Shader Handle of u_MVPMatrix
+	private int mColorHandle;                          // Shader Handle of u_Color
+	private int mTextureUniformHandle;                 // Shader Handle of u_Texture
+	private final float[] mModelMatrix = new float[16];
+	private final float[] mMVPMatrix = new float[16];
+	private final float[] mColor = { 1.0f, 1.0f, 1.0f, 1.0f };
+	private float mWidth;                              // Width of Current Text (Scaled)
+	private int mUploads;                              // Glyphs Uploaded by the Last setText()
+
+	//--Constructor--//
+	// D: create the GPU buffers for a label of up to 'capacity' characters
+	// A: font - the loaded font to draw with
+	//    capacity - maximum number of characters
+	public TextLabel(GLText font, int capacity) {
+		mFont = font;
+		mCapacity = capacity;
+		mChars = new char[capacity];
+		mShadow = new int[capacity * GLYPH_SIZE];
+		mScratch = new int[capacity * GLYPH_SIZE];
+		mUpload = ByteBuffer.allocateDirect(capacity * GLYPH_SIZE * BYTES_PER_FLOAT)
+				.order(ByteOrder.nativeOrder()).asIntBuffer();
+
+		short[] indices = new short[capacity * SpriteBatch.INDICES_PER_SPRITE];
+		for (int i = 0, j = 0; i < indices.length; i += SpriteBatch.INDICES_PER_SPRITE, j += SpriteBatch.VERTICES_PER_SPRITE) {
+			indices[i] = (short)j;
+			indices[i + 1] = (short)(j + 1);
+			indices[i + 2] = (short)(j + 2);
+			indices[i + 3] = (short)(j + 2);
+			indices[i + 4] = (short)(j + 3);
+			indices[i + 5] = (short)j;
+		}
+		ShortBuffer indexBuffer = ByteBuffer.allocateDirect(indices.length * BYTES_PER_SHORT)
+				.order(ByteOrder.nativeOrder()).asShortBuffer();
+		indexBuffer.put(indices).position(0);
+
+		GLES20.glGenBuffers(1, vbo, 0);
+		GLES20.glGenBuffers(1, ibo, 0);
+		if (vbo[0] > 0 && ibo[0] > 0) {
+			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+			GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mShadow.length * BYTES_PER_FLOAT,
+					null, GLES20.GL_DYNAMIC_DRAW);
+
+			GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+			GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.length * BYTES_PER_SHORT,
+					indexBuffer, GLES20.GL_STATIC_DRAW);
+
+			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+			GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+		}
+
+		mOwnsProgram = font.getProgram().isInstanced();  // Label Vertices Need the Per-Vertex Format
+		if (mOwnsProgram) {
+			mProgram = new BatchTextProgram();
+			mProgram.init();
+		}
+		else
+			mProgram = font.getProgram();
+		mMVPMatrixHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_MVPMatrix");
+		mColorHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_Color");
+		mTextureUniformHandle = GLES20.glGetUniformLocation(mProgram.getHandle(), "u_Texture");
+	}
+
+	//--Set Text--//
+	// D: change the label text. glyph quads are rebuilt on the CPU and compared
+	//    against the uploaded ones; only the changed range is sent to the GPU.
+	//    NOTE: text longer than the capacity is truncated
+	// A: text - the new text
+	// R: [none]
+	public void setText(CharSequence text) {
+		int len = Math.min(text.length(), mCapacity);
+
+		// quick out when the text is unchanged
+		if (len == mLength) {
+			int i = 0;
+			while (i < len && mChars[i] == text.charAt(i))
+				i++;
+			if (i == len) {
+				mUploads = 0;
+				return;
+			}
+		}
+
+		// build the quads for the new text
+		float letterX = 0;                              // Pen Position
+		float baseY = mFont.fontDescent * mFont.scaleY; // Baseline (Text Bottom Includes Descent)
+		for (int i = 0; i < len; i++) {
+			char chr = text.charAt(i);
+			mChars[i] = chr;
+			int c = mFont.charIndex(chr);
+			int v = i * GLYPH_SIZE;
+			if (mFont.glyphWidths[c] > 0) {             // IF Character Has Ink
+				float x1 = letterX + (mFont.glyphOffX[c] * mFont.scaleX);
+				float y1 = baseY + (mFont.glyphOffY[c] * mFont.scaleY);
+				float x2 = x1 + (mFont.glyphWidths[c] * mFont.scaleX);
+				float y2 = y1 + (mFont.glyphHeights[c] * mFont.scaleY);
+				putQuad(mScratch, v, x1, y1, x2, y2, mFont.charRgn[c]);
+			} else {                                    // ELSE Degenerate Quad
+				for (int k = 0; k < GLYPH_SIZE; k++)
+					mScratch[v + k] = 0;
+			}
+			letterX += (mFont.charWidths[c] + mFont.spaceX) * mFont.scaleX;
+		}
+		mWidth = len > 0 ? letterX - (mFont.spaceX * mFont.scaleX) : 0;
+
+		// find the first and last glyph whose vertices changed
+		int first = -1, last = -1;
+		for (int i = 0; i < len; i++) {
+			if (i >= mLength || !glyphEquals(i)) {
+				if (first < 0)
+					first = i;
+				last = i;
+			}
+		}
+		mLength = len;
+
+		if (first < 0) {                                // IF Nothing Changed (ie. Text Only Shortened)
+			mUploads = 0;
+			return;
+		}
+
+		// upload only the changed range
+		int offset = first * GLYPH_SIZE;
+		int count = (last + 1 - first) * GLYPH_SIZE;
+		System.arraycopy(mScratch, offset, mShadow, offset, count);
+		mUpload.clear();
+		mUpload.put(mShadow, offset, count);
+		mUpload.flip();
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+		GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, offset * BYTES_PER_FLOAT,
+				count * BYTES_PER_FLOAT, mUpload);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		mUploads = last + 1 - first;
+	}
+
+	//--Set Color--//
+	public void setColor(float red, float green, float blue, float alpha) {
+		mColor[0] = red;
+		mColor[1] = green;
+		mColor[2] = blue;
+		mColor[3] = alpha;
+	}
+
+	//--Draw--//
+	// D: draw the label with its bottom left at x,y
+	// A: vpMatrix - View and projection matrix to use
+	//    x, y - position of the label
+	// R: [none]
+	public void draw(float[] vpMatrix, float x, float y) {
+		if (mLength == 0 || vbo[0] == 0)
+			return;
+
+		Matrix.setIdentityM(mModelMatrix, 0);
+		Matrix.translateM(mModelMatrix, 0, x, y, 0);
+		Matrix.multiplyMM(mMVPMatrix, 0, vpMatrix, 0, mModelMatrix, 0);
+
+		mFont.initDraw(mProgram.getHandle(), mColorHandle, mTextureUniformHandle,
+				mColor[0], mColor[1], mColor[2], mColor[3]);
+		GLES20.glUniformMatrix4fv(mMVPMatrixHandle, 1, false, mMVPMatrix, 0);
+
+		int stride = VERTEX_SIZE * BYTES_PER_FLOAT;
+		int position = AttribVariable.A_Position.getHandle();
+		int texCoord = AttribVariable.A_TexCoordinate.getHandle();
+		int mvpIndex = AttribVariable.A_MVPMatrixIndex.getHandle();
+		int color = AttribVariable.A_Color.getHandle();
+
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
+		GLES20.glVertexAttribPointer(position, 2, GLES20.GL_FLOAT, false, stride, 0);
+		GLES20.glEnableVertexAttribArray(position);
+		GLES20.glVertexAttribPointer(texCoord, 2, GLES20.GL_FLOAT, false, stride, 2 * BYTES_PER_FLOAT);
+		GLES20.glEnableVertexAttribArray(texCoord);
+		GLES20.glVertexAttribPointer(mvpIndex, 1, GLES20.GL_FLOAT, false, stride, 4 * BYTES_PER_FLOAT);
+		GLES20.glEnableVertexAttribArray(mvpIndex);
+		GLES20.glVertexAttribPointer(color, 4, GLES20.GL_UNSIGNED_BYTE, true, stride, 5 * BYTES_PER_FLOAT);
+		GLES20.glEnableVertexAttribArray(color);
+
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+		GLES20.glDrawElements(GLES20.GL_TRIANGLES, mLength * SpriteBatch.INDICES_PER_SPRITE,
+				GLES20.GL_UNSIGNED_SHORT, 0);
+
+		GLES20.glDisableVertexAttribArray(texCoord);
+		GLES20.glDisableVertexAttribArray(color);
+		GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+		GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+	}
+
+	//--Getters--//
+	public float getWidth() {
+		return mWidth;
+	}
+
+	public int getLength() {
+		return mLength;
+	}
+
+	// D: return the number of glyphs uploaded by the last setText() (for profiling)
+	public int getLastUploadCount() {
+		return mUploads;
+	}
+
+	//--Clean Up--//
+	public void cleanUp() {
+		if (vbo[0] > 0) {
+			GLES20.glDeleteBuffers(vbo.length, vbo, 0);
+			vbo[0] = 0;
+		}
+
+		if (ibo[0] > 0) {
+			GLES20.glDeleteBuffers(ibo.length, ibo, 0);
+			ibo[0] = 0;
+		}
+
+		if (mOwnsProgram && mProgram.initialized())
+			mProgram.delete();
+	}
+
+	//--Helpers--//
+	private boolean glyphEquals(int glyph) {
+		int v = glyph * GLYPH_SIZE;
+		for (int k = 0; k < GLYPH_SIZE; k++) {
+			if (mScratch[v + k] != mShadow[v + k])
+				return false;
+		}
+		return true;
+	}
+
+	// D: write a quad in the same vertex order as SpriteBatch.drawSprite(), matrix index 0
+	private static void putQuad(int[] out, int v, float x1, float y1, float x2, float y2,
+								TextureRegion region) {
+		int fx1 = Float.floatToRawIntBits(x1), fy1 = Float.floatToRawIntBits(y1);
+		int fx2 = Float.floatToRawIntBits(x2), fy2 = Float.floatToRawIntBits(y2);
+		int fu1 = Float.floatToRawIntBits(region.u1), fv1 = Float.floatToRawIntBits(region.v1);
+		int fu2 = Float.floatToRawIntBits(region.u2), fv2 = Float.floatToRawIntBits(region.v2);
+		out[v++] = fx1; out[v++] = fy1; out[v++] = fu1; out[v++] = fv2; out[v++] = 0; out[v++] = WHITE;
+		out[v++] = fx2; out[v++] = fy1; out[v++] = fu2; out[v++] = fv2; out[v++] = 0; out[v++] = WHITE;
+		out[v++] = fx2; out[v++] = fy2; out[v++] = fu2; out[v++] = fv1; out[v++] = 0; out[v++] = WHITE;
+		out[v++] = fx1; out[v++] = fy2; out[v++] = fu1; out[v++] = fv1; out[v++] = 0; out[v] = WHITE;
+	}
+}
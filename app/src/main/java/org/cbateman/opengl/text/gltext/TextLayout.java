@@ -0,0 +1,119 @@
+// The result of breaking a string into lines for a given font, maximum width
+// and alignment. Layouts are created (and memoized) by TextLayoutEngine and
+// drawn with GLText.draw(TextLayout, x, y).
+
+package org.cbateman.opengl.text.gltext;
+
+import java.util.Arrays;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TextLayout {
+
+	//--Constants--//
+	public enum Align { LEFT, CENTER, RIGHT }
+
+	//--Members--//
+	final String text;                                 // Text Laid Out
+	final float maxWidth;                              // Maximum Line Width (<= 0 for No Wrapping)
+	final Align align;                                 // Line Alignment
+	final float scaleX, spaceX;                        // Font Settings Used for Measuring
+
+	float[] prefix;                                    // Prefix Sum of Scaled Character Advances (Length + 1)
+	int lineCnt;                                       // Number of Lines
+	int[] lineStart, lineEnd;                          // Character Range of Each Line (End Excludes Trailing Spaces)
+	float[] lineWidth;                                 // Width of Each Line (Scaled)
+	float width;                                       // Width of Widest Line (Scaled)
+
+	//--Constructor--//
+	TextLayout(String text, float maxWidth, Align align, float scaleX, float spaceX) {
+		this.text = text;
+		this.maxWidth = maxWidth;
+		this.align = align;
+		this.scaleX = scaleX;
+		this.spaceX = spaceX;
+
+		prefix = new float[text.length() + 1];
+		lineStart = new int[4];
+		lineEnd = new int[4];
+		lineWidth = new float[4];
+	}
+
+	//--Measure--//
+	// D: return the width of the characters [start, end) using the prefix sums
+	// R: the scaled width (excluding the spacing after the last character)
+	float measure(int start, int end) {
+		if (end <= start)
+			return 0.0f;
+		return prefix[end] - prefix[start] - (spaceX * scaleX);
+	}
+
+	//--Add Line--//
+	// D: append a line covering [start, end), trailing spaces are not measured
+	void addLine(int start, int end) {
+		while (end > start && text.charAt(end - 1) == ' ')  // Trim Trailing Spaces
+			end--;
+
+		if (lineCnt == lineStart.length) {                  // IF Line Arrays Full
+			int size = lineCnt * 2;
+			lineStart = Arrays.copyOf(lineStart, size);
+			lineEnd = Arrays.copyOf(lineEnd, size);
+			lineWidth = Arrays.copyOf(lineWidth, size);
+		}
+
+		float w = measure(start, end);
+		lineStart[lineCnt] = start;
+		lineEnd[lineCnt] = end;
+		lineWidth[lineCnt] = w;
+		lineCnt++;
+		if (w > width)
+			width = w;
+	}
+
+	//--Getters--//
+	public String getText() {
+		return text;
+	}
+
+	public float getMaxWidth() {
+		return maxWidth;
+	}
+
+	public Align getAlign() {
+		return align;
+	}
+
+	public int getLineCount() {
+		return lineCnt;
+	}
+
+	public int getLineStart(int line) {
+		return lineStart[line];
+	}
+
+	public int getLineEnd(int line) {
+		return lineEnd[line];
+	}
+
+	public float getLineWidth(int line) {
+		return lineWidth[line];
+	}
+
+	public float getWidth() {
+		return width;
+	}
+
+	//--Get Line Offset--//
+	// D: return the x offset of a line within the layout box for the alignment
+	//    NOTE: the box is maxWidth wide, or as wide as the widest line when not wrapping
+	public float getLineOffset(int line) {
+		float box = maxWidth > 0 ? maxWidth : width;
+		switch (align) {
+			case CENTER:
+				return (box - lineWidth[line]) / 2.0f;
+			case RIGHT:
+				return box - lineWidth[line];
+			default:
+				return 0.0f;
+		}
+	}
+}
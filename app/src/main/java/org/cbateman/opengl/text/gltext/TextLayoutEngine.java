@@ -0,0 +1,188 @@
+// Breaks text into lines for a font (see TextMetrics). Character advances are turned into
+// prefix sums so any range can be measured in constant time, and finished
+// layouts are kept in a bounded LRU cache so laying out the same text again
+// (ie. every frame) is a hash lookup.
+
+package org.cbateman.opengl.text.gltext;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TextLayoutEngine {
+
+	//--Constants--//
+	public final static int DEFAULT_CACHE_SIZE = 64;   // Default Number of Layouts Kept
+
+	//--Members--//
+	private final TextMetrics mFont;                   // Font Used for Measuring
+	private final LinkedHashMap<Key, TextLayout> mCache;  // LRU Cache of Layouts
+	private final Key mProbe = new Key();              // Reused Lookup Key
+
+	//--Constructor--//
+	// D: create a layout engine for the font
+	// A: font - the metrics to measure with (ie. a loaded GLText)
+	//    cacheSize - maximum number of layouts to keep
+	public TextLayoutEngine(TextMetrics font, final int cacheSize) {
+		mFont = font;
+		mCache = new LinkedHashMap<Key, TextLayout>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, TextLayout> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	public TextLayoutEngine(TextMetrics font) {
+		this(font, DEFAULT_CACHE_SIZE);
+	}
+
+	//--Layout--//
+	// D: return the layout for text, reusing a cached layout when possible
+	// A: text - the text to lay out ('\n' forces a line break)
+	//    maxWidth - maximum (scaled) line width; <= 0 to only break at '\n'
+	//    align - alignment of each line within maxWidth
+	// R: the layout
+	public TextLayout layout(String text, float maxWidth, TextLayout.Align align) {
+		mProbe.set(text, maxWidth, align, mFont.getScaleX(), mFont.getSpace());
+		TextLayout layout = mCache.get(mProbe);
+		if (layout != null)                             // IF Already Laid Out
+			return layout;
+
+		layout = new TextLayout(text, maxWidth, align, mFont.getScaleX(), mFont.getSpace());
+		measure(layout, 0);
+		breakLines(layout, 0);
+		mCache.put(new Key(mProbe), layout);
+		return layout;
+	}
+
+	//--Append--//
+	// D: lay out layout's text with suffix appended. only the new characters are
+	//    measured and only the last line onwards is broken again.
+	// A: layout - an existing layout (not modified)
+	//    suffix - the text to append
+	// R: the new layout
+	public TextLayout append(TextLayout layout, String suffix) {
+		String text = layout.text + suffix;
+		mProbe.set(text, layout.maxWidth, layout.align, mFont.getScaleX(), mFont.getSpace());
+		TextLayout result = mCache.get(mProbe);
+		if (result != null)                             // IF Already Laid Out
+			return result;
+
+		result = new TextLayout(text, layout.maxWidth, layout.align, mFont.getScaleX(), mFont.getSpace());
+		if (layout.scaleX != mFont.getScaleX() || layout.spaceX != mFont.getSpace()) {  // IF Font Settings Changed
+			measure(result, 0);
+			breakLines(result, 0);
+		} else {
+			// keep the measured prefix and every line but the last (it may now wrap differently)
+			int oldLen = layout.text.length();
+			System.arraycopy(layout.prefix, 0, result.prefix, 0, oldLen + 1);
+			measure(result, oldLen);
+
+			int keep = layout.lineCnt - 1;
+			for (int i = 0; i < keep; i++) {
+				result.addLine(layout.lineStart[i], layout.lineEnd[i]);
+			}
+			breakLines(result, layout.lineStart[keep]);
+		}
+		mCache.put(new Key(mProbe), result);
+		return result;
+	}
+
+	//--Clear--//
+	// D: drop all cached layouts (ie. after the font is reloaded)
+	public void clear() {
+		mCache.clear();
+	}
+
+	//--Measure--//
+	// D: fill the prefix sums of layout from character index 'from'
+	private void measure(TextLayout layout, int from) {
+		String text = layout.text;
+		float[] prefix = layout.prefix;
+		TextMetrics font = mFont;
+		float spaceX = layout.spaceX;
+		float scaleX = layout.scaleX;
+		for (int i = from, len = text.length(); i < len; i++) {
+			prefix[i + 1] = prefix[i] + ((font.getAdvance(text.charAt(i)) + spaceX) * scaleX);
+		}
+	}
+
+	//--Break Lines--//
+	// D: greedily break the text of layout into lines starting at character 'start'
+	//    lines break after the last space that fits, or mid-word if a word is too long
+	private void breakLines(TextLayout layout, int start) {
+		String text = layout.text;
+		float maxWidth = layout.maxWidth;
+		int len = text.length();
+		int lastSpace = -1;                             // Last Break Opportunity on Current Line
+		int i = start;
+		while (i < len) {
+			char ch = text.charAt(i);
+			if (ch == '\n') {                           // IF Forced Break
+				layout.addLine(start, i);
+				start = i + 1;
+				lastSpace = -1;
+				i++;
+				continue;
+			}
+			if (maxWidth > 0 && ch != ' ' && i > start && layout.measure(start, i + 1) > maxWidth) {
+				if (lastSpace > start) {                // IF Line Can Break at a Space
+					layout.addLine(start, lastSpace);
+					start = lastSpace + 1;
+				} else {                                // ELSE Break Inside the Word
+					layout.addLine(start, i);
+					start = i;
+				}
+				lastSpace = -1;
+				continue;                               // Re-Check Character on the New Line
+			}
+			if (ch == ' ')
+				lastSpace = i;
+			i++;
+		}
+		layout.addLine(start, len);                     // Add Final Line
+	}
+
+	//--Cache Key--//
+	private static class Key {
+		String text;
+		float maxWidth;
+		TextLayout.Align align;
+		float scaleX, spaceX;
+
+		Key() {
+		}
+
+		Key(Key other) {
+			set(other.text, other.maxWidth, other.align, other.scaleX, other.spaceX);
+		}
+
+		void set(String text, float maxWidth, TextLayout.Align align, float scaleX, float spaceX) {
+			this.text = text;
+			this.maxWidth = maxWidth;
+			this.align = align;
+			this.scaleX = scaleX;
+			this.spaceX = spaceX;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key))
+				return false;
+			Key k = (Key)o;
+			return maxWidth == k.maxWidth && align == k.align && scaleX == k.scaleX
+					&& spaceX == k.spaceX && text.equals(k.text);
+		}
+
+		@Override
+		public int hashCode() {
+			int h = text.hashCode();
+			h = 31 * h + Float.floatToIntBits(maxWidth);
+			h = 31 * h + align.hashCode();
+			h = 31 * h + Float.floatToIntBits(scaleX);
+			h = 31 * h + Float.floatToIntBits(spaceX);
+			return h;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+// The font metrics TextLayoutEngine measures with: the advance of each
+// character and the current x scale and spacing. GLText provides them for a
+// loaded font; anything else (ie. a fixed-width font in a unit test) can too.
+
+package org.cbateman.opengl.text.gltext;
+
+public interface TextMetrics {
+
+	// D: return the advance of a character (unscaled; pixels), excluding spacing
+	// A: chr - the character (characters not in the font measure as the unknown character)
+	// R: the advance
+	float getAdvance(char chr);
+
+	// D: return the x scale applied to advances and spacing
+	float getScaleX();
+
+	// D: return the spacing added after each character (unscaled; pixels)
+	float getSpace();
+}
@@ -6,6 +6,8 @@ import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
 import android.opengl.GLUtils;
 
+import java.nio.Buffer;
+
 @SuppressWarnings({"unused", "WeakerAccess"})
 public class TextureHelper {
 
@@ -51,4 +53,31 @@ public class TextureHelper {
 	 
 	    return textureHandle[0];
 	}
+
+	public static int loadAlphaTexture(Buffer pixels, int width, int height) {
+	    final int[] textureHandle = new int[1];
+
+	    GLES20.glGenTextures(1, textureHandle, 0);
+
+	    if (textureHandle[0] != 0) {
+	        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textureHandle[0]);
+
+	        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+	        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+	        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);  // Set U Wrapping
+	        GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);  // Set V Wrapping
+
+	        // Rows of an alpha-only texture are tightly packed
+	        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+	        GLES20.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_ALPHA, width, height, 0,
+	                GLES20.GL_ALPHA, GLES20.GL_UNSIGNED_BYTE, pixels);
+	        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 4);
+	    }
+
+	    if (textureHandle[0] == 0) {
+	        throw new RuntimeException("Error loading texture.");
+	    }
+
+	    return textureHandle[0];
+	}
 }
@@ -19,4 +19,14 @@ class TextureRegion {
         this.u2 = this.u1 + (width / texWidth);         // Calculate U2
         this.v2 = this.v1 + (height / texHeight);       // Calculate V2
     }
+
+    // D: create a region from already calculated U,V coordinates
+    // A: u1, v1 - the top/left U,V coordinates
+    //    u2, v2 - the bottom/right U,V coordinates
+    public TextureRegion(float u1, float v1, float u2, float v2) {
+        this.u1 = u1;                                   // Set U1
+        this.v1 = v1;                                   // Set V1
+        this.u2 = u2;                                   // Set U2
+        this.v2 = v2;                                   // Set V2
+    }
 }
@@ -4,7 +4,12 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 
+import org.cbateman.opengl.text.gltext.programs.BatchTextProgram;
+import org.cbateman.opengl.text.gltext.programs.InstancedTextProgram;
+import org.cbateman.opengl.text.gltext.programs.Program;
+
 import android.opengl.GLES20;
+import android.os.Build;
 import android.util.Log;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
@@ -13,6 +18,9 @@ public class Utilities {
 	public static final int BYTES_PER_FLOAT = 4;
 	public static final int BYTES_PER_SHORT = 2;
 	private static final String TAG = "Utilities";
+
+	private static boolean sDetected;                  // Context Version Read?
+	private static boolean sES3;                       // ES 3.0 Context (and GLES30 Bindings)?
 	
 	public static int createProgram(int vertexShaderHandle,
 									int fragmentShaderHandle,
@@ -27,6 +35,7 @@ public class Utilities {
 	        	GLES20.glBindAttribLocation(mProgram, var.getHandle(), var.getName());
 	        }   
 	        
+	        ProgramCache.prepare(mProgram);             // Keep the Binary Retrievable (See ProgramCache)
 	        GLES20.glLinkProgram(mProgram);
 	     
 	        final int[] linkStatus = new int[1];
@@ -70,6 +79,47 @@ public class Utilities {
 	    return shaderHandle;
 	}
 
+	//--Detect Context--//
+	// D: read the version of the current context. the checks below read it on first use;
+	//    call this again whenever a new context is created (ie. from onSurfaceCreated)
+	//    NOTE: must be called on the GL thread
+	// A: [none]
+	// R: true if the context is OpenGL ES 3.0 or later and the platform has the GLES30 bindings
+	public static boolean detectContext() {
+		String version = GLES20.glGetString(GLES20.GL_VERSION);    // ie. "OpenGL ES 3.2 V@415.0"
+		sES3 = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2
+				&& version != null && version.startsWith("OpenGL ES ") && version.length() > 10
+				&& version.charAt(10) >= '3' && version.charAt(10) <= '9';
+		sDetected = true;
+		return sES3;
+	}
+
+	// D: true if the current context is OpenGL ES 3.0 or later (instanced drawing, vertex
+	//    array objects and uniform buffers), and the platform has the GLES30 bindings
+	//    NOTE: must be called on the GL thread
+	public static boolean isInstancingSupported() {
+		return isES3Context();
+	}
+
+	// D: true if vertex array objects can be used (core in ES 3.0; android.opengl has no
+	//    bindings for GL_OES_vertex_array_object, so ES 2.0 contexts never use them)
+	//    NOTE: must be called on the GL thread
+	public static boolean isVertexArraySupported() {
+		return isES3Context();
+	}
+
+	// D: true if the current context is OpenGL ES 3.0 or later and GLES30 can be used
+	static boolean isES3Context() {
+		return sDetected ? sES3 : detectContext();
+	}
+
+	// D: create the default text program for the current context
+	public static Program createTextProgram() {
+		Program program = isInstancingSupported() ? new InstancedTextProgram() : new BatchTextProgram();
+		program.init();
+		return program;
+	}
+
 	public static FloatBuffer newFloatBuffer(float[] verticesData) {
 		FloatBuffer floatBuffer;
 		floatBuffer = ByteBuffer.allocateDirect(verticesData.length * BYTES_PER_FLOAT)
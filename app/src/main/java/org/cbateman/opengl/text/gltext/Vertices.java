@@ -5,7 +5,10 @@ import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.nio.ShortBuffer;
 
+import android.annotation.TargetApi;
 import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
 
 @SuppressWarnings({"unused", "WeakerAccess", "SameParameterValue"})
 public class Vertices {
@@ -17,6 +20,7 @@ public class Vertices {
 	final static int TEXCOORD_CNT = 2;                 // Number of Components in Vertex Texture Coords
 	final static int NORMAL_CNT = 3;                   // Number of Components in Vertex Normal
 	private static final int MVP_MATRIX_INDEX_CNT = 1; // Number of Components in MVP matrix index
+	private static final int PACKED_COLOR_CNT = 1;     // Number of Components Holding the Packed (RGBA Bytes) Color
 
     private static final int BYTES_PER_FLOAT = 4;
     private static final int BYTES_PER_SHORT = 2;
@@ -38,9 +42,12 @@ public class Vertices {
 	private int mTextureCoordinateHandle;
 	private int mPositionHandle;
 	private int mMVPIndexHandle;
+	private int mColorHandle;
 
     final int[] vbo = new int[1];
     final int[] ibo = new int[1];
+    final int[] vao = new int[1];                      // Vertex Array Object (Attribute Layout), ES 3.0 only
+    private boolean mUseVertexArray;                   // Record the Layout Once Instead of Every bind()
 
 	//--Constructor--//
 	// D: create the vertices/indices as specified (for 2d/3d)
@@ -49,7 +56,7 @@ public class Vertices {
 	public Vertices(int maxVertices, int maxIndices) {
 		//      this.gl = gl;                                   // Save GL Instance
 		this.positionCnt = POSITION_CNT_2D;             // Set Position Component Count
-		this.vertexStride = this.positionCnt + TEXCOORD_CNT + MVP_MATRIX_INDEX_CNT;  // Calculate Vertex Stride
+		this.vertexStride = this.positionCnt + TEXCOORD_CNT + MVP_MATRIX_INDEX_CNT + PACKED_COLOR_CNT;  // Calculate Vertex Stride
 		this.vertexSize = this.vertexStride * 4;        // Calculate Vertex Byte Size
 
 		ByteBuffer buffer = ByteBuffer.allocateDirect(maxVertices * vertexSize);  // Allocate Buffer for Vertices (Max)
@@ -73,6 +80,7 @@ public class Vertices {
 		mTextureCoordinateHandle = AttribVariable.A_TexCoordinate.getHandle();
 		mMVPIndexHandle = AttribVariable.A_MVPMatrixIndex.getHandle();
 		mPositionHandle = AttribVariable.A_Position.getHandle();
+		mColorHandle = AttribVariable.A_Color.getHandle();
 	}
 
 	//--Set Vertices--//
@@ -93,6 +101,14 @@ public class Vertices {
 		this.numVertices = length / this.vertexStride;      // Save Number of Vertices
 	}
 
+	// D: set vertices already stored as raw int bits (ie. by SpriteBatch), no conversion required
+	public void setVertices(int[] vertices, int offset, int length) {
+		this.vertices.clear();                              // Remove Existing Vertices
+		this.vertices.put(vertices, offset, length);        // Set New Vertices
+		this.vertices.flip();                               // Flip Vertex Buffer
+		this.numVertices = length / this.vertexStride;      // Save Number of Vertices
+	}
+
 	//--Set Indices--//
 	// D: set the specified indices in the index buffer
 	// A: indices - array of indices (shorts) to set
@@ -112,6 +128,7 @@ public class Vertices {
 	public void setupData() {
         GLES20.glGenBuffers(1, vbo, 0);
         GLES20.glGenBuffers(1, ibo, 0);
+        mUseVertexArray = Utilities.isVertexArraySupported();
 
         if (vbo[0] > 0 && ibo[0] > 0) {
             GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo[0]);
@@ -128,6 +145,11 @@ public class Vertices {
     }
 
     public void cleanUp() {
+        if (vao[0] > 0) {
+            deleteVertexArray();
+            vao[0] = 0;
+        }
+
         if (vbo[0] > 0) {
             GLES20.glDeleteBuffers(vbo.length, vbo, 0);
             vbo[0] = 0;
@@ -141,6 +163,8 @@ public class Vertices {
 
 	//--Bind--//
 	// D: perform all required binding/state changes before rendering batches.
+	//    with vertex array objects the attribute layout is recorded on the first bind()
+	//    and only the vertex array is bound afterwards
 	//    USAGE: call once before calling draw() multiple times for this buffer.
 	// A: [none]
 	// R: [none]
@@ -150,6 +174,16 @@ public class Vertices {
         // vertices could change every frame so update the gpu memory.
         GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, numVertices * vertexSize, vertices);
 
+        if (mUseVertexArray) {
+            if (vao[0] != 0) {                         // IF Layout Already Recorded
+                bindVertexArray(vao[0]);
+                return;
+            }
+            genVertexArray();                          // ELSE Record It Now
+            bindVertexArray(vao[0]);
+            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+        }
+
         // bind vertex position pointer
         GLES20.glVertexAttribPointer(mPositionHandle,
                 positionCnt, GLES20.GL_FLOAT, false, vertexSize, 0);
@@ -164,6 +198,12 @@ public class Vertices {
         GLES20.glVertexAttribPointer(mMVPIndexHandle,
                 MVP_MATRIX_INDEX_CNT, GLES20.GL_FLOAT, false, vertexSize, (positionCnt + TEXCOORD_CNT) * 4);
         GLES20.glEnableVertexAttribArray(mMVPIndexHandle);
+
+        // bind packed color pointer (4 normalized unsigned bytes)
+        GLES20.glVertexAttribPointer(mColorHandle,
+                COLOR_CNT, GLES20.GL_UNSIGNED_BYTE, true, vertexSize,
+                (positionCnt + TEXCOORD_CNT + MVP_MATRIX_INDEX_CNT) * 4);
+        GLES20.glEnableVertexAttribArray(mColorHandle);
 	}
 
 	//--Draw--//
@@ -175,7 +215,8 @@ public class Vertices {
 	// R: [none]
 	public void draw(int primitiveType, int offset, int numVertices) {
 		if (indices != null) {                          // IF Indices Exist
-            GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
+            if (!mUseVertexArray)                      // (Recorded in the Vertex Array Otherwise)
+                GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, ibo[0]);
             GLES20.glDrawElements(primitiveType, numVertices, GLES20.GL_UNSIGNED_SHORT, offset);
 		}
 		else {                                          // ELSE No Indices Exist
@@ -190,9 +231,31 @@ public class Vertices {
 	// A: [none]
 	// R: [none]
 	public void unbind() {
+		if (mUseVertexArray) {                          // IF Using a Vertex Array
+			bindVertexArray(0);                          // Unbind It (Leaves the Recorded Layout Intact)
+			GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+			return;
+		}
 		GLES20.glDisableVertexAttribArray(mTextureCoordinateHandle);
+		GLES20.glDisableVertexAttribArray(mColorHandle);
 
         GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
 	}
+
+	//--Vertex Array Objects (ES 3.0)--//
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void genVertexArray() {
+		GLES30.glGenVertexArrays(1, vao, 0);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private static void bindVertexArray(int id) {
+		GLES30.glBindVertexArray(id);
+	}
+
+	@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+	private void deleteVertexArray() {
+		GLES30.glDeleteVertexArrays(1, vao, 0);
+	}
 }
@@ -7,7 +7,8 @@ public class BatchTextProgram extends Program {
 	private static final AttribVariable[] programVariables = {
         AttribVariable.A_Position,
         AttribVariable.A_TexCoordinate,
-        AttribVariable.A_MVPMatrixIndex
+        AttribVariable.A_MVPMatrixIndex,
+        AttribVariable.A_Color
 	};
 	
 	private static final String vertexShaderCode =
@@ -17,11 +18,14 @@ public class BatchTextProgram extends Program {
 		  + "attribute float a_MVPMatrixIndex; \n"	    // The index of the MVPMatrix of the particular sprite
 		  + "attribute vec4 a_Position;     \n"         // Per-vertex position information we will pass in.
 		  + "attribute vec2 a_TexCoordinate;\n"         // Per-vertex texture coordinate information we will pass in
+		  + "attribute vec4 a_Color;        \n"         // Per-vertex color (normalized unsigned bytes)
 		  + "varying vec2 v_TexCoordinate;  \n"         // This will be passed into the fragment shader.
+		  + "varying vec4 v_Color;          \n"         // Per-vertex color passed to the fragment shader.
 		  + "void main()                    \n"         // The entry point for our vertex shader.
 		  + "{                              \n"
 		  + "   int mvpMatrixIndex = int(a_MVPMatrixIndex); \n"
 		  + "   v_TexCoordinate = a_TexCoordinate; \n"
+		  + "   v_Color = a_Color;          \n"
 		  + "   gl_Position = u_MVPMatrix[mvpMatrixIndex]   \n"     // gl_Position is a special variable used to store the final position.
 		  + "               * a_Position;   \n"         // Multiply the vertex by the matrix to get the final point in
 		  											    // normalized screen coordinates.
@@ -34,11 +38,13 @@ public class BatchTextProgram extends Program {
 	        // precision in the fragment shader.
 			+ "uniform vec4 u_Color;          \n"
 			+ "varying vec2 v_TexCoordinate;  \n"       // Interpolated texture coordinate per fragment.
+			+ "varying vec4 v_Color;          \n"       // Interpolated vertex color per fragment.
 			
 			+ "void main()                    \n"       // The entry point for our fragment shader.
 			+ "{                              \n"
-			+ "   gl_FragColor = texture2D(u_Texture, v_TexCoordinate).w * u_Color;\n" // texture is grayscale so take only grayscale value from  
-																					   // it when computing color output (otherwise font is always black)
+			+ "   gl_FragColor = texture2D(u_Texture, v_TexCoordinate).w * v_Color * u_Color;\n" // texture is grayscale so take only grayscale value from
+																					   // it when computing color output (otherwise font is always black);
+																					   // u_Color tints the whole batch, v_Color each sprite
 			+ "}                             \n";
 
 	@Override
@@ -0,0 +1,61 @@
+package org.cbateman.opengl.text.gltext.programs;
+
+import org.cbateman.opengl.text.gltext.AttribVariable;
+
+// OpenGL ES 3.0 version of BatchTextProgram: each glyph is one instance with its own rectangle,
+// texture region, model matrix and color; the quad corner (0-1) is the only per-vertex attribute.
+// the view/projection matrix comes from the "Camera" uniform block (see SpriteBatch)
+public class InstancedTextProgram extends Program {
+
+	private static final AttribVariable[] programVariables = {
+		AttribVariable.A_Position,
+		AttribVariable.A_Rect,
+		AttribVariable.A_TexRegion,
+		AttribVariable.A_ModelMatrix,
+		AttribVariable.A_Color
+	};
+
+	private static final String vertexShaderCode =
+			"#version 300 es                \n"
+		  + "layout(std140) uniform Camera {\n"         // View and projection matrix, shared by all glyphs
+		  + "   mat4 u_VPMatrix;            \n"
+		  + "};                             \n"
+		  + "in vec2 a_Position;            \n"         // Quad corner, (0,0) bottom left to (1,1) top right
+		  + "in vec4 a_Rect;                \n"         // Per-instance left, bottom, right, top
+		  + "in vec4 a_TexRegion;           \n"         // Per-instance u1, v1, u2, v2
+		  + "in mat4 a_ModelMatrix;         \n"         // Per-instance model matrix
+		  + "in vec4 a_Color;               \n"         // Per-instance color (normalized unsigned bytes)
+		  + "out vec2 v_TexCoordinate;      \n"
+		  + "out vec4 v_Color;              \n"
+		  + "void main()                    \n"
+		  + "{                              \n"
+		  + "   v_TexCoordinate = vec2(mix(a_TexRegion.x, a_TexRegion.z, a_Position.x), \n"
+		  + "                          mix(a_TexRegion.w, a_TexRegion.y, a_Position.y));\n"
+		  + "   v_Color = a_Color;          \n"
+		  + "   gl_Position = u_VPMatrix * a_ModelMatrix \n"
+		  + "               * vec4(mix(a_Rect.xy, a_Rect.zw, a_Position), 0.0, 1.0); \n"
+		  + "}                              \n";
+
+	private static final String fragmentShaderCode =
+			"#version 300 es                \n"
+		  + "precision mediump float;       \n"
+		  + "uniform sampler2D u_Texture;   \n"
+		  + "uniform vec4 u_Color;          \n"
+		  + "in vec2 v_TexCoordinate;       \n"
+		  + "in vec4 v_Color;               \n"
+		  + "out vec4 fragColor;            \n"
+		  + "void main()                    \n"
+		  + "{                              \n"
+		  + "   fragColor = texture(u_Texture, v_TexCoordinate).w * v_Color * u_Color;\n"
+		  + "}                              \n";
+
+	@Override
+	public void init() {
+		super.init(vertexShaderCode, fragmentShaderCode, programVariables);
+	}
+
+	@Override
+	public boolean isInstanced() {
+		return true;
+	}
+}
@@ -3,6 +3,7 @@ package org.cbateman.opengl.text.gltext.programs;
 import android.opengl.GLES20;
 
 import org.cbateman.opengl.text.gltext.AttribVariable;
+import org.cbateman.opengl.text.gltext.ProgramCache;
 import org.cbateman.opengl.text.gltext.Utilities;
 
 @SuppressWarnings({"unused", "WeakerAccess"})
@@ -24,11 +25,19 @@ public abstract class Program {
 	public void init(String vertexShaderCode,
 					 String fragmentShaderCode,
 					 AttribVariable[] programVariables) {
-		vertexShaderHandle = Utilities.loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-		fragmentShaderHandle = Utilities.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-		
-		programHandle = Utilities.createProgram(vertexShaderHandle,
-                fragmentShaderHandle, programVariables);
+		programHandle = ProgramCache.load(vertexShaderCode, fragmentShaderCode, programVariables);
+		if (programHandle == 0) {                       // IF No Cached Binary, Compile from Source
+			vertexShaderHandle = Utilities.loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
+			fragmentShaderHandle = Utilities.loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+
+			programHandle = Utilities.createProgram(vertexShaderHandle,
+					fragmentShaderHandle, programVariables);
+			ProgramCache.save(programHandle, vertexShaderCode, fragmentShaderCode, programVariables);
+		}
+		else {                                          // ELSE No Shader Objects
+			vertexShaderHandle = 0;
+			fragmentShaderHandle = 0;
+		}
 		
 		mInitialized = true;
 	}
@@ -47,4 +56,10 @@ public abstract class Program {
 	public boolean initialized() {
 		return mInitialized;
 	}
+
+	// D: true if the program draws one instance per sprite (see InstancedTextProgram),
+	//    false if it takes four vertices per sprite
+	public boolean isInstanced() {
+		return false;
+	}
 }
\ No newline at end of file
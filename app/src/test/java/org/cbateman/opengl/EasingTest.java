@@ -0,0 +1,85 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the sampled Easing curves with their closed forms.
+ */
+public class EasingTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void endpoints() throws Exception {
+        for (int curve = 0; curve < Easing.CURVE_COUNT; curve++) {
+            assertEquals("curve " + curve, 0.0f, Easing.ease(curve, 0.0f), TOLERANCE);
+            assertEquals("curve " + curve, 1.0f, Easing.ease(curve, 1.0f), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void clampsOutsideUnitRange() throws Exception {
+        for (int curve = 0; curve < Easing.CURVE_COUNT; curve++) {
+            assertEquals(Easing.ease(curve, 0.0f), Easing.ease(curve, -0.5f), 0.0f);
+            assertEquals(Easing.ease(curve, 1.0f), Easing.ease(curve, 7.0f), 0.0f);
+        }
+    }
+
+    @Test
+    public void matchesClosedForms() throws Exception {
+        for (int i = 0; i <= 1000; i++) {
+            double t = i / 1000.0;
+            float f = (float) t;
+            assertEquals(t, Easing.ease(Easing.LINEAR, f), TOLERANCE);
+            assertEquals(t * t, Easing.ease(Easing.QUAD_IN, f), TOLERANCE);
+            assertEquals(t * (2 - t), Easing.ease(Easing.QUAD_OUT, f), TOLERANCE);
+            assertEquals(t * t * t, Easing.ease(Easing.CUBIC_IN, f), TOLERANCE);
+            assertEquals(Math.sin(t * Math.PI / 2), Easing.ease(Easing.SINE_OUT, f), TOLERANCE);
+            assertEquals((1 - Math.cos(t * Math.PI)) / 2, Easing.ease(Easing.SINE_IN_OUT, f), TOLERANCE);
+        }
+    }
+
+    @Test
+    public void inOutCurvesAreSymmetric() throws Exception {
+        int[] curves = { Easing.QUAD_IN_OUT, Easing.CUBIC_IN_OUT, Easing.SINE_IN_OUT };
+        for (int curve : curves) {
+            assertEquals(0.5f, Easing.ease(curve, 0.5f), TOLERANCE);
+            for (int i = 0; i <= 100; i++) {
+                float t = i / 100.0f;
+                assertEquals(1.0f - Easing.ease(curve, t), Easing.ease(curve, 1.0f - t), 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void overshootingCurves() throws Exception {
+        // BACK_OUT and ELASTIC_OUT go past 1, BOUNCE_OUT never does
+        float backMax = 0, elasticMax = 0, bounceMax = 0;
+        for (int i = 0; i <= 1000; i++) {
+            float t = i / 1000.0f;
+            backMax = Math.max(backMax, Easing.ease(Easing.BACK_OUT, t));
+            elasticMax = Math.max(elasticMax, Easing.ease(Easing.ELASTIC_OUT, t));
+            bounceMax = Math.max(bounceMax, Easing.ease(Easing.BOUNCE_OUT, t));
+        }
+        assertEquals(1.1f, backMax, 0.01f);
+        assertTrue(elasticMax > 1.0f);
+        assertEquals(1.0f, bounceMax, TOLERANCE);
+    }
+
+    @Test
+    public void monotonicCurves() throws Exception {
+        int[] curves = { Easing.LINEAR, Easing.QUAD_IN, Easing.QUAD_OUT, Easing.QUAD_IN_OUT,
+                Easing.CUBIC_IN, Easing.CUBIC_OUT, Easing.CUBIC_IN_OUT, Easing.SINE_IN,
+                Easing.SINE_OUT, Easing.SINE_IN_OUT };
+        for (int curve : curves) {
+            float last = Easing.ease(curve, 0.0f);
+            for (int i = 1; i <= 1000; i++) {
+                float value = Easing.ease(curve, i / 1000.0f);
+                assertTrue("curve " + curve + " at " + i, value >= last);
+                last = value;
+            }
+        }
+    }
+}
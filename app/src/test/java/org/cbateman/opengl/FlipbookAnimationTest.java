@@ -0,0 +1,85 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks which frame a FlipbookAnimation shows over time in each play mode.
+ */
+public class FlipbookAnimationTest {
+
+    private static SpriteSheet sheet(int frames) {
+        AtlasRegion[] regions = new AtlasRegion[frames];
+        for (int i = 0; i < frames; i++) {
+            regions[i] = new AtlasRegion(1, frames, 1, i, 0, 1, 1);
+        }
+        return new SpriteSheet(1, regions);
+    }
+
+    private static int[] indices(FlipbookAnimation animation, int frames) {
+        int[] result = new int[frames];
+        for (int i = 0; i < frames; i++) {
+            // sample the middle of each frame at 10 frames per second
+            result[i] = animation.getSequenceIndex(i * 0.1f + 0.05f);
+        }
+        return result;
+    }
+
+    @Test
+    public void once_holdsLastFrame() throws Exception {
+        FlipbookAnimation animation = new FlipbookAnimation(sheet(4), 10, FlipbookAnimation.ONCE);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 3, 3}, indices(animation, 6));
+    }
+
+    @Test
+    public void loop_wraps() throws Exception {
+        FlipbookAnimation animation = new FlipbookAnimation(sheet(3), 10, FlipbookAnimation.LOOP);
+        assertArrayEquals(new int[] {0, 1, 2, 0, 1, 2, 0}, indices(animation, 7));
+    }
+
+    @Test
+    public void pingPong_doesNotRepeatEnds() throws Exception {
+        FlipbookAnimation animation = new FlipbookAnimation(sheet(4), 10, FlipbookAnimation.PING_PONG);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 2, 1, 0, 1, 2}, indices(animation, 9));
+    }
+
+    @Test
+    public void singleFrame_alwaysZero() throws Exception {
+        int[] modes = {FlipbookAnimation.ONCE, FlipbookAnimation.LOOP, FlipbookAnimation.PING_PONG};
+        for (int mode : modes) {
+            FlipbookAnimation animation = new FlipbookAnimation(sheet(1), 10, mode);
+            assertArrayEquals("mode " + mode, new int[] {0, 0, 0, 0}, indices(animation, 4));
+        }
+    }
+
+    @Test
+    public void start_offsetsTime() throws Exception {
+        FlipbookAnimation animation = new FlipbookAnimation(sheet(4), 10, FlipbookAnimation.LOOP);
+        animation.start(5.0f);
+        // before the start the first frame is shown
+        assertEquals(0, animation.getSequenceIndex(1.0f));
+        assertEquals(0, animation.getSequenceIndex(5.05f));
+        assertEquals(2, animation.getSequenceIndex(5.25f));
+    }
+
+    @Test
+    public void sequence_mapsToFrames() throws Exception {
+        SpriteSheet sheet = sheet(4);
+        FlipbookAnimation animation = new FlipbookAnimation(sheet, new int[] {3, 1}, 10,
+                FlipbookAnimation.LOOP);
+        assertSame(sheet.getFrame(3), animation.getFrame(0.05f));
+        assertSame(sheet.getFrame(1), animation.getFrame(0.15f));
+        assertSame(sheet.getFrame(3), animation.getFrame(0.25f));
+    }
+
+    @Test
+    public void isFinished_afterLastFrameShownOnce() throws Exception {
+        FlipbookAnimation animation = new FlipbookAnimation(sheet(4), 10, FlipbookAnimation.ONCE);
+        assertFalse(animation.isFinished(0.35f));
+        assertTrue(animation.isFinished(0.45f));
+
+        animation.setMode(FlipbookAnimation.LOOP);
+        assertFalse(animation.isFinished(100.0f));
+    }
+}
@@ -0,0 +1,99 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks HitTester lookups in world coordinates against a linear search.
+ */
+public class HitTesterTest {
+
+    @Test
+    public void empty_hitsNothing() throws Exception {
+        HitTester tester = new HitTester();
+        assertEquals(HitTester.NO_HIT, tester.hitTestWorld(0.0f, 0.0f));
+    }
+
+    @Test
+    public void single_insideEdgesAndOutside() throws Exception {
+        HitTester tester = new HitTester();
+        // top above bottom, as the buttons register them
+        tester.add(-1.0f, 1.0f, 1.0f, -1.0f, 0, 7);
+        assertEquals(7, tester.hitTestWorld(0.0f, 0.0f));
+        assertEquals(7, tester.hitTestWorld(-1.0f, -1.0f));
+        assertEquals(7, tester.hitTestWorld(1.0f, 1.0f));
+        assertEquals(HitTester.NO_HIT, tester.hitTestWorld(1.01f, 0.0f));
+        assertEquals(HitTester.NO_HIT, tester.hitTestWorld(0.0f, -1.01f));
+    }
+
+    @Test
+    public void overlap_highestOrderWins() throws Exception {
+        HitTester tester = new HitTester();
+        tester.add(0.0f, 0.0f, 2.0f, 2.0f, 5, 1);
+        tester.add(1.0f, 1.0f, 3.0f, 3.0f, 2, 2);
+        assertEquals(1, tester.hitTestWorld(1.5f, 1.5f));
+        assertEquals(2, tester.hitTestWorld(2.5f, 2.5f));
+    }
+
+    @Test
+    public void overlap_equalOrderLastAddedWins() throws Exception {
+        HitTester tester = new HitTester();
+        tester.add(0.0f, 0.0f, 2.0f, 2.0f, 0, 1);
+        tester.add(1.0f, 1.0f, 3.0f, 3.0f, 0, 2);
+        assertEquals(2, tester.hitTestWorld(1.5f, 1.5f));
+    }
+
+    @Test
+    public void setBounds_movesItem() throws Exception {
+        HitTester tester = new HitTester();
+        int handle = tester.add(0.0f, 0.0f, 1.0f, 1.0f, 0, 3);
+        tester.add(5.0f, 5.0f, 6.0f, 6.0f, 0, 4);
+        tester.setBounds(handle, 2.0f, 2.0f, 3.0f, 3.0f);
+        assertEquals(HitTester.NO_HIT, tester.hitTestWorld(0.5f, 0.5f));
+        assertEquals(3, tester.hitTestWorld(2.5f, 2.5f));
+    }
+
+    @Test
+    public void clear_removesItems() throws Exception {
+        HitTester tester = new HitTester();
+        tester.add(0.0f, 0.0f, 1.0f, 1.0f, 0, 3);
+        assertEquals(3, tester.hitTestWorld(0.5f, 0.5f));
+        tester.clear();
+        assertEquals(HitTester.NO_HIT, tester.hitTestWorld(0.5f, 0.5f));
+    }
+
+    @Test
+    public void manyItems_matchLinearSearch() throws Exception {
+        Random random = new Random(38);
+        HitTester tester = new HitTester();
+        int count = 500;
+        float[][] rects = new float[count][];
+        int[] orders = new int[count];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextFloat() * 20 - 10;
+            float y = random.nextFloat() * 20 - 10;
+            float w = random.nextFloat() * 3;
+            float h = random.nextFloat() * 3;
+            rects[i] = new float[] { x, y, x + w, y + h };
+            orders[i] = random.nextInt(10);
+            tester.add(x, y + h, x + w, y, orders[i], i);
+        }
+
+        for (int n = 0; n < 20000; n++) {
+            float x = random.nextFloat() * 26 - 13;
+            float y = random.nextFloat() * 26 - 13;
+            int expected = HitTester.NO_HIT;
+            for (int i = 0; i < count; i++) {
+                float[] r = rects[i];
+                if (x >= r[0] && x <= r[2] && y >= r[1] && y <= r[3]
+                        && (expected < 0 || orders[i] >= orders[expected])) {
+                    expected = i;
+                }
+            }
+            assertEquals("point " + x + "," + y, expected, tester.hitTestWorld(x, y));
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares NumberFormatter with DecimalFormat.
+ */
+public class NumberFormatterTest {
+
+    private final NumberFormatter mFormatter = new NumberFormatter();
+
+    @Test
+    public void randomFloats_matchDecimalFormat() throws Exception {
+        Random random = new Random(31);
+        for (int maxFraction = 0; maxFraction <= 6; maxFraction++) {
+            for (int minFraction = 0; minFraction <= maxFraction; minFraction += 2) {
+                DecimalFormat decimalFormat = decimalFormat(minFraction, maxFraction);
+                for (int i = 0; i < 20000; i++) {
+                    // Magnitudes from 1e-6 to 1e6, both signs
+                    float value = (float) ((random.nextBoolean() ? -1 : 1)
+                            * Math.pow(10, random.nextDouble() * 12 - 6));
+                    assertEquals("value " + value, decimalFormat.format(value),
+                            format(value, minFraction, maxFraction));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void frameTimes_matchDecimalFormat() throws Exception {
+        DecimalFormat decimalFormat = decimalFormat(0, 4);
+        for (int i = 0; i <= 100000; i++) {
+            float value = i / 1000000.0f;
+            assertEquals("value " + value, decimalFormat.format(value), format(value, 0, 4));
+        }
+    }
+
+    @Test
+    public void negativeZero() throws Exception {
+        assertEquals(decimalFormat(0, 4).format(-0.0f), format(-0.0f, 0, 4));
+        assertEquals("-0", format(-0.0f, 0, 4));
+        // Negative values that round to zero keep their sign, as in DecimalFormat
+        assertEquals(decimalFormat(0, 2).format(-0.001f), format(-0.001f, 0, 2));
+        assertEquals(decimalFormat(2, 2).format(-0.001f), format(-0.001f, 2, 2));
+    }
+
+    @Test
+    public void roundingCarry() throws Exception {
+        // 9.995f is slightly below 9.995, 9.9951f is above and carries into the integer part
+        assertEquals(decimalFormat(2, 2).format(9.995f), format(9.995f, 2, 2));
+        assertEquals("10.00", format(9.9951f, 2, 2));
+        assertEquals("10", format(9.9951f, 0, 2));
+        assertEquals("1000", format(999.9999f, 0, 2));
+        // Exact ties round to even
+        assertEquals("0.12", format(0.125f, 0, 2));
+        assertEquals("0.38", format(0.375f, 0, 2));
+        assertEquals("2", format(2.5f, 0, 0));
+        assertEquals("4", format(3.5f, 0, 0));
+    }
+
+    @Test
+    public void integerMinValue() throws Exception {
+        assertEquals("-2147483648", formatLong(Integer.MIN_VALUE, 1));
+        assertEquals(Long.toString(Long.MIN_VALUE), formatLong(Long.MIN_VALUE, 1));
+        assertEquals(decimalFormat(0, 4).format((float) Integer.MIN_VALUE),
+                format((float) Integer.MIN_VALUE, 0, 4));
+    }
+
+    @Test
+    public void nanAndInfinity() throws Exception {
+        assertEquals("NaN", format(Float.NaN, 0, 4));
+        assertEquals("\u221E", format(Float.POSITIVE_INFINITY, 0, 4));
+        assertEquals("-\u221E", format(Float.NEGATIVE_INFINITY, 0, 4));
+    }
+
+    @Test
+    public void longs_padWithZeros() throws Exception {
+        assertEquals("007", formatLong(7, 3));
+        assertEquals("-007", formatLong(-7, 3));
+        assertEquals("0", formatLong(0, 0));
+        assertEquals("12345", formatLong(12345, 2));
+    }
+
+    @Test
+    public void append_addsToBuilder() throws Exception {
+        StringBuilder sb = new StringBuilder("t=");
+        mFormatter.append(sb, 0.01667f, 0, 4).append(" n=");
+        mFormatter.append(sb, 42, 3);
+        assertEquals("t=0.0167 n=042", sb.toString());
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private String format(float value, int minFraction, int maxFraction) {
+        int length = mFormatter.format(value, minFraction, maxFraction);
+        return new String(mFormatter.getBuffer(), 0, length);
+    }
+
+    private String formatLong(long value, int minDigits) {
+        int length = mFormatter.format(value, minDigits);
+        return new String(mFormatter.getBuffer(), 0, length);
+    }
+
+    private static DecimalFormat decimalFormat(int minFraction, int maxFraction) {
+        StringBuilder pattern = new StringBuilder("0");
+        if (maxFraction > 0) {
+            pattern.append('.');
+            for (int i = 0; i < maxFraction; i++) {
+                pattern.append(i < minFraction ? '0' : '#');
+            }
+        }
+        return new DecimalFormat(pattern.toString(), DecimalFormatSymbols.getInstance(Locale.US));
+    }
+}
@@ -0,0 +1,207 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the hull, interior and triangulation of SpriteMesh on synthetic sprites.
+ */
+public class SpriteMeshTest {
+
+    private static final int SIZE = 64;
+
+    /** A disc, opaque inside radius - 2 texels and fading to transparent at the radius. */
+    private static int[] disc(int size, float cx, float cy, float radius) {
+        int[] pixels = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float d = (float) Math.hypot(x + 0.5f - cx, y + 0.5f - cy);
+                int alpha = d <= radius - 2 ? 0xFF : d < radius ? (int) (0xFF * (radius - d) / 2) : 0;
+                pixels[y * size + x] = (alpha << 24) | 0x808080;
+            }
+        }
+        return pixels;
+    }
+
+    private static int[] filled(int size, int argb) {
+        int[] pixels = new int[size * size];
+        Arrays.fill(pixels, argb);
+        return pixels;
+    }
+
+    private static SpriteMesh mesh(int[]... frames) {
+        int[] widths = new int[frames.length];
+        int[] heights = new int[frames.length];
+        Arrays.fill(widths, SIZE);
+        Arrays.fill(heights, SIZE);
+        return SpriteMesh.fromPixels(frames, widths, heights);
+    }
+
+    /** True if (u, v) is inside or on the convex polygon, in either winding. */
+    private static boolean contains(float[] polygon, float u, float v, float tolerance) {
+        int n = polygon.length / 2;
+        if (n < 3) {
+            return false;
+        }
+        boolean positive = false, negative = false;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            float ex = polygon[2 * j] - polygon[2 * i], ey = polygon[2 * j + 1] - polygon[2 * i + 1];
+            float len = (float) Math.hypot(ex, ey);
+            float side = (ex * (v - polygon[2 * i + 1]) - ey * (u - polygon[2 * i])) / len;
+            if (side > tolerance) {
+                positive = true;
+            } else if (side < -tolerance) {
+                negative = true;
+            }
+        }
+        return !(positive && negative);
+    }
+
+    private static float triangleArea(float[] vertices, int a, int b, int c) {
+        return ((vertices[2 * b] - vertices[2 * a]) * (vertices[2 * c + 1] - vertices[2 * a + 1])
+                - (vertices[2 * c] - vertices[2 * a]) * (vertices[2 * b + 1] - vertices[2 * a + 1])) / 2;
+    }
+
+    @Test
+    public void opaqueSprite_usesQuad() throws Exception {
+        assertNull(mesh(filled(SIZE, 0xFFFFFFFF)));
+    }
+
+    @Test
+    public void emptySprite_hasNoGeometry() throws Exception {
+        SpriteMesh mesh = mesh(filled(SIZE, 0x00FFFFFF));
+        assertNotNull(mesh);
+        assertEquals(0, mesh.getHull().length);
+        assertEquals(0, mesh.getInterior().length);
+        assertEquals(0, mesh.getOpaqueIndexCount());
+        assertEquals(0, mesh.getBlendedIndexCount());
+        mesh.triangulate(new short[0], new short[0]);
+    }
+
+    @Test
+    public void hull_coversEveryVisiblePixel() throws Exception {
+        int[] pixels = disc(SIZE, SIZE / 2, SIZE / 2, SIZE / 2 - 4);
+        SpriteMesh mesh = mesh(pixels);
+        assertNotNull(mesh);
+        assertTrue(mesh.getHullArea() < 0.9f);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if ((pixels[y * SIZE + x] >>> 24) == 0) {
+                    continue;
+                }
+                // every corner of the texel, so bilinear samples of it are never clipped
+                for (int c = 0; c < 4; c++) {
+                    float u = (x + (c & 1)) / (float) SIZE, v = (y + (c >> 1)) / (float) SIZE;
+                    assertTrue("texel " + x + "," + y, contains(mesh.getHull(), u, v, 1e-5f));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void interior_coversOnlyOpaquePixels() throws Exception {
+        int[] pixels = disc(SIZE, SIZE / 2, SIZE / 2, SIZE / 2 - 4);
+        SpriteMesh mesh = mesh(pixels);
+        float[] interior = mesh.getInterior();
+        assertTrue(interior.length >= 6);
+        assertTrue(mesh.getInteriorArea() >= 0.1f);
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if ((pixels[y * SIZE + x] >>> 24) == 0xFF) {
+                    continue;
+                }
+                // no part of a texel that is not opaque may be inside the interior
+                float u = (x + 0.5f) / SIZE, v = (y + 0.5f) / SIZE;
+                assertFalse("texel " + x + "," + y, contains(interior, u, v, 0.5f / SIZE));
+            }
+        }
+    }
+
+    @Test
+    public void frames_shareOneMesh() throws Exception {
+        int[] left = disc(SIZE, SIZE * 0.4f, SIZE / 2, SIZE / 4);
+        int[] right = disc(SIZE, SIZE * 0.6f, SIZE / 2, SIZE / 4);
+        SpriteMesh mesh = mesh(left, right);
+        SpriteMesh single = mesh(left);
+        assertTrue(mesh.getHullArea() > single.getHullArea());
+        for (int[] pixels : new int[][] { left, right }) {
+            for (int i = 0; i < pixels.length; i++) {
+                if ((pixels[i] >>> 24) == 0) {
+                    continue;
+                }
+                float u = (i % SIZE + 0.5f) / SIZE, v = (i / SIZE + 0.5f) / SIZE;
+                assertTrue(contains(mesh.getHull(), u, v, 1e-5f));
+                if ((pixels[i] >>> 24) != 0xFF) {
+                    assertFalse(contains(mesh.getInterior(), u, v, 0.5f / SIZE));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void triangulate_splitsHullIntoOpaqueAndBlendedParts() throws Exception {
+        SpriteMesh mesh = mesh(disc(SIZE, SIZE / 2, SIZE / 2, SIZE / 2 - 4));
+        float[] hull = mesh.getHull();
+        float[] interior = mesh.getInterior();
+        int n = hull.length / 2;
+        int m = interior.length / 2;
+        float[] vertices = new float[hull.length + interior.length];
+        System.arraycopy(hull, 0, vertices, 0, hull.length);
+        System.arraycopy(interior, 0, vertices, hull.length, interior.length);
+
+        short[] opaque = new short[mesh.getOpaqueIndexCount()];
+        short[] blended = new short[mesh.getBlendedIndexCount()];
+        assertEquals(3 * (m - 2), opaque.length);
+        assertEquals(3 * (n + m), blended.length);
+        mesh.triangulate(opaque, blended);
+
+        // opaque triangles use only interior vertices
+        for (short index : opaque) {
+            assertTrue(index >= n && index < n + m);
+        }
+
+        // every triangle has the same winding, and together they cover the hull exactly:
+        // the opaque ones the interior and the blended ones the ring, without overlap
+        float opaqueArea = 0, blendedArea = 0;
+        for (int t = 0; t < opaque.length; t += 3) {
+            float area = triangleArea(vertices, opaque[t], opaque[t + 1], opaque[t + 2]);
+            assertTrue(area > 0);
+            opaqueArea += area;
+        }
+        for (int t = 0; t < blended.length; t += 3) {
+            assertTrue(blended[t] >= 0 && blended[t + 1] >= 0 && blended[t + 2] >= 0);
+            float area = triangleArea(vertices, blended[t], blended[t + 1], blended[t + 2]);
+            assertTrue("triangle " + t / 3, area >= 0);
+            blendedArea += area;
+        }
+        assertEquals(mesh.getInteriorArea(), opaqueArea, 1e-4f);
+        assertEquals(mesh.getHullArea() - mesh.getInteriorArea(), blendedArea, 1e-4f);
+    }
+
+    @Test
+    public void noInterior_blendsHullFan() throws Exception {
+        // a soft sprite with no opaque texel has no interior
+        int[] pixels = disc(SIZE, SIZE / 2, SIZE / 2, SIZE / 2 - 4);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (pixels[i] >>> 24) == 0 ? pixels[i] : 0x80808080;
+        }
+        SpriteMesh mesh = mesh(pixels);
+        int n = mesh.getHull().length / 2;
+        assertEquals(0, mesh.getInterior().length);
+        assertEquals(0, mesh.getOpaqueIndexCount());
+        assertEquals(3 * (n - 2), mesh.getBlendedIndexCount());
+
+        short[] blended = new short[mesh.getBlendedIndexCount()];
+        mesh.triangulate(new short[0], blended);
+        float area = 0;
+        for (int t = 0; t < blended.length; t += 3) {
+            assertTrue(blended[t] < n && blended[t + 1] < n && blended[t + 2] < n);
+            area += triangleArea(mesh.getHull(), blended[t], blended[t + 1], blended[t + 2]);
+        }
+        assertEquals(mesh.getHullArea(), area, 1e-4f);
+    }
+}
@@ -0,0 +1,173 @@
+package org.cbateman.opengl;
+
+import android.view.MotionEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records touches in a TouchEventRing and checks what is drained.
+ */
+public class TouchEventRingTest {
+
+    private static final int DOWN = MotionEvent.ACTION_DOWN;
+    private static final int UP = MotionEvent.ACTION_UP;
+    private static final int MOVE = MotionEvent.ACTION_MOVE;
+
+    /** Records drained touches as "action:pointer:x". */
+    private static class Recorder implements TouchEventRing.Listener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onTouch(int action, int pointerId, float x, float y, long eventTime) {
+            events.add(action + ":" + pointerId + ":" + (int) x);
+        }
+    }
+
+    @Test
+    public void drain_deliversInOrder() throws Exception {
+        TouchEventRing ring = new TouchEventRing(32);
+        ring.add(DOWN, 0, 1, 0, 0);
+        ring.add(UP, 0, 2, 0, 1);
+        ring.add(DOWN, 1, 3, 0, 2);
+
+        Recorder recorder = new Recorder();
+        assertEquals(3, ring.drain(recorder));
+        assertEquals(list(DOWN + ":0:1", UP + ":0:2", DOWN + ":1:3"), recorder.events);
+
+        // Drained records are gone
+        recorder.events.clear();
+        assertEquals(0, ring.drain(recorder));
+        assertTrue(recorder.events.isEmpty());
+    }
+
+    @Test
+    public void drain_coalescesMovesPerPointer() throws Exception {
+        TouchEventRing ring = new TouchEventRing(32);
+        ring.add(DOWN, 0, 0, 0, 0);
+        ring.add(MOVE, 0, 1, 0, 1);
+        ring.add(MOVE, 1, 2, 0, 1);
+        ring.add(MOVE, 0, 3, 0, 2);
+        ring.add(MOVE, 1, 4, 0, 2);
+        ring.add(MOVE, 0, 5, 0, 3);
+
+        Recorder recorder = new Recorder();
+        assertEquals(3, ring.drain(recorder));
+        // The last move of each pointer, in the order they were recorded
+        assertEquals(list(DOWN + ":0:0", MOVE + ":1:4", MOVE + ":0:5"), recorder.events);
+    }
+
+    @Test
+    public void drain_doesNotCoalesceAcrossOtherActions() throws Exception {
+        TouchEventRing ring = new TouchEventRing(32);
+        ring.add(MOVE, 0, 1, 0, 0);
+        ring.add(MOVE, 0, 2, 0, 1);
+        ring.add(DOWN, 1, 3, 0, 2);
+        ring.add(MOVE, 0, 4, 0, 3);
+        ring.add(MOVE, 0, 5, 0, 4);
+
+        Recorder recorder = new Recorder();
+        ring.drain(recorder);
+        assertEquals(list(MOVE + ":0:2", DOWN + ":1:3", MOVE + ":0:5"), recorder.events);
+    }
+
+    @Test
+    public void drain_largePointerIdsAreNotCoalesced() throws Exception {
+        TouchEventRing ring = new TouchEventRing(32);
+        ring.add(MOVE, 40, 1, 0, 0);
+        ring.add(MOVE, 40, 2, 0, 1);
+
+        Recorder recorder = new Recorder();
+        assertEquals(2, ring.drain(recorder));
+    }
+
+    @Test
+    public void add_fullRingDropsMovesFirst() throws Exception {
+        // Capacity is rounded up to a power of two (at least 16)
+        TouchEventRing ring = new TouchEventRing(10);
+        int moves = 0;
+        while (ring.add(MOVE, moves % 2, moves, 0, 0)) {
+            moves++;
+        }
+        // Room is kept for other actions
+        assertEquals(8, moves);
+        int downs = 0;
+        while (ring.add(DOWN, 2, 0, 0, 0)) {
+            downs++;
+        }
+        assertEquals(8, downs);
+        assertEquals(2, ring.getDroppedCount());
+
+        ring.drain(new Recorder());
+        assertTrue(ring.add(MOVE, 0, 0, 0, 0));
+    }
+
+    @Test
+    public void wrapsAround() throws Exception {
+        TouchEventRing ring = new TouchEventRing(16);
+        Recorder recorder = new Recorder();
+        for (int n = 0; n < 1000; n++) {
+            ring.add(DOWN, 0, n, 0, n);
+            ring.add(UP, 0, n, 0, n);
+            recorder.events.clear();
+            assertEquals(2, ring.drain(recorder));
+            assertEquals(list(DOWN + ":0:" + n, UP + ":0:" + n), recorder.events);
+        }
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    public void concurrent_everyRecordDeliveredOnce() throws Exception {
+        final TouchEventRing ring = new TouchEventRing(64);
+        final int count = 20000;
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int n = 0; n < count; n++) {
+                    while (!ring.add(DOWN, 0, n, 0, n)) {
+                        Thread.yield();
+                    }
+                }
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+
+        final int[] next = new int[1];
+        final boolean[] ordered = { true };
+        TouchEventRing.Listener listener = new TouchEventRing.Listener() {
+            @Override
+            public void onTouch(int action, int pointerId, float x, float y, long eventTime) {
+                if (eventTime != next[0]) {
+                    ordered[0] = false;
+                }
+                next[0]++;
+            }
+        };
+        long deadline = System.currentTimeMillis() + 10000;
+        while (next[0] < count && System.currentTimeMillis() < deadline) {
+            if (ring.drain(listener) == 0) {
+                Thread.yield();
+            }
+        }
+        producer.join(1000);
+
+        assertTrue(ordered[0]);
+        assertEquals(count, next[0]);
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private static List<String> list(String... events) {
+        List<String> list = new ArrayList<>();
+        for (String event : events) {
+            list.add(event);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,91 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the hand-over of buffers between the writer and the reader of a TripleBuffer.
+ */
+public class TripleBufferTest {
+
+    @Test
+    public void acquire_returnsThirdUntilPublished() throws Exception {
+        TripleBuffer<String> buffer = new TripleBuffer<>("first", "second", "third");
+        assertFalse(buffer.hasUpdate());
+        assertEquals("third", buffer.acquire());
+        assertEquals("first", buffer.getWriteBuffer());
+    }
+
+    @Test
+    public void acquire_returnsLatestPublished() throws Exception {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(new int[1], new int[1], new int[1]);
+        for (int i = 1; i <= 3; i++) {
+            buffer.getWriteBuffer()[0] = i;
+            buffer.publish();
+        }
+        assertTrue(buffer.hasUpdate());
+        assertEquals(3, buffer.acquire()[0]);
+        assertFalse(buffer.hasUpdate());
+        // Nothing new: the reader keeps its buffer
+        assertEquals(3, buffer.acquire()[0]);
+    }
+
+    @Test
+    public void buffers_neverShared() throws Exception {
+        TripleBuffer<Object> buffer = new TripleBuffer<>(new Object(), new Object(), new Object());
+        Object read = buffer.acquire();
+        for (int i = 0; i < 10; i++) {
+            // The writer never gets the buffer the reader holds
+            assertNotSame(read, buffer.getWriteBuffer());
+            buffer.publish();
+            assertNotSame(read, buffer.getWriteBuffer());
+            if (i % 3 == 0) {
+                read = buffer.acquire();
+                assertNotSame(read, buffer.getWriteBuffer());
+            }
+        }
+    }
+
+    @Test
+    public void concurrent_readerSeesCompleteIncreasingBuffers() throws Exception {
+        final int writes = 200000;
+        final TripleBuffer<long[]> buffer = new TripleBuffer<>(new long[8], new long[8], new long[8]);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long last = 0;
+                while (last < writes && failure.get() == null) {
+                    long[] values = buffer.acquire();
+                    for (long value : values) {
+                        // every slot of a published buffer was written in the same pass
+                        if (value != values[0]) {
+                            failure.set("torn buffer " + values[0] + " / " + value);
+                        }
+                    }
+                    if (values[0] < last) {
+                        failure.set("went back from " + last + " to " + values[0]);
+                    }
+                    last = values[0];
+                }
+            }
+        });
+        reader.start();
+
+        for (long i = 1; i <= writes; i++) {
+            long[] values = buffer.getWriteBuffer();
+            for (int j = 0; j < values.length; j++) {
+                values[j] = i;
+            }
+            buffer.publish();
+        }
+        reader.join(10000);
+
+        assertFalse("reader did not see the last write", reader.isAlive());
+        assertNull(failure.get(), failure.get());
+    }
+}
@@ -0,0 +1,169 @@
+package org.cbateman.opengl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays TweenEngine tracks with fixed time steps and checks the property values.
+ */
+public class TweenEngineTest {
+
+    private static final float TOLERANCE = 1e-4f;
+
+    @Test
+    public void createTarget_setsDefaults() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        assertEquals(0, target);
+        assertEquals(0.0f, tweens.getValue(target, TweenEngine.X), 0.0f);
+        assertEquals(1.0f, tweens.getValue(target, TweenEngine.SCALE), 0.0f);
+        assertEquals(1.0f, tweens.getValue(target, TweenEngine.ALPHA), 0.0f);
+        // Full
+        assertEquals(-1, tweens.createTarget());
+    }
+
+    @Test
+    public void to_interpolatesAndFinishes() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 4);
+        int target = tweens.createTarget();
+        int track = tweens.to(target, TweenEngine.X, 2.0f, 6.0f, 1.0f, Easing.LINEAR);
+        assertEquals(2.0f, tweens.getValue(target, TweenEngine.X), 0.0f);
+
+        tweens.update(0.25f);
+        assertEquals(3.0f, tweens.getValue(target, TweenEngine.X), TOLERANCE);
+        assertTrue(tweens.isRunning(track));
+
+        tweens.update(1.0f);
+        assertEquals(6.0f, tweens.getValue(target, TweenEngine.X), 0.0f);
+        assertFalse(tweens.isRunning(track));
+        assertEquals(0, tweens.getRunningCount());
+    }
+
+    @Test
+    public void to_appliesEasing() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        tweens.to(target, TweenEngine.ALPHA, 0.0f, 1.0f, 2.0f, Easing.QUAD_IN);
+        tweens.update(1.0f);
+        assertEquals(Easing.ease(Easing.QUAD_IN, 0.5f), tweens.getValue(target, TweenEngine.ALPHA), TOLERANCE);
+    }
+
+    @Test
+    public void keys_eachSegmentUsesItsOwnKeys() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        int track = tweens.beginTrack(target, TweenEngine.Y, TweenEngine.ONCE, 0);
+        tweens.addKey(track, 0.0f, 0.0f, Easing.LINEAR);
+        tweens.addKey(track, 1.0f, 10.0f, Easing.LINEAR);
+        tweens.addKey(track, 3.0f, 0.0f, Easing.LINEAR);
+        tweens.start(track);
+
+        float[] expected = { 5.0f, 10.0f, 7.5f, 5.0f, 2.5f, 0.0f };
+        for (float value : expected) {
+            tweens.update(0.5f);
+            assertEquals(value, tweens.getValue(target, TweenEngine.Y), TOLERANCE);
+        }
+        assertFalse(tweens.isRunning(track));
+    }
+
+    @Test
+    public void addKey_limitedToMaxKeys() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int track = tweens.beginTrack(tweens.createTarget(), TweenEngine.X, TweenEngine.ONCE, 0);
+        for (int i = 0; i < TweenEngine.MAX_KEYS; i++) {
+            assertTrue(tweens.addKey(track, i, i, Easing.LINEAR));
+        }
+        assertFalse(tweens.addKey(track, TweenEngine.MAX_KEYS, 0, Easing.LINEAR));
+    }
+
+    @Test
+    public void loop_wrapsAround() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        int track = tweens.beginTrack(target, TweenEngine.X, TweenEngine.LOOP, 0);
+        tweens.addKey(track, 0.0f, 0.0f, Easing.LINEAR);
+        tweens.addKey(track, 1.0f, 1.0f, Easing.LINEAR);
+        tweens.start(track);
+
+        tweens.update(0.75f);
+        assertEquals(0.75f, tweens.getValue(target, TweenEngine.X), TOLERANCE);
+        tweens.update(0.5f);
+        assertEquals(0.25f, tweens.getValue(target, TweenEngine.X), TOLERANCE);
+        // Many periods later it is still running and in range
+        for (int i = 0; i < 1000; i++) {
+            tweens.update(0.1f);
+        }
+        assertTrue(tweens.isRunning(track));
+        assertEquals(0.25f, tweens.getValue(target, TweenEngine.X), 1e-3f);
+    }
+
+    @Test
+    public void pingPong_mirrorsBack() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        int track = tweens.beginTrack(target, TweenEngine.SCALE, TweenEngine.PING_PONG, 0);
+        tweens.addKey(track, 0.0f, 1.0f, Easing.LINEAR);
+        tweens.addKey(track, 1.0f, 2.0f, Easing.LINEAR);
+        tweens.start(track);
+
+        tweens.update(0.5f);
+        assertEquals(1.5f, tweens.getValue(target, TweenEngine.SCALE), TOLERANCE);
+        tweens.update(1.0f);
+        assertEquals(1.5f, tweens.getValue(target, TweenEngine.SCALE), TOLERANCE);
+        tweens.update(0.25f);
+        assertEquals(1.25f, tweens.getValue(target, TweenEngine.SCALE), TOLERANCE);
+        tweens.update(0.5f);
+        assertEquals(1.25f, tweens.getValue(target, TweenEngine.SCALE), TOLERANCE);
+    }
+
+    @Test
+    public void delay_holdsFirstKey() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        int track = tweens.beginTrack(target, TweenEngine.X, TweenEngine.ONCE, 1.0f);
+        tweens.addKey(track, 0.0f, 0.0f, Easing.LINEAR);
+        tweens.addKey(track, 1.0f, 4.0f, Easing.LINEAR);
+        tweens.start(track);
+
+        tweens.update(0.5f);
+        assertEquals(0.0f, tweens.getValue(target, TweenEngine.X), 0.0f);
+        // The part of the step past the delay is played
+        tweens.update(0.75f);
+        assertEquals(1.0f, tweens.getValue(target, TweenEngine.X), TOLERANCE);
+    }
+
+    @Test
+    public void cancel_keepsValueAndFreesTrack() throws Exception {
+        TweenEngine tweens = new TweenEngine(1, 1);
+        int target = tweens.createTarget();
+        int track = tweens.to(target, TweenEngine.X, 0.0f, 1.0f, 1.0f, Easing.LINEAR);
+        // One track only
+        assertEquals(-1, tweens.to(target, TweenEngine.Y, 0.0f, 1.0f, 1.0f, Easing.LINEAR));
+
+        tweens.update(0.5f);
+        tweens.cancel(track);
+        assertFalse(tweens.isRunning(track));
+        tweens.update(0.5f);
+        assertEquals(0.5f, tweens.getValue(target, TweenEngine.X), TOLERANCE);
+
+        assertTrue(tweens.to(target, TweenEngine.Y, 0.0f, 1.0f, 1.0f, Easing.LINEAR) >= 0);
+    }
+
+    @Test
+    public void update_finishingTrackDoesNotSkipOthers() throws Exception {
+        TweenEngine tweens = new TweenEngine(3, 3);
+        int a = tweens.createTarget();
+        int b = tweens.createTarget();
+        int c = tweens.createTarget();
+        tweens.to(a, TweenEngine.X, 0.0f, 1.0f, 0.1f, Easing.LINEAR);
+        tweens.to(b, TweenEngine.X, 0.0f, 1.0f, 1.0f, Easing.LINEAR);
+        tweens.to(c, TweenEngine.X, 0.0f, 1.0f, 1.0f, Easing.LINEAR);
+
+        tweens.update(0.5f);
+        assertEquals(1.0f, tweens.getValue(a, TweenEngine.X), 0.0f);
+        assertEquals(0.5f, tweens.getValue(b, TweenEngine.X), TOLERANCE);
+        assertEquals(0.5f, tweens.getValue(c, TweenEngine.X), TOLERANCE);
+        assertEquals(2, tweens.getRunningCount());
+    }
+}
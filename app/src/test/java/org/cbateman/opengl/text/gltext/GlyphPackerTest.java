@@ -0,0 +1,111 @@
+package org.cbateman.opengl.text.gltext;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GlyphPackerTest {
+
+    @Test
+    public void pack_placesGlyphsInsideWithoutOverlap() throws Exception {
+        Random random = new Random(27);
+        int cnt = 95;
+        int[] widths = new int[cnt];
+        int[] heights = new int[cnt];
+        for (int i = 0; i < cnt; i++) {
+            widths[i] = 4 + random.nextInt(20);
+            heights[i] = 10 + random.nextInt(22);
+        }
+        int[] x = new int[cnt];
+        int[] y = new int[cnt];
+
+        int size = GlyphPacker.pack(widths, heights, x, y, 2048);
+
+        assertTrue(size >= GlyphPacker.MIN_TEXTURE_SIZE);
+        assertEquals("power of two", 0, size & (size - 1));
+        assertPlaced(widths, heights, x, y, size);
+    }
+
+    @Test
+    public void pack_usesTheSmallestSizeThatFits() throws Exception {
+        // 16 glyphs of 15x15 fill a 64x64 texture exactly (with the 1 pixel gutter)
+        int cnt = 16;
+        int[] widths = new int[cnt];
+        int[] heights = new int[cnt];
+        for (int i = 0; i < cnt; i++) {
+            widths[i] = 15;
+            heights[i] = 15;
+        }
+        int[] x = new int[cnt];
+        int[] y = new int[cnt];
+        assertEquals(64, GlyphPacker.pack(widths, heights, x, y, 1024));
+        assertPlaced(widths, heights, x, y, 64);
+
+        // One more glyph needs the next size
+        int[] moreWidths = new int[cnt + 1];
+        int[] moreHeights = new int[cnt + 1];
+        for (int i = 0; i <= cnt; i++) {
+            moreWidths[i] = 15;
+            moreHeights[i] = 15;
+        }
+        assertEquals(128, GlyphPacker.pack(moreWidths, moreHeights, new int[cnt + 1], new int[cnt + 1], 1024));
+    }
+
+    @Test
+    public void pack_skipsEmptyGlyphs() throws Exception {
+        int[] widths = { 10, 0, 12, 5 };
+        int[] heights = { 10, 14, 0, 8 };
+        int[] x = { -1, -1, -1, -1 };
+        int[] y = { -1, -1, -1, -1 };
+
+        int size = GlyphPacker.pack(widths, heights, x, y, 256);
+
+        assertEquals(GlyphPacker.MIN_TEXTURE_SIZE, size);
+        assertEquals(0, x[1]);
+        assertEquals(0, y[1]);
+        assertEquals(0, x[2]);
+        assertEquals(0, y[2]);
+        assertPlaced(widths, heights, x, y, size);
+    }
+
+    @Test
+    public void pack_returnsZeroWhenNothingFits() throws Exception {
+        assertEquals(0, GlyphPacker.pack(new int[] { 300 }, new int[] { 10 }, new int[1], new int[1], 256));
+
+        int cnt = 300;
+        int[] widths = new int[cnt];
+        int[] heights = new int[cnt];
+        for (int i = 0; i < cnt; i++) {
+            widths[i] = 20;
+            heights[i] = 20;
+        }
+        assertEquals(0, GlyphPacker.pack(widths, heights, new int[cnt], new int[cnt], 256));
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    /**
+     * Asserts every non-empty rectangle is inside the texture and no two rectangles (grown by
+     * the gutter) overlap.
+     */
+    private static void assertPlaced(int[] widths, int[] heights, int[] x, int[] y, int size) {
+        int gutter = GlyphPacker.GUTTER;
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] <= 0 || heights[i] <= 0) {
+                continue;
+            }
+            assertTrue("glyph " + i + " inside", x[i] >= 0 && y[i] >= 0
+                    && x[i] + widths[i] <= size && y[i] + heights[i] <= size);
+            for (int j = i + 1; j < widths.length; j++) {
+                if (widths[j] <= 0 || heights[j] <= 0) {
+                    continue;
+                }
+                boolean apart = x[i] + widths[i] + gutter <= x[j] || x[j] + widths[j] + gutter <= x[i]
+                        || y[i] + heights[i] + gutter <= y[j] || y[j] + heights[j] + gutter <= y[i];
+                assertTrue("glyphs " + i + " and " + j + " apart", apart);
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.cbateman.opengl.text.gltext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TextLayoutEngineTest {
+
+    // Every character is 10 pixels wide
+    private static final float CHAR_WIDTH = 10.0f;
+
+    private FixedWidthMetrics mFont;
+    private TextLayoutEngine mEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        mFont = new FixedWidthMetrics();
+        mEngine = new TextLayoutEngine(mFont);
+    }
+
+    @Test
+    public void layout_breaksAtTheLastSpaceThatFits() throws Exception {
+        TextLayout layout = mEngine.layout("hello world foo", 110.0f, TextLayout.Align.LEFT);
+
+        assertLines(layout, "hello world", "foo");
+        assertEquals(110.0f, layout.getLineWidth(0), 0.0f);
+        assertEquals(30.0f, layout.getLineWidth(1), 0.0f);
+        assertEquals(110.0f, layout.getWidth(), 0.0f);
+    }
+
+    @Test
+    public void layout_breaksInsideWordsLongerThanALine() throws Exception {
+        assertLines(mEngine.layout("abcdefghij", 35.0f, TextLayout.Align.LEFT), "abc", "def", "ghi", "j");
+    }
+
+    @Test
+    public void layout_breaksAtNewlines() throws Exception {
+        assertLines(mEngine.layout("a\nbb\n\nccc", 0.0f, TextLayout.Align.LEFT), "a", "bb", "", "ccc");
+    }
+
+    @Test
+    public void layout_trimsTrailingSpaces() throws Exception {
+        TextLayout layout = mEngine.layout("ab   ", 0.0f, TextLayout.Align.LEFT);
+
+        assertLines(layout, "ab");
+        assertEquals(20.0f, layout.getWidth(), 0.0f);
+    }
+
+    @Test
+    public void layout_measuresWithScaleAndSpacing() throws Exception {
+        mFont.scaleX = 2.0f;
+        mFont.space = 1.0f;
+
+        // 3 * (10 + 1) * 2, less the spacing after the last character
+        assertEquals(64.0f, mEngine.layout("abc", 0.0f, TextLayout.Align.LEFT).getWidth(), 1e-4f);
+    }
+
+    @Test
+    public void getLineOffset_alignsWithinTheBox() throws Exception {
+        assertEquals(0.0f, mEngine.layout("abc", 100.0f, TextLayout.Align.LEFT).getLineOffset(0), 0.0f);
+        assertEquals(35.0f, mEngine.layout("abc", 100.0f, TextLayout.Align.CENTER).getLineOffset(0), 0.0f);
+        assertEquals(70.0f, mEngine.layout("abc", 100.0f, TextLayout.Align.RIGHT).getLineOffset(0), 0.0f);
+
+        // Without wrapping the box is as wide as the widest line
+        TextLayout layout = mEngine.layout("abcd\nab", 0.0f, TextLayout.Align.RIGHT);
+        assertEquals(0.0f, layout.getLineOffset(0), 0.0f);
+        assertEquals(20.0f, layout.getLineOffset(1), 0.0f);
+    }
+
+    @Test
+    public void layout_isMemoized() throws Exception {
+        TextLayout layout = mEngine.layout("hello world", 60.0f, TextLayout.Align.LEFT);
+
+        assertSame(layout, mEngine.layout("hello world", 60.0f, TextLayout.Align.LEFT));
+        assertNotSame(layout, mEngine.layout("hello world", 70.0f, TextLayout.Align.LEFT));
+        assertNotSame(layout, mEngine.layout("hello world", 60.0f, TextLayout.Align.CENTER));
+
+        // Font settings are part of the key
+        mFont.scaleX = 2.0f;
+        TextLayout scaled = mEngine.layout("hello world", 60.0f, TextLayout.Align.LEFT);
+        assertNotSame(layout, scaled);
+        assertLines(scaled, "hel", "lo", "wor", "ld");
+
+        mEngine.clear();
+        mFont.scaleX = 1.0f;
+        assertNotSame(layout, mEngine.layout("hello world", 60.0f, TextLayout.Align.LEFT));
+    }
+
+    @Test
+    public void layout_evictsTheLeastRecentlyUsedLayout() throws Exception {
+        TextLayoutEngine engine = new TextLayoutEngine(mFont, 2);
+        TextLayout a = engine.layout("a", 0.0f, TextLayout.Align.LEFT);
+        TextLayout b = engine.layout("b", 0.0f, TextLayout.Align.LEFT);
+        assertSame(a, engine.layout("a", 0.0f, TextLayout.Align.LEFT));
+        engine.layout("c", 0.0f, TextLayout.Align.LEFT);
+
+        assertSame(a, engine.layout("a", 0.0f, TextLayout.Align.LEFT));
+        assertNotSame(b, engine.layout("b", 0.0f, TextLayout.Align.LEFT));
+    }
+
+    @Test
+    public void append_matchesAFreshLayout() throws Exception {
+        String[] parts = { "hello", " world", " foo", "barbazqux", "\nx", " y z" };
+        TextLayout appended = mEngine.layout(parts[0], 55.0f, TextLayout.Align.LEFT);
+        String text = parts[0];
+        for (int i = 1; i < parts.length; i++) {
+            appended = mEngine.append(appended, parts[i]);
+            text += parts[i];
+
+            TextLayout fresh = new TextLayoutEngine(mFont).layout(text, 55.0f, TextLayout.Align.LEFT);
+            assertEquals(text, appended.getText());
+            assertEquals(text, fresh.getLineCount(), appended.getLineCount());
+            for (int line = 0; line < fresh.getLineCount(); line++) {
+                assertEquals(fresh.getLineStart(line), appended.getLineStart(line));
+                assertEquals(fresh.getLineEnd(line), appended.getLineEnd(line));
+                assertEquals(fresh.getLineWidth(line), appended.getLineWidth(line), 1e-4f);
+            }
+        }
+    }
+
+    // Private methods -----------------------------------------------------------------------------
+
+    private static class FixedWidthMetrics implements TextMetrics {
+        float scaleX = 1.0f;
+        float space;
+
+        @Override
+        public float getAdvance(char chr) {
+            return CHAR_WIDTH;
+        }
+
+        @Override
+        public float getScaleX() {
+            return scaleX;
+        }
+
+        @Override
+        public float getSpace() {
+            return space;
+        }
+    }
+
+    private static void assertLines(TextLayout layout, String... lines) {
+        String[] actual = new String[layout.getLineCount()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = layout.getText().substring(layout.getLineStart(i), layout.getLineEnd(i));
+        }
+        assertArrayEquals(lines, actual);
+    }
+}